@@ -0,0 +1,209 @@
+package com.example.androidhanziwriter;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.hanzicore.HanziBinaryFormat;
+import com.example.hanzicore.HanziGlyph;
+import com.example.hanzicore.SvgPathParser;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link HanziDiskCache} 的文件  写回之后能读出来，损坏、版本不对的文件被丢掉，多个缓存同时写不会互相破坏
+ */
+@RunWith(AndroidJUnit4.class)
+public class HanziDiskCacheTest {
+    private File directory;
+
+    @Before
+    public void setUp() {
+        directory = new File(InstrumentationRegistry.getInstrumentation().getTargetContext().getCacheDir(),
+                "HanziDiskCacheTest");
+        deleteDirectory();
+        assertTrue(directory.mkdirs());
+    }
+
+    @After
+    public void tearDown() {
+        deleteDirectory();
+    }
+
+    private void deleteDirectory(){
+        File[] files = directory.listFiles();
+        if(files != null){
+            for(File file : files){
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    private static HanziGlyph glyph(String word, float offset){
+        return HanziGlyph.fromSvg(word,
+                Collections.singletonList("M " + offset + " 0 L 100 0 Q 120 50 100 100 Z"),
+                new float[][]{{offset, 50, 100, 50}}, new SvgPathParser());
+    }
+
+    /**
+     * 放进去一个字  等后台写完
+     */
+    private File writeCache(HanziGlyph glyph) throws InterruptedException {
+        HanziDiskCache cache = new HanziDiskCache(directory);
+        cache.put(glyph);
+        cache.close();
+        assertTrue(cache.awaitClosed(5, TimeUnit.SECONDS));
+        assertTrue(cache.getFile().exists());
+        return cache.getFile();
+    }
+
+    private void assertDropped(File file){
+        HanziDiskCache cache = new HanziDiskCache(directory);
+        try{
+            assertNull(cache.get('一'));
+            assertFalse(file.exists());
+        }finally {
+            cache.close();
+        }
+    }
+
+    private static void writeInt(File file, long position, int value) throws IOException {
+        RandomAccessFile out = new RandomAccessFile(file, "rw");
+        try{
+            out.seek(position);
+            out.writeInt(value);
+        }finally {
+            out.close();
+        }
+    }
+
+    /**
+     * 改了内容之后重新算结尾的CRC  只让版本检查失败
+     */
+    private static void rewriteCrc(File file) throws IOException {
+        RandomAccessFile out = new RandomAccessFile(file, "rw");
+        try{
+            byte[] data = new byte[(int) out.length() - 8];
+            out.readFully(data);
+            CRC32 checksum = new CRC32();
+            checksum.update(data, 0, data.length);
+            out.writeInt((int) checksum.getValue());
+        }finally {
+            out.close();
+        }
+    }
+
+    @Test
+    public void writtenGlyphsReadBack() throws Exception {
+        HanziGlyph glyph = glyph("一", 10);
+        writeCache(glyph);
+
+        HanziDiskCache cache = new HanziDiskCache(directory);
+        try{
+            HanziGlyph cached = cache.get('一');
+            assertNotNull(cached);
+            assertArrayEquals(glyph.getStrokeCoordinates(0), cached.getStrokeCoordinates(0), 0);
+            assertArrayEquals(glyph.getMedian(0), cached.getMedian(0), 0);
+            assertNull(cache.get('二'));
+        }finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void corruptedRecordIsDropped() throws Exception {
+        File file = writeCache(glyph("一", 10));
+        //记录里的一个坐标  索引还是好的，只有CRC能发现
+        writeInt(file, file.length() - 20, 12345);
+        assertDropped(file);
+    }
+
+    @Test
+    public void truncatedFileIsDropped() throws Exception {
+        File file = writeCache(glyph("一", 10));
+        RandomAccessFile out = new RandomAccessFile(file, "rw");
+        try{
+            out.setLength(file.length() - 3);
+        }finally {
+            out.close();
+        }
+        assertDropped(file);
+    }
+
+    @Test
+    public void otherVersionIsDropped() throws Exception {
+        File file = writeCache(glyph("一", 10));
+        RandomAccessFile out = new RandomAccessFile(file, "rw");
+        try{
+            out.seek(4);
+            out.writeShort(HanziBinaryFormat.VERSION + 1);
+        }finally {
+            out.close();
+        }
+        rewriteCrc(file);
+        assertDropped(file);
+    }
+
+    @Test
+    public void droppedCacheIsRebuilt() throws Exception {
+        File file = writeCache(glyph("一", 10));
+        writeInt(file, 0, 0);
+        assertDropped(file);
+
+        writeCache(glyph("二", 20));
+        HanziDiskCache cache = new HanziDiskCache(directory);
+        try{
+            assertNotNull(cache.get('二'));
+        }finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void concurrentWritersDoNotShareTempFile() throws Exception {
+        HanziDiskCache[] caches = new HanziDiskCache[4];
+        for(int i = 0 ; i < caches.length ; i ++){
+            caches[i] = new HanziDiskCache(directory);
+        }
+        for(int round = 0 ; round < 20 ; round ++){
+            for(int i = 0 ; i < caches.length ; i ++){
+                caches[i].put(glyph(String.valueOf((char) ('一' + round * caches.length + i)), i));
+            }
+        }
+        for(HanziDiskCache cache : caches){
+            cache.close();
+        }
+        for(HanziDiskCache cache : caches){
+            assertTrue(cache.awaitClosed(5, TimeUnit.SECONDS));
+        }
+
+        //最后改名的那个赢  文件是完整的，至少有它自己放进去的字，临时文件都清理了
+        HanziDiskCache cache = new HanziDiskCache(directory);
+        try{
+            int found = 0;
+            for(int i = 0 ; i < 20 * caches.length ; i ++){
+                if(cache.get('一' + i) != null){
+                    found ++;
+                }
+            }
+            assertTrue(String.valueOf(found), found >= 20);
+            assertTrue(cache.getFile().exists());
+        }finally {
+            cache.close();
+        }
+        String[] names = directory.list();
+        assertEquals(1, names.length);
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.androidhanziwriter;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.RectF;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * 遮罩模式下墨迹的合成  要在设备上跑，真的画到图片里再读像素
+ */
+@RunWith(AndroidJUnit4.class)
+public class StrokeMaskTest {
+    private static final int SIZE = 100;
+
+    /**
+     * 左半边是笔画的遮罩
+     */
+    private static Bitmap leftHalfMask(){
+        Bitmap mask = Bitmap.createBitmap(SIZE / 2, SIZE, Bitmap.Config.ALPHA_8);
+        mask.eraseColor(Color.BLACK);
+        return mask;
+    }
+
+    private static Paint inkPaint(){
+        Paint paint = new Paint();
+        paint.setStyle(Paint.Style.STROKE);
+        paint.setStrokeWidth(10);
+        paint.setColor(Color.BLUE);
+        return paint;
+    }
+
+    private static Paint compositePaint(){
+        Paint paint = new Paint();
+        paint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.DST_IN));
+        return paint;
+    }
+
+    /**
+     * 一笔刚开始  墨迹图片还是空的，尾部也要看得到
+     */
+    @Test
+    public void freshTailShowsOverEmptyInkBitmap() {
+        Bitmap target = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        Bitmap ink = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        Path tail = new Path();
+        tail.moveTo(10, 50);
+        tail.lineTo(90, 50);
+
+        HanziWriterView.drawMasked(new Canvas(target), leftHalfMask(), new RectF(0, 0, SIZE / 2, SIZE),
+                ink, new Paint(), tail, inkPaint(), compositePaint());
+
+        //遮罩里面  尾部画出来了
+        assertEquals(Color.BLUE, target.getPixel(25, 50));
+        //遮罩外面  被裁掉
+        assertEquals(Color.TRANSPARENT, target.getPixel(75, 50));
+        //遮罩里面没有墨迹的地方  还是透明的
+        assertEquals(Color.TRANSPARENT, target.getPixel(25, 10));
+    }
+
+    /**
+     * 画好的墨迹和尾部都在  尾部不会只出现在旧墨迹上面
+     */
+    @Test
+    public void tailShowsBesideCommittedInk() {
+        Bitmap target = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        Bitmap ink = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        Path committed = new Path();
+        committed.moveTo(10, 20);
+        committed.lineTo(40, 20);
+        new Canvas(ink).drawPath(committed, inkPaint());
+
+        Path tail = new Path();
+        tail.moveTo(10, 80);
+        tail.lineTo(40, 80);
+
+        HanziWriterView.drawMasked(new Canvas(target), leftHalfMask(), new RectF(0, 0, SIZE / 2, SIZE),
+                ink, new Paint(), tail, inkPaint(), compositePaint());
+
+        assertEquals(Color.BLUE, target.getPixel(25, 20));
+        assertEquals(Color.BLUE, target.getPixel(25, 80));
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.androidhanziwriter;
+
+import android.graphics.Path;
+
+import com.example.hanzicore.PathSink;
+
+/**
+ * 把路径命令写进android的Path
+ * 可以通过setPath复用同一个对象
+ */
+public class AndroidPathSink implements PathSink {
+    private Path path;
+
+    public AndroidPathSink() {
+    }
+
+    public AndroidPathSink(Path path) {
+        this.path = path;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public void setPath(Path path) {
+        this.path = path;
+    }
+
+    @Override
+    public void moveTo(float x, float y) {
+        path.moveTo(x, y);
+    }
+
+    @Override
+    public void lineTo(float x, float y) {
+        path.lineTo(x, y);
+    }
+
+    @Override
+    public void quadTo(float x1, float y1, float x, float y) {
+        path.quadTo(x1, y1, x, y);
+    }
+
+    @Override
+    public void cubicTo(float x1, float y1, float x2, float y2, float x, float y) {
+        path.cubicTo(x1, y1, x2, y2, x, y);
+    }
+
+    @Override
+    public void close() {
+        path.close();
+    }
+}
@@ -3,46 +3,80 @@ package com.example.androidhanziwriter;
 import android.graphics.Path;
 import android.text.TextUtils;
 
-import androidx.core.graphics.PathParser;
-
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.example.hanzicore.HanziGlyph;
+import com.example.hanzicore.HanziMetrics;
+import com.example.hanzicore.MedianStroke;
+import com.example.hanzicore.OutlineSimplifier;
+import com.example.hanzicore.SvgPathParser;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * ver1.1.3
  * 新的汉字详情
  * 包括笔画的路径和汉字外框的路径
+ *
+ * 不可变的字形见 {@link HanziGlyph}，按宽高准备好的绘制数据见 {@link PreparedHanzi}
+ * 这个类保留原来的json字段和接口，绘制数据从 {@link HanziGlyphCache} 取，多个view共用
  */
 public class HanziBean {
+    //解析器可以复用  每个线程一个
+    private static final ThreadLocal<SvgPathParser> SVG_PARSER = new ThreadLocal<SvgPathParser>(){
+        @Override
+        protected SvgPathParser initialValue() {
+            return new SvgPathParser();
+        }
+    };
+
     private String medianData;
     private int strokeCount;//笔画数
     private String word;
     private List<String> strokeData;
 
     private List<List<List<Integer>>> medians;//汉字中线
-    private List<Path> strokePaths = new ArrayList<>();//汉字外框
-    private Path strokePath = new Path();//汉字外框 全部合成一个path
-    private List<Path> medianPaths = new ArrayList<>();//笔画
-    private Path medianPath = new Path();//笔画 全部合成一个path
-    private int width,height;//坐标基准的宽高
+    private transient int width,height;//坐标基准的宽高
+
+    private transient HanziGlyph glyph;//解析好的字形  只解析一次
+    private transient HanziGlyph[] lodGlyphs;//每一档简化过的字形  用到的时候才生成
+    private transient PreparedHanzi prepared;//initHanzi准备好的绘制数据
+    private transient volatile HanziMetrics metrics;//记录解析和准备的耗时  可以为null
+
+    /**
+     * 用解析好的字形构造汉字
+     */
+    public static HanziBean fromGlyph(HanziGlyph glyph){
+        HanziBean bean = new HanziBean();
+        bean.word = glyph.getWord();
+        bean.strokeCount = glyph.getStrokeCount();
+        bean.glyph = glyph;
+        return bean;
+    }
 
     public List<Path> getStrokePaths() {
-        return strokePaths;
+        return prepared != null ? prepared.getStrokePaths() : Collections.<Path>emptyList();
     }
 
     public Path getStrokePath() {
-        return strokePath;
+        return prepared != null ? prepared.getStrokePath() : new Path();
     }
 
     public List<Path> getMedianPaths() {
-        return medianPaths;
+        return prepared != null ? prepared.getMedianPaths() : Collections.<Path>emptyList();
     }
 
     public Path getMedianPath() {
-        return medianPath;
+        return prepared != null ? prepared.getMedianPath() : new Path();
+    }
+
+    /**
+     * 当前宽高下每个笔画的中线  用于触摸判定
+     * 需要先调用initHanzi
+     * @return
+     */
+    public List<MedianStroke> getMedianStrokes() {
+        return prepared != null ? prepared.getMedianStrokes() : Collections.<MedianStroke>emptyList();
     }
 
     /**
@@ -62,11 +96,14 @@ public class HanziBean {
      *     ...
      *   </g>
      * </svg>
+     *
+     * 准备好的数据放在共享的缓存里，这个对象只记住最后一次的宽高
+     * 不同大小的view请各自用prepare取自己的数据
      * @param width
      * @param height
      */
     public void initHanzi(int width, int height){
-        if(this.width == width && this.height == height){
+        if(prepared != null && this.width == width && this.height == height){
             return;
         }
 
@@ -74,154 +111,96 @@ public class HanziBean {
         this.height = height;
 
         try{
-            initStrokes(strokeData);
-            initMedians(getMedians());
+            prepared = prepare(width, height);
         }catch (Exception e){
-            strokePaths.clear();
-            strokePath.reset();
-            medianPaths.clear();
-            medianPath.reset();
+            prepared = null;
         }
     }
 
     /**
-     * 将strokes中的svg指令转换成path
-     * @param strokes
+     * 取某个宽高下的绘制数据  不改变这个对象
+     * 同一个字同一个大小在所有view之间共用一份
+     * @param width
+     * @param height
+     * @return
      */
-    private void initStrokes(List<String> strokes){
-        strokePaths.clear();
-        strokePath.reset();
-        for(String svg : strokes){
-            Path path = PathParser.createPathFromPathData(coordinateConversion(svg));
-            strokePaths.add(path);
-            strokePath.addPath(path);
-        }
+    public PreparedHanzi prepare(int width, int height){
+        //缓存里已经有的不算准备的耗时
+        return HanziGlyphCache.getInstance().get(getLodGlyph(width, height), width, height, metrics);
     }
 
     /**
-     * 将medians中每个笔画的坐标转换成path
-     * @param medians
+     * 解析好的字形  第一次调用时解析，之后不管宽高怎么变都不用再解析
+     * @return
      */
-
-    private void initMedians(List<List<List<Integer>>> medians){
-        medianPaths.clear();
-        medianPath.reset();
-        for(List<List<Integer>> median : medians){
-            Path path = null;
-            for(List<Integer> coordinate : median){
-                if(path == null){
-                    path = new Path();
-                    path.moveTo(
-                            getCoordinateX(coordinate.get(0)),
-                            getCoordinateY(coordinate.get(1)));
-                }else{
-                    path.lineTo(
-                            getCoordinateX(coordinate.get(0)),
-                            getCoordinateY(coordinate.get(1)));
-                }
+    public synchronized HanziGlyph getGlyph(){
+        if(glyph == null){
+            long start = System.nanoTime();
+            glyph = HanziGlyph.fromSvg(word, strokeData != null ? strokeData : Collections.<String>emptyList(),
+                    getNormalizedMedians(), SVG_PARSER.get());
+            HanziMetrics metrics = this.metrics;
+            if(metrics != null){
+                metrics.recordSince(HanziMetrics.Metric.GLYPH_PARSE, start);
             }
-            medianPaths.add(path);
-            medianPath.addPath(path);
         }
+        return glyph;
     }
 
     /**
-     * 将svg中的坐标转换成正确的坐标
-     * @return
+     * 适合这个宽高的字形
+     * 小尺寸的外框曲线拍平后再去掉多余的点，误差不超过OutlineSimplifier.LOD_TOLERANCE像素，点数少很多
+     * 按OutlineSimplifier的尺寸档位缓存，同一档的所有大小共用一份  中线不简化，触摸判定不受影响
+     * @param width
+     * @param height
+     * @return 大尺寸直接返回getGlyph()
      */
-    private String coordinateConversion(String svg){
-        StringBuilder sb = new StringBuilder();
-
-        String[] options = parseSvg(svg);
-        int numberIndex = 0;
-        String curOption = "";
-
-        //记录最后一点的坐标  如果svg命令是小写，就意味着他后面的数字是相对坐标   相对于前一个操作的坐标
-        double offsetX = 0;
-        double offsetY = 0;
-
-        for(String option : options){
-            char firstChar = option.charAt(0);
-            if(firstChar >= '0' && firstChar <= '9' || firstChar == '-'){
-                numberIndex ++;
-                double value = Double.parseDouble(option);
-
-                if("H".equals(curOption)){
-                    sb.append(getCoordinateX(value));
-                    offsetX = value;
-                }else if("h".equals(curOption)){
-                    sb.append(getCoordinateX(value + offsetX) - getCoordinateX(offsetX));
-                    offsetX += value;
-                }else if("V".equals(curOption)){
-                    sb.append(getCoordinateY(value));
-                    offsetY = value;
-                }else if("v".equals(curOption)){
-                    sb.append(getCoordinateY(value + offsetY) - getCoordinateY(offsetY));
-                    offsetY += value;
-                } else{
-                    if(numberIndex % 2 == 0){
-                        if(curOption.charAt(0) >= 'a' && curOption.charAt(0) <= 'z'){
-                            sb.append(getCoordinateY(value + offsetY) - getCoordinateY(offsetY));
-                            offsetY += value;
-                        }else{
-                            sb.append(getCoordinateY(value));
-                            offsetY = value;
-                        }
-                    }else{
-                        if(curOption.charAt(0) >= 'a' && curOption.charAt(0) <= 'z'){
-                            sb.append(getCoordinateX(value + offsetX) - getCoordinateX(offsetX));
-                            offsetX += value;
-                        }else{
-                            sb.append(getCoordinateX(value));
-                            offsetX = value;
-                        }
-                    }
-                }
-            }else{
-                numberIndex = 0;
-                curOption = option;
-                sb.append(option);
-            }
-            sb.append(" ");
+    public synchronized HanziGlyph getLodGlyph(int width, int height){
+        int level = OutlineSimplifier.getLodLevel(Math.max(width, height));
+        if(level < 0){
+            return getGlyph();
         }
 
-        if(sb.length() != 0){
-            sb.deleteCharAt(sb.length() - 1);
+        if(lodGlyphs == null){
+            lodGlyphs = new HanziGlyph[OutlineSimplifier.LOD_LEVEL_COUNT];
         }
-
-        return sb.toString();
+        if(lodGlyphs[level] == null){
+            lodGlyphs[level] = OutlineSimplifier.simplify(getGlyph(), OutlineSimplifier.getLodTolerance(level));
+        }
+        return lodGlyphs[level];
     }
 
     /**
-     * 将svg字符串分割成命令+空格+数字的形式
+     * 原始坐标系中的中线坐标  每个笔画一个数组，x,y交替
+     * 优先使用不需要装箱的数据来源，medianData字符串也直接解析成数组，不经过Gson
      * @return
      */
-    private String[] parseSvg(String svg){
-        List<String> result = new ArrayList<>();
-        StringBuilder numSb = new StringBuilder();
-        for(int i = 0 ; i < svg.length() ; i ++){
-            char c = svg.charAt(i);
-            if(c >= '0' && c <= '9'){
-                numSb.append(c);
-            }else{
-                if(c == '.'){
-                    numSb.append(c);
-                }else{
-                    if(numSb.length() != 0){
-                        result.add(numSb.toString());
-                        numSb.delete(0, numSb.length());
-                    }
-
-                    if(c >= 'a' && c <='z' || c >= 'A' && c <= 'Z'){
-                        result.add(String.valueOf(c));
-                    }else if(c == '-'){
-                        numSb.append(c);
-                    }
-                }
+    private float[][] getNormalizedMedians(){
+        if(glyph != null){
+            float[][] points = new float[glyph.getStrokeCount()][];
+            for(int i = 0 ; i < points.length ; i ++){
+                points[i] = glyph.getMedian(i);
             }
+            return points;
         }
 
-        return result.toArray(new String[]{});
+        if(medians != null){
+            return HanziGlyph.toMedianArrays(medians);
+        }else if(!TextUtils.isEmpty(medianData)){
+            return HanziGlyph.parseMedians(medianData);
+        }
+        return new float[0][];
+    }
+
+    /**
+     * 记录解析svg和按宽高准备的耗时  默认不记录
+     * @param metrics 可以为null
+     */
+    public void setMetrics(HanziMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public HanziMetrics getMetrics() {
+        return metrics;
     }
 
     /**
@@ -244,28 +223,44 @@ public class HanziBean {
 
     /**
      * 获取汉字的所有笔画的中线坐标列表
-     * 将字符串转换为三维int列表
-     * 因为服务器返回的时候是个字符串
+     * 为了兼容保留的三维int列表，只有第一次调用时才从数组生成
+     * 触摸判定请用getMedianStrokes
      * @return
      */
     public List<List<List<Integer>>> getMedians() {
         if(medians == null){
-            if(!TextUtils.isEmpty(medianData)){
-                medians = new Gson().fromJson(medianData,
-                        new TypeToken<List<List<List<Integer>>>>(){}.getType());
-            }else{
-                medians = new ArrayList<>(0);
+            float[][] points = getNormalizedMedians();
+            medians = new ArrayList<>(points.length);
+            for(float[] median : points){
+                List<List<Integer>> stroke = new ArrayList<>(median.length / 2);
+                for(int i = 0 ; i + 1 < median.length ; i += 2){
+                    List<Integer> point = new ArrayList<>(2);
+                    point.add((int) median[i]);
+                    point.add((int) median[i + 1]);
+                    stroke.add(point);
+                }
+                medians.add(stroke);
             }
         }
         return medians;
     }
 
+    /**
+     * 直接设置中线坐标
+     * graphics.txt里的medians本身就是数组，不需要再转一次字符串
+     * @param medians
+     */
+    public synchronized void setMedians(List<List<List<Integer>>> medians) {
+        this.medians = medians;
+        resetGlyph();
+    }
+
     /**
      * 获取总共有多少画
      * @return
      */
     public int getStrokeCount(){
-        return Math.min(getStrokeData().size(), getMedians().size());
+        return getGlyph().getStrokeCount();
     }
 
     public void setStrokeCount(int strokeCount) {
@@ -276,15 +271,42 @@ public class HanziBean {
         return word;
     }
 
-    public void setWord(String word) {
+    public synchronized void setWord(String word) {
         this.word = word;
+        resetGlyph();
     }
 
     public List<String> getStrokeData() {
         return strokeData;
     }
 
-    public void setStrokeData(List<String> strokeData) {
+    public synchronized void setStrokeData(List<String> strokeData) {
         this.strokeData = strokeData;
+        resetGlyph();
+    }
+
+    /**
+     * 数据变了  下次重新解析
+     */
+    private void resetGlyph(){
+        if(glyph != null && medians == null && TextUtils.isEmpty(medianData)){
+            //中线只保存在字形里，先转存下来
+            getMedians();
+        }
+        //旧的字形准备好的数据不会再用到
+        if(glyph != null){
+            HanziGlyphCache.getInstance().evict(glyph);
+        }
+        if(lodGlyphs != null){
+            for(HanziGlyph lodGlyph : lodGlyphs){
+                if(lodGlyph != null){
+                    HanziGlyphCache.getInstance().evict(lodGlyph);
+                }
+            }
+        }
+        glyph = null;
+        lodGlyphs = null;
+        prepared = null;
+        width = height = 0;
     }
 }
@@ -0,0 +1,308 @@
+package com.example.androidhanziwriter;
+
+import android.util.Log;
+
+import com.example.hanzicore.HanziBinaryFormat;
+import com.example.hanzicore.HanziBinaryReader;
+import com.example.hanzicore.HanziGlyph;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * 最近用过的汉字字形的磁盘缓存  放在app的缓存目录
+ *
+ * 文件内容就是 {@link HanziBinaryFormat} 格式，后面再加8个字节：
+ *   int     前面所有字节的CRC32
+ *   int     TRAILER_MAGIC
+ * 启动时用 {@link HanziBinaryReader} 内存映射打开，校验版本之后直接在映射的内存上算CRC，之后也从这里读取字形
+ * 不需要解析json和svg；文件损坏或者版本不对就删掉，从原始数据重新解析
+ *
+ * 新的字形先放在内存里，在单独的线程里合并写回文件  线程安全
+ */
+public class HanziDiskCache implements Closeable {
+    private static final String TAG = "HanziDiskCache";
+    private static final String FILE_NAME = "hanzi_glyphs.bin";
+    private static final int TRAILER_MAGIC = 0x485A4743;//"HZGC"
+    private static final int TRAILER_SIZE = 8;
+    private static final int DEFAULT_MAX_GLYPHS = 256;
+
+    private final File file;
+    private final int maxGlyphs;
+    private final ExecutorService writer;
+
+    private HanziBinaryReader reader;   //打开时文件里的内容
+    private boolean opened;
+    //最近用过的字  码点 -> 字形  按使用顺序，值为null表示还在文件里没有读出来
+    private final LinkedHashMap<Integer, HanziGlyph> glyphs = new LinkedHashMap<>(16, 0.75f, true);
+    private boolean dirty;
+    private boolean writeScheduled;
+
+    public HanziDiskCache(File cacheDir) {
+        this(cacheDir, DEFAULT_MAX_GLYPHS);
+    }
+
+    /**
+     * @param cacheDir 缓存目录  一般是context.getCacheDir()
+     * @param maxGlyphs 最多保存多少个字
+     */
+    public HanziDiskCache(File cacheDir, int maxGlyphs) {
+        this.file = new File(cacheDir, FILE_NAME);
+        this.maxGlyphs = maxGlyphs;
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 10, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>());
+        executor.allowCoreThreadTimeOut(true);
+        writer = executor;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * 取缓存的字形  第一次调用时打开文件  会读磁盘，不要在主线程调用
+     * @param codePoint
+     * @return 没有返回null
+     */
+    public synchronized HanziGlyph get(int codePoint){
+        open();
+        if(!glyphs.containsKey(codePoint)){
+            return null;
+        }
+
+        HanziGlyph glyph = glyphs.get(codePoint);
+        if(glyph == null && reader != null){
+            try{
+                glyph = reader.loadGlyph(codePoint);
+            }catch (IOException e){
+                //CRC校验过了，一般不会走到这里
+                Log.e(TAG, "get: 记录损坏 " + codePoint, e);
+            }
+            if(glyph == null){
+                glyphs.remove(codePoint);
+                return null;
+            }
+            glyphs.put(codePoint, glyph);
+        }
+        return glyph;
+    }
+
+    /**
+     * 放进缓存  稍后在后台线程写回文件
+     * @param glyph
+     */
+    public synchronized void put(HanziGlyph glyph){
+        open();
+        int codePoint = glyph.getCodePoint();
+        boolean cached = glyphs.containsKey(codePoint);
+        glyphs.put(codePoint, glyph);
+        if(!cached){
+            dirty = true;
+            while (glyphs.size() > maxGlyphs){
+                Iterator<Integer> iterator = glyphs.keySet().iterator();
+                iterator.next();
+                iterator.remove();
+            }
+        }
+        scheduleWrite();
+    }
+
+    /**
+     * 删除缓存文件
+     */
+    public synchronized void clear(){
+        closeReader();
+        glyphs.clear();
+        opened = true;
+        dirty = false;
+        if(file.exists() && !file.delete()){
+            Log.w(TAG, "clear: 删除失败 " + file);
+        }
+    }
+
+    /**
+     * 关闭  还没写完的内容会在后台写完，不会阻塞调用的线程
+     */
+    @Override
+    public void close() {
+        try{
+            writer.execute(new Runnable() {
+                @Override
+                public void run() {
+                    synchronized (HanziDiskCache.this){
+                        closeReader();
+                    }
+                }
+            });
+        }catch (RejectedExecutionException e){
+            //已经关闭了
+        }
+        writer.shutdown();
+    }
+
+    /**
+     * close之后等后台的写完成  测试用
+     * @return 超时返回false
+     */
+    boolean awaitClosed(long timeout, TimeUnit unit) throws InterruptedException {
+        return writer.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * 打开文件  校验失败就删掉
+     */
+    private void open(){
+        if(opened){
+            return;
+        }
+        opened = true;
+        if(!file.exists()){
+            return;
+        }
+
+        try{
+            reader = new HanziBinaryReader(file);
+            verify(reader.getBuffer());
+            for(int i = 0 ; i < reader.getGlyphCount() ; i ++){
+                glyphs.put(reader.getCodePoint(i), null);
+            }
+        }catch (IOException e){
+            Log.w(TAG, "open: 缓存文件无效，重新生成 " + e.getMessage());
+            closeReader();
+            glyphs.clear();
+            if(!file.delete()){
+                Log.w(TAG, "open: 删除失败 " + file);
+            }
+        }
+    }
+
+    /**
+     * 检查结尾的标记和CRC  读的是已经映射的内存，不用再把文件读一遍
+     * 读过的页之后取字形时还能直接用
+     * @param buffer 整个文件
+     */
+    private static void verify(ByteBuffer buffer) throws IOException {
+        int length = buffer.capacity();
+        if(length < HanziBinaryFormat.HEADER_SIZE + TRAILER_SIZE){
+            throw new IOException("truncated");
+        }
+        int crc = buffer.getInt(length - TRAILER_SIZE);
+        if(buffer.getInt(length - TRAILER_SIZE + 4) != TRAILER_MAGIC){
+            throw new IOException("bad trailer");
+        }
+
+        //CRC32.update(ByteBuffer)要API 26  分段拷出来算
+        CRC32 checksum = new CRC32();
+        byte[] chunk = new byte[8192];
+        buffer.position(0);
+        buffer.limit(length - TRAILER_SIZE);
+        while (buffer.hasRemaining()){
+            int count = Math.min(chunk.length, buffer.remaining());
+            buffer.get(chunk, 0, count);
+            checksum.update(chunk, 0, count);
+        }
+        if((int) checksum.getValue() != crc){
+            throw new IOException("crc mismatch");
+        }
+    }
+
+    private void scheduleWrite(){
+        if(!dirty || writeScheduled){
+            return;
+        }
+        writeScheduled = true;
+        try{
+            writer.execute(new Runnable() {
+                @Override
+                public void run() {
+                    write();
+                }
+            });
+        }catch (RejectedExecutionException e){
+            //已经关闭了
+            writeScheduled = false;
+        }
+    }
+
+    /**
+     * 把内存里的字形写回文件  在后台线程运行
+     * 先写临时文件再改名，写到一半被杀掉也不会损坏原来的文件
+     * 临时文件的名字每次都不一样，同一个目录的多个缓存同时写也不会写到同一个文件里
+     */
+    private void write(){
+        SortedMap<Integer, byte[]> records = new TreeMap<>();
+        synchronized (this){
+            writeScheduled = false;
+            dirty = false;
+            //遍历entry不会改变使用顺序
+            for(Map.Entry<Integer, HanziGlyph> entry : glyphs.entrySet()){
+                int codePoint = entry.getKey();
+                HanziGlyph glyph = entry.getValue();
+                try{
+                    if(glyph == null && reader != null){
+                        glyph = reader.loadGlyph(codePoint);
+                    }
+                    if(glyph == null){
+                        continue;
+                    }
+                    records.put(codePoint, HanziBinaryFormat.encodeGlyph(glyph));
+                }catch (IOException e){
+                    //写到内存不会失败  只有读旧文件里损坏的记录会到这里，丢掉这个字
+                    Log.e(TAG, "write: 记录损坏 " + codePoint, e);
+                }
+            }
+        }
+
+        File tmp = null;
+        try{
+            tmp = File.createTempFile(FILE_NAME, ".tmp", file.getParentFile());
+            CRC32 checksum = new CRC32();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(new FileOutputStream(tmp), checksum)));
+            try{
+                HanziBinaryFormat.writeFile(out, records);
+                out.flush();
+                out.writeInt((int) checksum.getValue());
+                out.writeInt(TRAILER_MAGIC);
+            }finally {
+                out.close();
+            }
+            if(!tmp.renameTo(file)){
+                throw new IOException("rename failed: " + tmp);
+            }
+        }catch (IOException e){
+            Log.w(TAG, "write: 写缓存失败", e);
+            if(tmp != null){
+                tmp.delete();
+            }
+        }
+    }
+
+    private void closeReader(){
+        if(reader != null){
+            try {
+                reader.close();
+            } catch (IOException e) {
+                //只读的文件，关闭失败没有影响
+            }
+            reader = null;
+        }
+    }
+}
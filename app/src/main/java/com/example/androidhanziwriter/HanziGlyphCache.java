@@ -0,0 +1,227 @@
+package com.example.androidhanziwriter;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.util.LruCache;
+
+import com.example.hanzicore.HanziGlyph;
+import com.example.hanzicore.HanziMetrics;
+
+/**
+ * 进程内共享的汉字绘制数据缓存
+ *
+ * 按 (码点, 字形内容, 宽, 高) 缓存 {@link PreparedHanzi}，同一个字形同一个大小在所有view之间只准备一次
+ * 字形按内容比较（见 {@link HanziGlyph#equals}）：同一个字被淘汰之后重新读出来的新对象还能命中，
+ * 数据改过或者来自不同的数据就是不同的键，不会拿到别人的绘制数据
+ * 没有码点的字形（word为空）不缓存
+ * 同一个字不同大小的view各自用自己的数据，不会互相覆盖
+ * 按字节计算内存预算，超出时淘汰最久没用的；系统内存紧张时可以用onTrimMemory释放
+ *
+ * 线程安全
+ */
+public class HanziGlyphCache {
+    private static HanziGlyphCache instance;
+
+    private final LruCache<Key, PreparedHanzi> cache;
+    private ComponentCallbacks2 trimCallbacks;
+
+    /**
+     * 默认的缓存  预算是最大堆内存的1/32
+     * @return
+     */
+    public static synchronized HanziGlyphCache getInstance(){
+        if(instance == null){
+            instance = new HanziGlyphCache((int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 32));
+        }
+        return instance;
+    }
+
+    /**
+     * @param maxBytes 内存预算 字节
+     */
+    public HanziGlyphCache(int maxBytes) {
+        cache = new LruCache<Key, PreparedHanzi>(maxBytes){
+            @Override
+            protected int sizeOf(Key key, PreparedHanzi value) {
+                return value.getByteSize();
+            }
+        };
+    }
+
+    /**
+     * 取一个字在某个宽高下的绘制数据  没有就准备一份放进缓存
+     * 准备的时候不加锁，两个线程同时准备同一份时后放进去的会替换先放进去的，结果是一样的
+     * @param glyph
+     * @param width
+     * @param height
+     * @return
+     */
+    public PreparedHanzi get(HanziGlyph glyph, int width, int height){
+        return get(glyph, width, height, null);
+    }
+
+    /**
+     * 同 {@link #get(HanziGlyph, int, int)}  只查一次缓存，没有命中时把准备的耗时记到LAYOUT
+     * @param metrics 可以为null
+     */
+    public PreparedHanzi get(HanziGlyph glyph, int width, int height, HanziMetrics metrics){
+        Key key = null;
+        if(glyph.getCodePoint() != 0){
+            key = new Key(glyph, width, height);
+            PreparedHanzi prepared = cache.get(key);
+            if(prepared != null){
+                return prepared;
+            }
+        }
+
+        long start = System.nanoTime();
+        PreparedHanzi prepared = new PreparedHanzi(glyph, width, height);
+        if(metrics != null){
+            metrics.recordSince(HanziMetrics.Metric.LAYOUT, start);
+        }
+        if(key != null){
+            prepared.setCache(this);
+            cache.put(key, prepared);
+        }
+        return prepared;
+    }
+
+    /**
+     * 去掉一个字形所有大小的数据  字形的数据变了之后调用
+     * 内容一样的字形共用数据，也会一起去掉
+     * @param glyph
+     */
+    public void evict(HanziGlyph glyph){
+        for(Key key : cache.snapshot().keySet()){
+            if(key.codePoint == glyph.getCodePoint() && key.glyph.equals(glyph)){
+                cache.remove(key);
+            }
+        }
+    }
+
+    public void evictAll(){
+        cache.evictAll();
+    }
+
+    /**
+     * 绘制数据后来又生成了简化的外框，占用变大了  重新放一次，按新的大小计算预算
+     * 已经被淘汰的不再放回去
+     * @param prepared
+     */
+    void onSizeChanged(PreparedHanzi prepared){
+        Key key = new Key(prepared.getGlyph(), prepared.getWidth(), prepared.getHeight());
+        synchronized (this){
+            if(cache.get(key) == prepared){
+                cache.put(key, prepared);
+            }
+        }
+    }
+
+    /**
+     * 按系统的内存等级释放缓存
+     * 在后台或者内存很紧张的时候全部释放，界面隐藏或者内存偏低的时候释放一半
+     * @param level ComponentCallbacks2.TRIM_MEMORY_XXX
+     */
+    public void onTrimMemory(int level){
+        if(level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL){
+            cache.evictAll();
+        }else if(level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW){
+            cache.trimToSize(cache.size() / 2);
+        }
+    }
+
+    /**
+     * 注册到application，系统回调onTrimMemory时自动释放
+     * 重复调用只注册一次
+     * @param context
+     */
+    public synchronized void registerTrimCallbacks(Context context){
+        if(trimCallbacks != null){
+            return;
+        }
+        trimCallbacks = new ComponentCallbacks2() {
+            @Override
+            public void onTrimMemory(int level) {
+                HanziGlyphCache.this.onTrimMemory(level);
+            }
+
+            @Override
+            public void onConfigurationChanged(Configuration newConfig) {
+
+            }
+
+            @Override
+            public void onLowMemory() {
+                cache.evictAll();
+            }
+        };
+        context.getApplicationContext().registerComponentCallbacks(trimCallbacks);
+    }
+
+    /**
+     * 已经用了多少字节
+     */
+    public int getSize(){
+        return cache.size();
+    }
+
+    public int getMaxSize(){
+        return cache.maxSize();
+    }
+
+    public int getHitCount(){
+        return cache.hitCount();
+    }
+
+    public int getMissCount(){
+        return cache.missCount();
+    }
+
+    public int getEvictionCount(){
+        return cache.evictionCount();
+    }
+
+    @Override
+    public String toString() {
+        return "HanziGlyphCache{size=" + getSize() + "/" + getMaxSize()
+                + ", hit=" + getHitCount()
+                + ", miss=" + getMissCount()
+                + ", eviction=" + getEvictionCount() + "}";
+    }
+
+    /**
+     * 缓存的键  码点和大小先比，都一样再比字形的内容
+     * 字形的哈希算过一次就记住了，同一个对象反复查不会重新计算
+     */
+    private static final class Key {
+        final int codePoint;
+        final HanziGlyph glyph;
+        final int width, height;
+
+        Key(HanziGlyph glyph, int width, int height) {
+            this.codePoint = glyph.getCodePoint();
+            this.glyph = glyph;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(!(o instanceof Key)){
+                return false;
+            }
+            Key other = (Key) o;
+            return codePoint == other.codePoint && width == other.width && height == other.height
+                    && glyph.equals(other.glyph);
+        }
+
+        @Override
+        public int hashCode() {
+            return ((codePoint * 31 + width) * 31 + height) * 31 + glyph.hashCode();
+        }
+    }
+}
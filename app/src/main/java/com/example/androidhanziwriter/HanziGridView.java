@@ -0,0 +1,604 @@
+package com.example.androidhanziwriter;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.util.AttributeSet;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.OverScroller;
+
+import androidx.annotation.Nullable;
+
+import com.example.hanzicore.MedianStroke;
+import com.example.hanzicore.StrokeTimeline;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 在一个view里显示很多汉字  练习本、生字表
+ *
+ * 不给每个字创建view，只画当前能看到的格子，每个字的path都从 {@link HanziGlyphCache} 取，同样大小的字共用一份
+ * 所有格子的笔画动画都由同一个Choreographer回调驱动，每帧只重绘一次
+ * 点一个格子可以把这个字交给 {@link HanziWriterView} 进入写字模式
+ *
+ * 汉字通过 {@link HanziRepository} 在后台准备，只请求看得到的格子，再预先准备下一屏
+ * 只能在主线程使用
+ */
+public class HanziGridView extends View implements Choreographer.FrameCallback {
+    private static final String TAG = "HanziGridView";
+
+    private static final byte CELL_EMPTY = 0;
+    private static final byte CELL_LOADING = 1;
+    private static final byte CELL_READY = 2;
+    private static final byte CELL_FAILED = 3;
+
+    private CharSequence characters = "";
+    private HanziBean[] beans = new HanziBean[0];
+    private byte[] cellStates = new byte[0];
+    private HanziRepository repository;
+    //上次预先准备的范围  没变就不再通知仓库
+    private int prefetchFrom = -1;
+    private int prefetchCount;
+    private int prefetchSize;
+
+    private int columnCount = 4;
+    private int cellSize;           //格子的边长
+    private int cellPadding = 8;    //字和格子边缘的距离
+    private int glyphSize;          //字的大小  格子的边长减去两边的间距
+
+    private Paint outlinePaint;     //字的轮廓
+    private Paint animPaint;        //动画的笔
+    private Paint gridPaint;        //格子的线
+    private int normalColor = Color.BLACK;
+    private int backgroundColor = Color.LTGRAY;//播放动画时还没写的笔画
+    private int animColor = Color.GREEN;
+
+    //正在播放的动画  所有格子共用一个帧回调
+    private final List<CellAnimation> animations = new ArrayList<>();
+    private boolean frameScheduled;
+    private final Path animPath = new Path();
+    private final AndroidPathSink animPathSink = new AndroidPathSink(animPath);
+
+    private GestureDetector gestureDetector;
+    private OverScroller scroller;
+
+    private HanziWriterView writerView;
+    private OnCellClickListener onCellClickListener;
+
+    public HanziGridView(Context context) {
+        super(context);
+        init(context);
+    }
+
+    public HanziGridView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        init(context);
+    }
+
+    public HanziGridView(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        init(context);
+    }
+
+    private void init(Context context){
+        outlinePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        outlinePaint.setStyle(Paint.Style.FILL);
+
+        animPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        animPaint.setColor(animColor);
+        animPaint.setStyle(Paint.Style.STROKE);
+        animPaint.setStrokeCap(Paint.Cap.ROUND);
+
+        gridPaint = new Paint();
+        gridPaint.setColor(Color.LTGRAY);
+        gridPaint.setStyle(Paint.Style.STROKE);
+
+        scroller = new OverScroller(context);
+        gestureDetector = new GestureDetector(context, gestureListener);
+    }
+
+    /*************************************************开放接口 START************************************/
+
+    /**
+     * 准备汉字用的仓库  在设置汉字之前设置
+     * @param repository
+     */
+    public void setRepository(HanziRepository repository) {
+        this.repository = repository;
+        resetCells();
+    }
+
+    /**
+     * 设置要显示的字  一个字一个格子
+     * @param characters
+     */
+    public void setCharacters(CharSequence characters) {
+        this.characters = characters == null ? "" : characters;
+        stopAnimations();
+        scrollTo(0, 0);
+        resetCells();
+    }
+
+    public CharSequence getCharacters() {
+        return characters;
+    }
+
+    /**
+     * 每行几个格子
+     * @param columnCount
+     */
+    public void setColumnCount(int columnCount) {
+        if(columnCount <= 0){
+            throw new IllegalArgumentException("column count must be positive: " + columnCount);
+        }
+        this.columnCount = columnCount;
+        updateCellSize();
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    /**
+     * 字和格子边缘的距离 像素
+     * @param cellPadding
+     */
+    public void setCellPadding(int cellPadding) {
+        this.cellPadding = cellPadding;
+        updateCellSize();
+    }
+
+    public void setNormalColor(int normalColor) {
+        this.normalColor = normalColor;
+        invalidate();
+    }
+
+    @Override
+    public void setBackgroundColor(int backgroundColor) {
+        this.backgroundColor = backgroundColor;
+        invalidate();
+    }
+
+    public void setAnimColor(int animColor) {
+        this.animColor = animColor;
+        animPaint.setColor(animColor);
+        invalidate();
+    }
+
+    /**
+     * 点格子的时候把这个字交给这个view，进入写字模式
+     * @param writerView 可以为null
+     */
+    public void setWriterView(HanziWriterView writerView) {
+        this.writerView = writerView;
+    }
+
+    public void setOnCellClickListener(OnCellClickListener onCellClickListener) {
+        this.onCellClickListener = onCellClickListener;
+    }
+
+    /**
+     * 播放一个格子的笔画动画  字还没准备好就不播放
+     * @param index
+     */
+    public void animateCell(int index){
+        if(index < 0 || index >= beans.length || cellStates[index] != CELL_READY){
+            return;
+        }
+        PreparedHanzi hanzi = prepareCell(index);
+        if(hanzi == null){
+            return;
+        }
+
+        CellAnimation animation = findAnimation(index);
+        if(animation == null){
+            animation = new CellAnimation();
+            animation.index = index;
+            animations.add(animation);
+        }
+        animation.hanzi = hanzi;
+        animation.timeline = new StrokeTimeline(hanzi.getMedianStrokes());
+        animation.startTime = 0;
+        animation.position = 0;
+        scheduleFrame();
+    }
+
+    /**
+     * 播放所有看得到的格子的动画
+     */
+    public void animateVisible(){
+        int first = getFirstVisibleCell();
+        int last = getLastVisibleCell();
+        for(int i = first ; i <= last ; i ++){
+            animateCell(i);
+        }
+    }
+
+    /**
+     * 停止所有动画
+     */
+    public void stopAnimations(){
+        animations.clear();
+        if(frameScheduled){
+            frameScheduled = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+        invalidate();
+    }
+
+    /**
+     * 正在播放的动画数
+     * @return
+     */
+    public int getAnimationCount(){
+        return animations.size();
+    }
+
+    /**
+     * 坐标在哪个格子里  包括滚动的距离
+     * @param x view坐标
+     * @param y view坐标
+     * @return 没有格子返回-1
+     */
+    public int getCellAt(float x, float y){
+        if(cellSize <= 0 || x < 0 || x >= cellSize * columnCount){
+            return -1;
+        }
+        int column = (int) (x / cellSize);
+        int row = (int) ((y + getScrollY()) / cellSize);
+        int index = row * columnCount + column;
+        return index >= 0 && index < characters.length() ? index : -1;
+    }
+
+    /*************************************************开放接口 END************************************/
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = getDefaultSize(0, widthMeasureSpec);
+        int height = getDefaultSize(0, heightMeasureSpec);
+        if(MeasureSpec.getMode(heightMeasureSpec) != MeasureSpec.EXACTLY && width > 0){
+            //高度不固定的时候按内容的高度  放在ScrollView里也能用
+            int content = getRowCount() * (width / columnCount);
+            height = MeasureSpec.getMode(heightMeasureSpec) == MeasureSpec.AT_MOST
+                    ? Math.min(content, MeasureSpec.getSize(heightMeasureSpec)) : content;
+        }
+        setMeasuredDimension(width, height);
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        updateCellSize();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        stopAnimations();
+        scroller.forceFinished(true);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if(cellSize <= 0 || glyphSize <= 0){
+            return;
+        }
+
+        int first = getFirstVisibleCell();
+        int last = getLastVisibleCell();
+        requestCells(first, last);
+
+        for(int i = first ; i <= last ; i ++){
+            float left = (i % columnCount) * cellSize;
+            float top = (i / columnCount) * cellSize;
+            canvas.drawRect(left, top, left + cellSize, top + cellSize, gridPaint);
+
+            PreparedHanzi hanzi = cellStates[i] == CELL_READY ? prepareCell(i) : null;
+            if(hanzi == null){
+                continue;
+            }
+
+            int save = canvas.save();
+            canvas.translate(left + cellPadding, top + cellPadding);
+            CellAnimation animation = findAnimation(i);
+            if(animation == null || animation.hanzi != hanzi){
+                drawOutlines(canvas, hanzi, hanzi.getStrokeCount(), normalColor);
+            }else{
+                drawAnimation(canvas, hanzi, animation);
+            }
+            canvas.restoreToCount(save);
+        }
+    }
+
+    /**
+     * 画轮廓  前count个笔画用color，后面的用背景色
+     */
+    private void drawOutlines(Canvas canvas, PreparedHanzi hanzi, int count, int color){
+        List<Path> outlines = hanzi.getStrokePaths();
+        for(int i = 0 ; i < outlines.size() ; i ++){
+            outlinePaint.setColor(i < count ? color : backgroundColor);
+            canvas.drawPath(outlines.get(i), outlinePaint);
+        }
+    }
+
+    /**
+     * 画一个格子的动画  已经写完的笔画、正在写的笔画截取到当前的进度
+     */
+    private void drawAnimation(Canvas canvas, PreparedHanzi hanzi, CellAnimation animation){
+        long time = animation.position;
+        int index = animation.timeline.getStrokeIndexAt(time);
+        drawOutlines(canvas, hanzi, Math.max(index, 0), animColor);
+        if(index < 0 || index >= hanzi.getStrokeCount()){
+            return;
+        }
+
+        MedianStroke median = hanzi.getMedianStrokes().get(index);
+        animPath.rewind();
+        median.extract(median.getLength() * animation.timeline.getStrokeProgressAt(index, time), animPathSink);
+        int save = canvas.save();
+        canvas.clipPath(hanzi.getStrokePaths().get(index));
+        canvas.drawPath(animPath, animPaint);
+        canvas.restoreToCount(save);
+    }
+
+    /**
+     * 所有格子的动画共用的帧回调
+     */
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        frameScheduled = false;
+        boolean visibleChanged = false;
+        int first = getFirstVisibleCell();
+        int last = getLastVisibleCell();
+
+        for(int i = animations.size() - 1 ; i >= 0 ; i --){
+            CellAnimation animation = animations.get(i);
+            if(animation.startTime == 0){
+                animation.startTime = frameTimeNanos;
+            }
+            animation.position = (frameTimeNanos - animation.startTime) / 1000000;
+            if(animation.index >= first && animation.index <= last){
+                visibleChanged = true;
+            }
+            if(animation.position >= animation.timeline.getTotalDuration()){
+                animations.remove(i);
+            }
+        }
+
+        if(visibleChanged){
+            invalidate();
+        }
+        if(!animations.isEmpty()){
+            scheduleFrame();
+        }
+    }
+
+    private void scheduleFrame(){
+        if(frameScheduled){
+            return;
+        }
+        frameScheduled = true;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    private CellAnimation findAnimation(int index){
+        for(int i = 0 ; i < animations.size() ; i ++){
+            if(animations.get(i).index == index){
+                return animations.get(i);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        return gestureDetector.onTouchEvent(event) || super.onTouchEvent(event);
+    }
+
+    @Override
+    public void computeScroll() {
+        if(scroller.computeScrollOffset()){
+            scrollTo(0, clampScroll(scroller.getCurrY()));
+            postInvalidateOnAnimation();
+        }
+    }
+
+    @Override
+    protected int computeVerticalScrollRange() {
+        return getRowCount() * cellSize;
+    }
+
+    private final GestureDetector.SimpleOnGestureListener gestureListener = new GestureDetector.SimpleOnGestureListener(){
+        @Override
+        public boolean onDown(MotionEvent e) {
+            scroller.forceFinished(true);
+            return true;
+        }
+
+        @Override
+        public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
+            scrollTo(0, clampScroll(getScrollY() + (int) distanceY));
+            return true;
+        }
+
+        @Override
+        public boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
+            scroller.fling(0, getScrollY(), 0, (int) -velocityY, 0, 0, 0, getMaxScroll());
+            postInvalidateOnAnimation();
+            return true;
+        }
+
+        @Override
+        public boolean onSingleTapUp(MotionEvent e) {
+            int index = getCellAt(e.getX(), e.getY());
+            if(index < 0){
+                return false;
+            }
+            onCellClick(index);
+            return true;
+        }
+    };
+
+    /**
+     * 点了一个格子  交给写字的view
+     */
+    private void onCellClick(int index){
+        HanziBean bean = cellStates[index] == CELL_READY ? beans[index] : null;
+        if(bean != null && writerView != null){
+            writerView.setHanziBean(bean);
+            writerView.writerHanzi();
+        }
+        if(onCellClickListener != null){
+            onCellClickListener.onCellClick(index, characters.charAt(index), bean);
+        }
+        performClick();
+    }
+
+    /**
+     * 请求看得到的格子  再预先准备下一屏
+     */
+    private void requestCells(int first, int last){
+        if(repository == null){
+            return;
+        }
+        for(int i = first ; i <= last ; i ++){
+            if(cellStates[i] != CELL_EMPTY){
+                continue;
+            }
+            cellStates[i] = CELL_LOADING;
+            final int index = i;
+            final int size = glyphSize;
+            repository.prepare(characters.charAt(i), glyphSize, glyphSize, new HanziRepository.Callback() {
+                @Override
+                public void onReady(char word, HanziBean bean) {
+                    if(index >= beans.length || size != glyphSize || characters.charAt(index) != word){
+                        //格子已经变了
+                        return;
+                    }
+                    beans[index] = bean;
+                    cellStates[index] = bean != null ? CELL_READY : CELL_FAILED;
+                    invalidateCell(index);
+                }
+
+                @Override
+                public void onError(char word, Exception e) {
+                    Log.e(TAG, "prepare " + word + " failed", e);
+                    if(index < beans.length && size == glyphSize && characters.charAt(index) == word){
+                        cellStates[index] = CELL_FAILED;
+                        invalidateCell(index);
+                    }
+                }
+            });
+        }
+        //每帧都会走到这里  看得到的范围变了才重新预先准备，滚动的时候也不会每帧分配
+        int count = last - first + 1;
+        if(prefetchFrom != last + 1 || prefetchCount != count || prefetchSize != glyphSize){
+            prefetchFrom = last + 1;
+            prefetchCount = count;
+            prefetchSize = glyphSize;
+            repository.prefetch(characters, prefetchFrom, prefetchCount, glyphSize, glyphSize);
+        }
+    }
+
+    /**
+     * 取一个格子的绘制数据  同一个字同一个大小所有格子、所有view共用
+     */
+    private PreparedHanzi prepareCell(int index){
+        try{
+            return beans[index].prepare(glyphSize, glyphSize);
+        }catch (Exception e){
+            Log.e(TAG, "prepareCell: 汉字数据有误 " + characters.charAt(index), e);
+            cellStates[index] = CELL_FAILED;
+            return null;
+        }
+    }
+
+    private void invalidateCell(int index){
+        int left = (index % columnCount) * cellSize;
+        int top = (index / columnCount) * cellSize;
+        invalidate(left, top, left + cellSize, top + cellSize);
+    }
+
+    private void updateCellSize(){
+        int size = getWidth() / columnCount;
+        int glyph = size - cellPadding * 2;
+        if(size == cellSize && glyph == glyphSize){
+            return;
+        }
+        cellSize = size;
+        glyphSize = glyph;
+        animPaint.setStrokeWidth(Math.max(1, glyphSize / 8f));
+        stopAnimations();
+        resetCells();
+        scrollTo(0, clampScroll(getScrollY()));
+        requestLayout();
+    }
+
+    /**
+     * 字或者大小变了  所有格子重新准备
+     */
+    private void resetCells(){
+        beans = new HanziBean[characters.length()];
+        cellStates = new byte[characters.length()];
+        prefetchFrom = -1;
+        invalidate();
+    }
+
+    private int getRowCount(){
+        return (characters.length() + columnCount - 1) / columnCount;
+    }
+
+    private int getMaxScroll(){
+        return Math.max(0, getRowCount() * cellSize - getHeight());
+    }
+
+    private int clampScroll(int scrollY){
+        return Math.max(0, Math.min(scrollY, getMaxScroll()));
+    }
+
+    private int getFirstVisibleCell(){
+        if(cellSize <= 0){
+            return 0;
+        }
+        return Math.max(0, getScrollY() / cellSize) * columnCount;
+    }
+
+    /**
+     * @return 没有格子的时候比getFirstVisibleCell小
+     */
+    private int getLastVisibleCell(){
+        if(cellSize <= 0){
+            return -1;
+        }
+        int lastRow = (getScrollY() + getHeight() - 1) / cellSize;
+        return Math.min(characters.length() - 1, (lastRow + 1) * columnCount - 1);
+    }
+
+    /**
+     * 一个格子的动画  时间都来自同一个帧回调
+     */
+    private static class CellAnimation {
+        int index;
+        PreparedHanzi hanzi;
+        StrokeTimeline timeline;
+        long startTime;     //第一帧的时间 纳秒  0表示还没开始
+        long position;      //播放到的时间 毫秒
+    }
+
+    public interface OnCellClickListener{
+        /**
+         * @param index 第几个格子
+         * @param word
+         * @param bean 还没准备好是null
+         */
+        void onCellClick(int index, char word, HanziBean bean);
+    }
+}
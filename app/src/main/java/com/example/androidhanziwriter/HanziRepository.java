@@ -0,0 +1,353 @@
+package com.example.androidhanziwriter;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import com.example.hanzicore.HanziGlyph;
+import com.example.hanzicore.HanziGlyphSource;
+import com.example.hanzicore.HanziMetrics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 在后台线程准备汉字
+ *
+ * 读取、解析和按宽高生成path都在有限个后台线程里做，做好之后在主线程回调，view拿到就能直接画
+ * 同一个字同一个大小同时只会准备一次，后来的请求等同一个结果
+ * 可以预先准备课程里后面的几个字，切换的时候直接拿到准备好的结果
+ *
+ * 除了构造方法，所有方法都只能在主线程调用
+ */
+public class HanziRepository {
+    private static final int MAX_PREPARED = 16;//准备好的汉字最多保留几个
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private final HanziGlyphSource dataSource;
+    private final ThreadPoolExecutor executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final Map<String, PrepareTask> inFlight = new HashMap<>();//正在准备的
+    private final List<PrepareTask> prefetchTasks = new ArrayList<>();//预先准备的
+    private final LinkedHashMap<String, HanziBean> prepared =
+            new LinkedHashMap<String, HanziBean>(MAX_PREPARED, 0.75f, true){
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, HanziBean> eldest) {
+                    return size() > MAX_PREPARED;
+                }
+            };
+    private boolean shutdown;
+    private volatile HanziDiskCache diskCache;
+    private volatile HanziMetrics metrics;
+
+    public HanziRepository(HanziGlyphSource dataSource) {
+        this(dataSource, Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() - 1)));
+    }
+
+    /**
+     * @param dataSource 汉字数据
+     * @param threadCount 后台线程数
+     */
+    public HanziRepository(HanziGlyphSource dataSource, int threadCount) {
+        this.dataSource = dataSource;
+        //主动请求的排在预先准备的前面
+        executor = new ThreadPoolExecutor(threadCount, threadCount,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<Runnable>(),
+                new PrepareThreadFactory());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 设置磁盘缓存  缓存里有的字直接读取解析好的字形，不再从数据来源解析
+     * 从数据来源读出来的字会放进缓存
+     * @param diskCache 可以为null
+     */
+    public void setDiskCache(HanziDiskCache diskCache) {
+        this.diskCache = diskCache;
+    }
+
+    /**
+     * 记录读取和准备汉字的耗时  准备出来的HanziBean也会用这个对象记录
+     * @param metrics 可以为null
+     */
+    public void setMetrics(HanziMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * 准备一个汉字
+     * 已经准备好的会直接回调，否则在后台准备，好了之后在主线程回调
+     * 正在排队预先准备的同一个字会提到主动请求的优先级
+     *
+     * 拿到的HanziBean已经按宽高准备好（{@link HanziBean#prepare} 直接命中缓存），同一个字同一个大小的请求拿到的是同一个对象，
+     * 请当作只读的：不要调用setter，要改数据请自己构造一个新的HanziBean
+     * @param word
+     * @param width view的宽
+     * @param height view的高
+     * @param callback 可以为null
+     * @return 取消的话同一个字同一个大小的其它请求也收不到回调
+     */
+    public Future<HanziBean> prepare(char word, int width, int height, Callback callback){
+        String key = key(word, width, height);
+
+        final HanziBean bean = prepared.get(key);
+        if(bean != null){
+            FutureTask<HanziBean> done = new FutureTask<>(new Callable<HanziBean>() {
+                @Override
+                public HanziBean call() {
+                    return bean;
+                }
+            });
+            done.run();
+            if(callback != null){
+                callback.onReady(word, bean);
+            }
+            return done;
+        }
+
+        PrepareTask task = inFlight.get(key);
+        if(task != null && task.prefetch){
+            //已经在预先准备了  不会再被取消
+            task.prefetch = false;
+            prefetchTasks.remove(task);
+            if(executor.remove(task)){
+                //还在排队  排在所有预先准备的后面，换成主动请求重新排
+                inFlight.remove(key);
+                task = null;
+            }
+        }
+        if(task == null){
+            task = new PrepareTask(key, word, width, height, false);
+            inFlight.put(key, task);
+            executor.execute(task);
+        }
+        if(callback != null){
+            task.callbacks.add(callback);
+        }
+        return task;
+    }
+
+    /**
+     * 预先准备课程里接下来的几个字
+     * 之前预先准备、但已经不在这个范围里的字如果还没准备好就取消
+     * @param lesson 课程里所有的字
+     * @param from 从第几个字开始
+     * @param count 准备几个
+     * @param width
+     * @param height
+     */
+    public void prefetch(CharSequence lesson, int from, int count, int width, int height){
+        int end = Math.min(lesson.length(), from + count);
+        List<String> keys = new ArrayList<>();
+        for(int i = Math.max(0, from) ; i < end ; i ++){
+            keys.add(key(lesson.charAt(i), width, height));
+        }
+
+        Iterator<PrepareTask> iterator = prefetchTasks.iterator();
+        while (iterator.hasNext()){
+            PrepareTask task = iterator.next();
+            if(!keys.contains(task.key)){
+                task.cancel(false);
+                inFlight.remove(task.key);
+                iterator.remove();
+            }
+        }
+
+        for(int i = Math.max(0, from) ; i < end ; i ++){
+            String key = keys.get(i - Math.max(0, from));
+            if(prepared.containsKey(key) || inFlight.containsKey(key)){
+                continue;
+            }
+            PrepareTask task = new PrepareTask(key, lesson.charAt(i), width, height, true);
+            inFlight.put(key, task);
+            prefetchTasks.add(task);
+            executor.execute(task);
+        }
+    }
+
+    /**
+     * 已经准备好的汉字
+     * @return 还没准备好返回null
+     */
+    public HanziBean getPrepared(char word, int width, int height){
+        return prepared.get(key(word, width, height));
+    }
+
+    /**
+     * 停止所有后台任务  之后不会再有回调
+     * 不会关闭数据来源和磁盘缓存
+     */
+    public void shutdown(){
+        shutdown = true;
+        executor.shutdownNow();
+        inFlight.clear();
+        prefetchTasks.clear();
+        prepared.clear();
+    }
+
+    private static String key(char word, int width, int height){
+        return word + ":" + width + "x" + height;
+    }
+
+    /**
+     * 读取一个字  记录耗时
+     */
+    private HanziBean load(char word) throws Exception {
+        HanziMetrics metrics = this.metrics;
+        long start = System.nanoTime();
+        HanziBean bean = loadGlyph(word);
+        if(metrics != null && bean != null){
+            metrics.recordSince(HanziMetrics.Metric.GLYPH_LOAD, start);
+            bean.setMetrics(metrics);
+        }
+        return bean;
+    }
+
+    /**
+     * 先查磁盘缓存，没有再从数据来源读取  在后台线程运行
+     */
+    private HanziBean loadGlyph(char word) throws Exception {
+        HanziDiskCache cache = diskCache;
+        if(cache != null){
+            HanziGlyph glyph = cache.get(word);
+            if(glyph != null){
+                return HanziBean.fromGlyph(glyph);
+            }
+        }
+
+        HanziGlyph glyph = dataSource.loadGlyph(word);
+        if(glyph == null){
+            return null;
+        }
+        if(cache != null){
+            cache.put(glyph);
+        }
+        return HanziBean.fromGlyph(glyph);
+    }
+
+    /**
+     * 后台准备好了  在主线程处理结果
+     */
+    private void onTaskDone(PrepareTask task){
+        if(inFlight.get(task.key) == task){
+            inFlight.remove(task.key);
+        }
+        prefetchTasks.remove(task);
+        if(shutdown || task.isCancelled()){
+            return;
+        }
+
+        HanziBean bean;
+        try {
+            bean = task.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            Exception error = cause instanceof Exception ? (Exception) cause : e;
+            for(Callback callback : task.callbacks){
+                callback.onError(task.word, error);
+            }
+            return;
+        } catch (InterruptedException e) {
+            return;
+        }
+
+        if(bean != null){
+            prepared.put(task.key, bean);
+        }
+        for(Callback callback : task.callbacks){
+            callback.onReady(task.word, bean);
+        }
+    }
+
+    /**
+     * 准备一个汉字的任务  在后台线程运行，结束后把结果交给主线程
+     */
+    private class PrepareTask extends FutureTask<HanziBean> implements Comparable<PrepareTask> {
+        final String key;
+        final char word;
+        final long order = sequence.getAndIncrement();
+        final boolean lowPriority;//排队的顺序  放进队列之后不能再改
+        final List<Callback> callbacks = new ArrayList<>();//只在主线程访问
+        boolean prefetch;//没有人等结果，可以取消  只在主线程访问
+
+        PrepareTask(String key, final char word, final int width, final int height, boolean prefetch) {
+            super(new Callable<HanziBean>() {
+                @Override
+                public HanziBean call() throws Exception {
+                    HanziBean bean = load(word);
+                    if(bean != null){
+                        bean.initHanzi(width, height);
+                    }
+                    return bean;
+                }
+            });
+            this.key = key;
+            this.word = word;
+            this.prefetch = prefetch;
+            this.lowPriority = prefetch;
+        }
+
+        @Override
+        protected void done() {
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    onTaskDone(PrepareTask.this);
+                }
+            });
+        }
+
+        @Override
+        public int compareTo(PrepareTask other) {
+            if(lowPriority != other.lowPriority){
+                return lowPriority ? 1 : -1;
+            }
+            return order < other.order ? -1 : (order == other.order ? 0 : 1);
+        }
+    }
+
+    private static class PrepareThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, "HanziRepository-" + count.incrementAndGet());
+        }
+    }
+
+    /**
+     * 准备好的回调  在主线程调用
+     */
+    public interface Callback{
+        /**
+         * @param word
+         * @param bean 已经按请求的宽高准备好  多个请求共用，只读  没有这个字是null
+         */
+        void onReady(char word, HanziBean bean);
+
+        void onError(char word, Exception e);
+    }
+}
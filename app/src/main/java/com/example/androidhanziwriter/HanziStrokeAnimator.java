@@ -0,0 +1,194 @@
+package com.example.androidhanziwriter;
+
+import android.view.Choreographer;
+
+import com.example.hanzicore.StrokeTimeline;
+
+/**
+ * 笔画动画的播放器
+ *
+ * 整个汉字只用一个Choreographer回调驱动一条 {@link StrokeTimeline}，不再给每一笔创建Animator
+ * 支持暂停、继续、跳到某个时间和调整速度，每帧只做时间换算，不分配内存
+ */
+public class HanziStrokeAnimator implements Choreographer.FrameCallback {
+    private Choreographer choreographer;
+    private StrokeTimeline timeline;
+    private Listener listener;
+
+    private double position;        //当前播放到的时间 毫秒
+    private float speed = 1;
+    private long lastFrameTime;     //上一帧的时间 纳秒  0表示还没有收到帧
+    private boolean running;
+    private int currentStroke = -1; //已经通知过开始的笔画
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 从头开始播放
+     * @param timeline
+     */
+    public void start(StrokeTimeline timeline){
+        cancel();
+        this.timeline = timeline;
+        position = 0;
+        currentStroke = -1;
+        resume();
+    }
+
+    /**
+     * 暂停  停在当前位置
+     */
+    public void pause(){
+        if(!running){
+            return;
+        }
+        running = false;
+        getChoreographer().removeFrameCallback(this);
+    }
+
+    /**
+     * 从暂停的位置继续播放
+     */
+    public void resume(){
+        if(running || timeline == null || position >= timeline.getTotalDuration()){
+            return;
+        }
+        running = true;
+        lastFrameTime = 0;
+        getChoreographer().postFrameCallback(this);
+    }
+
+    /**
+     * 停止并丢掉时间轴
+     */
+    public void cancel(){
+        pause();
+        timeline = null;
+        currentStroke = -1;
+    }
+
+    /**
+     * 跳到某个时间  暂停的时候也会马上回调当前的画面
+     * @param time 毫秒
+     */
+    public void seek(long time){
+        if(timeline == null){
+            return;
+        }
+        position = Math.max(0, Math.min(time, timeline.getTotalDuration()));
+        lastFrameTime = 0;
+        dispatchFrame();
+    }
+
+    /**
+     * 播放速度  1是正常速度
+     * @param speed
+     */
+    public void setSpeed(float speed) {
+        if(speed <= 0){
+            throw new IllegalArgumentException("speed must be positive: " + speed);
+        }
+        this.speed = speed;
+    }
+
+    public float getSpeed() {
+        return speed;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 当前播放到的时间 毫秒
+     * @return
+     */
+    public long getPosition(){
+        return (long) position;
+    }
+
+    public StrokeTimeline getTimeline() {
+        return timeline;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if(!running){
+            return;
+        }
+
+        if(lastFrameTime != 0){
+            position += (frameTimeNanos - lastFrameTime) / 1000000.0 * speed;
+        }
+        lastFrameTime = frameTimeNanos;
+
+        long total = timeline.getTotalDuration();
+        if(position >= total){
+            position = total;
+            running = false;
+            dispatchFrame();
+            if(listener != null){
+                listener.onEnd();
+            }
+            return;
+        }
+
+        dispatchFrame();
+        getChoreographer().postFrameCallback(this);
+    }
+
+    /**
+     * 把当前时间换算成第几笔和进度  交给监听
+     */
+    private void dispatchFrame(){
+        long time = (long) position;
+        int index = timeline.getStrokeIndexAt(time);
+        if(index > currentStroke){
+            //一帧跨过了几笔也要逐笔通知
+            while (currentStroke < index){
+                currentStroke ++;
+                if(listener != null){
+                    listener.onStrokeStart(currentStroke);
+                }
+            }
+        }else if(index < currentStroke){
+            //往回跳
+            currentStroke = index;
+            if(index >= 0 && listener != null){
+                listener.onStrokeStart(index);
+            }
+        }
+
+        if(listener != null){
+            listener.onFrame(index, index < 0 ? 0 : timeline.getStrokeProgressAt(index, time));
+        }
+    }
+
+    private Choreographer getChoreographer(){
+        if(choreographer == null){
+            choreographer = Choreographer.getInstance();
+        }
+        return choreographer;
+    }
+
+    public interface Listener{
+        /**
+         * 开始画第几笔
+         */
+        void onStrokeStart(int index);
+
+        /**
+         * 每帧回调
+         * @param index 正在画的笔画  还没开始是-1
+         * @param progress 这一笔画了多少  0到1
+         */
+        void onFrame(int index, float progress);
+
+        /**
+         * 播放完了
+         */
+        void onEnd();
+    }
+}
@@ -1,43 +1,145 @@
 package com.example.androidhanziwriter;
 
-import android.animation.Animator;
-import android.animation.AnimatorSet;
-import android.animation.ValueAnimator;
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Path;
-import android.graphics.PathMeasure;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.view.Choreographer;
 import android.view.MotionEvent;
 import android.view.View;
 
 import androidx.annotation.Nullable;
 
+import com.example.hanzicore.AdaptiveQualityController;
+import com.example.hanzicore.GlyphTransform;
+import com.example.hanzicore.HanziMetrics;
+import com.example.hanzicore.HanziRecognizer;
+import com.example.hanzicore.MedianStroke;
+import com.example.hanzicore.StrokeJudge;
+import com.example.hanzicore.StrokeTimeline;
+import com.example.hanzicore.StrokeValidationPipeline;
+import com.example.hanzicore.TouchPredictor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 public class HanziWriterView extends View {
     private final int MODE_NORMAL = 0;
     private final int MODE_WRITER = 1;
     private final int MODE_ANIM = 2;
+    private final int MODE_FREE = 3;
     private int mode = MODE_NORMAL;
     private static final String TAG = "HanziWriterView";
 
+    /**
+     * 每帧用canvas.clipPath裁剪
+     */
+    public static final int CLIP_MODE_PATH = 0;
+    /**
+     * 每个笔画预先画成遮罩  内容先画进图层，最后用DST_IN把遮罩合成上去
+     */
+    public static final int CLIP_MODE_MASK = 1;
+
     private Paint mStrokePaint;  //汉字轮廓的笔
     private Paint mMedianPaint;  //汉字笔画的笔
     private HanziBean hanziBean;
+    private PreparedHanzi hanzi;            //按当前宽高准备好的绘制数据
     private int strokeIndex;                //写到第几笔/动画播放到第几画
-    private int maxPointIndex;
 
-    private Path userDrawPath = new Path(); //用户画的path
+    private InkRenderer inkRenderer;        //用户画的墨迹
     private Paint userPaint;                //用户的笔
+    private Paint inkBitmapPaint;           //画已经完成的墨迹图片的笔
     private int userPaintStrokeWidth = 60; //用户的笔的宽度
     private int userPaintJudgmentRange = 120; //用户的笔的判定范围
-    private boolean strokeOk;               //笔画对不对
-
-    private AnimatorSet writerAnim;
+    private StrokeJudge strokeJudge;        //当前笔画的判定
+    private float lastTouchX, lastTouchY;   //上一个采样点
+    private RectF strokeBounds = new RectF();//当前笔画的外框范围
+    private RectF dirtyRect = new RectF();  //新的墨迹需要重绘的范围
+    private Rect dirtyBounds = new Rect();
+    private boolean invalidateScheduled;    //这一帧是不是已经安排了重绘
+    private long pendingTouchTime;          //还没有重绘的第一个触摸事件的时间 纳秒
+
+    //预测的墨迹  只画不判定，下一个采样点来了就换掉
+    private TouchPredictor touchPredictor;  //null表示不预测
+    private float[] predictedPoint = new float[2];
+    private boolean hasPrediction;
+    private float predictedFromX, predictedFromY;   //预测的一段从哪个采样点开始
+    private Path predictedTailPath = new Path();    //墨迹的尾部加上预测的一段
+
+    private HanziMetrics metrics;           //性能数据  可以为null
+
+    //绘制来不及的时候降低质量
+    private AdaptiveQualityController qualityController = new AdaptiveQualityController();
+    private boolean adaptiveQuality;
+    private boolean frameCallbackPosted;
+    private boolean drawnSinceFrame;        //上一帧之后有没有画过  没画就是停下来了，间隔不算
+    private boolean layerRebuiltSinceFrame; //上一帧重画了缓存的图  那一帧的间隔不算
+    private long lastFrameTime;             //上一次帧回调的时间 纳秒  0表示还没有
+    //用真实的帧间隔判断卡不卡  开了硬件加速onDraw只是录制，耗时说明不了什么
+    private final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            frameCallbackPosted = false;
+            if(!adaptiveQuality || !drawnSinceFrame){
+                lastFrameTime = 0;
+                return;
+            }
+            if(lastFrameTime != 0 && !layerRebuiltSinceFrame){
+                //等级变了  下一帧按新的等级画
+                qualityController.recordInterval(frameTimeNanos - lastFrameTime);
+            }
+            lastFrameTime = frameTimeNanos;
+            drawnSinceFrame = false;
+            layerRebuiltSinceFrame = false;
+            postFrameCallback();
+        }
+    };
+
+    //自由书写
+    private HanziRecognizer recognizer;
+    private HanziRecognizer.Session recognizerSession;
+    private float[] freePoints = new float[256];    //正在写的这一笔 view坐标 x,y交替
+    private int freePointCount;
+    private List<float[]> freeStrokes = new ArrayList<>();   //写完的笔画  撤销时重画墨迹用
+    private int maxCandidates = 10;
+
+    //在单独的线程判定笔画
+    private boolean asyncValidation;
+    private StrokeValidationPipeline validationPipeline;    //没有打开或者不显示的时候为null
+    private PreparedHanzi pipelineHanzi;                    //判定线程现在判定的是哪个字
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    //缓存的静态内容  背景的轮廓、已经写完的笔画、当前笔画的中线
+    private Bitmap staticLayer;
+    private Canvas staticLayerCanvas;
+    private boolean staticLayerValid;
+    private PreparedHanzi layerHanzi;       //缓存的图是按哪个汉字、哪个模式、第几画画的
+    private int layerMode;
+    private int layerStrokeIndex;
+    private int layerQuality;
+
+    //笔画的裁剪方式
+    private int clipMode = CLIP_MODE_MASK;
+    private Bitmap[] strokeMasks;           //每个笔画的遮罩
+    private RectF[] strokeMaskBounds;       //每个笔画遮罩的位置
+    private PreparedHanzi maskHanzi;        //遮罩是按哪个汉字、多大画的
+    private Paint maskPaint;
+    private Paint maskCompositePaint;       //最后用DST_IN把遮罩合成上去
+
+    private HanziStrokeAnimator strokeAnimator;   //笔画动画
+    private AndroidPathSink animPathSink;
     private Path animPath = new Path();
     private Paint animPaint;
 
@@ -50,6 +152,8 @@ public class HanziWriterView extends View {
     private OnWriterEndListener onWriterEndListener;
     private OnStrokeWriterEndListener onStrokeWriterEndListener;
     private OnAnimStrokeWriterStartListener onAnimStrokeWriterStartListener;
+    private OnCandidatesListener onCandidatesListener;
+    private OnStrokeResultListener onStrokeResultListener;
 
     public HanziWriterView(Context context) {
         super(context);
@@ -78,13 +182,24 @@ public class HanziWriterView extends View {
         userPaint.setStrokeWidth(userPaintStrokeWidth);
         userPaint.setStyle(Paint.Style.STROKE);
         userPaint.setStrokeCap(Paint.Cap.ROUND);
+        userPaint.setColor(writerColor);
+        inkRenderer = new InkRenderer(userPaint);
+        inkBitmapPaint = new Paint();
+
+        maskPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        maskPaint.setStyle(Paint.Style.FILL);
+        maskCompositePaint = new Paint();
+        maskCompositePaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.DST_IN));
 
         animPaint = new Paint();
         animPaint.setColor(animColor);
         animPaint.setStrokeWidth(120);
         animPaint.setStyle(Paint.Style.STROKE);
         animPaint.setStrokeCap(Paint.Cap.ROUND);
+        animPathSink = new AndroidPathSink(animPath);
 
+        strokeAnimator = new HanziStrokeAnimator();
+        strokeAnimator.setListener(animListener);
     }
 
     /*************************************************开放接口 START************************************/
@@ -113,17 +228,35 @@ public class HanziWriterView extends View {
         this.onAnimStrokeWriterStartListener = onAnimStrokeWriterStartListener;
     }
 
+    /**
+     * 监听每一笔的判定结果  写对写错都会回调
+     * @param onStrokeResultListener
+     */
+    public void setOnStrokeResultListener(OnStrokeResultListener onStrokeResultListener) {
+        this.onStrokeResultListener = onStrokeResultListener;
+    }
+
+    /**
+     * 监听自由书写的候选字  每写完一笔、撤销或者清空之后回调
+     * @param onCandidatesListener
+     */
+    public void setOnCandidatesListener(OnCandidatesListener onCandidatesListener) {
+        this.onCandidatesListener = onCandidatesListener;
+    }
+
     /**
      * 设置默认状态下的颜色
      * @param normalColor
      */
     public void setNormalColor(int normalColor) {
         this.normalColor = normalColor;
+        invalidateStaticLayer();
     }
 
     @Override
     public void setBackgroundColor(int backgroundColor) {
         this.backgroundColor = backgroundColor;
+        invalidateStaticLayer();
     }
 
     /**
@@ -133,6 +266,7 @@ public class HanziWriterView extends View {
     public void setAnimColor(int animColor) {
         this.animColor = animColor;
         animPaint.setColor(animColor);
+        invalidateStaticLayer();
     }
 
     /**
@@ -141,6 +275,21 @@ public class HanziWriterView extends View {
      */
     public void setWriterColor(int writerColor) {
         this.writerColor = writerColor;
+        userPaint.setColor(writerColor);
+        invalidateStaticLayer();
+    }
+
+    /**
+     * 设置笔画的裁剪方式
+     * @param clipMode CLIP_MODE_PATH 或者 CLIP_MODE_MASK
+     */
+    public void setClipMode(int clipMode) {
+        this.clipMode = clipMode;
+        invalidate();
+    }
+
+    public int getClipMode() {
+        return clipMode;
     }
 
     /**
@@ -149,13 +298,69 @@ public class HanziWriterView extends View {
      */
     public void setHanziBean(HanziBean hanziBean) {
         this.hanziBean = hanziBean;
+        this.hanzi = null;
+        resetValidation();
+        if(hanziBean != null && metrics != null && hanziBean.getMetrics() == null){
+            hanziBean.setMetrics(metrics);
+        }
         invalidate();
     }
 
-    public void toNormal(){
-        if(writerAnim != null && writerAnim.isRunning()){
-            writerAnim.cancel();
+    /**
+     * 记录绘制、触摸延迟和判定的耗时  默认不记录
+     * 没有设置过的HanziBean也会用这个对象记录解析和准备的耗时
+     * @param metrics 可以为null
+     */
+    public void setMetrics(HanziMetrics metrics) {
+        this.metrics = metrics;
+        if(hanziBean != null && metrics != null && hanziBean.getMetrics() == null){
+            hanziBean.setMetrics(metrics);
+        }
+    }
+
+    public HanziMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 是否根据真实的帧间隔自动降低质量  默认关闭
+     * 连续绘制的时候用Choreographer记录每帧的时间，重画缓存图的那一帧不算
+     * 关闭后回到完整质量
+     * @param adaptiveQuality
+     */
+    public void setAdaptiveQuality(boolean adaptiveQuality) {
+        this.adaptiveQuality = adaptiveQuality;
+        if(!adaptiveQuality){
+            stopFrameCallback();
+            qualityController.reset();
+            invalidate();
         }
+    }
+
+    public boolean isAdaptiveQuality() {
+        return adaptiveQuality;
+    }
+
+    /**
+     * 当前的绘制质量  AdaptiveQualityController.LEVEL_XXX
+     * @return
+     */
+    public int getQualityLevel(){
+        return qualityController.getLevel();
+    }
+
+    /**
+     * 调整帧预算或者监听质量变化
+     * @return
+     */
+    public AdaptiveQualityController getQualityController() {
+        return qualityController;
+    }
+
+    public void toNormal(){
+        strokeAnimator.cancel();
+        inkRenderer.reset();
+        resetValidation();
 
         mode = MODE_NORMAL;
 
@@ -168,9 +373,10 @@ public class HanziWriterView extends View {
      * 开始写汉字模式
      */
     public void writerHanzi(){
-        if(writerAnim != null && writerAnim.isRunning()){
-            writerAnim.cancel();
-        }
+        strokeAnimator.cancel();
+        inkRenderer.reset();
+        //判定线程从第一笔重新开始，上一次还没送回来的结果不要了
+        resetValidation();
 
         mode = MODE_WRITER;
 
@@ -183,75 +389,184 @@ public class HanziWriterView extends View {
      * 开始动画
      */
     public void startAnim(){
-        if(getVisibility() != VISIBLE){
+        if(getVisibility() != VISIBLE || hanziBean == null || prepareHanzi() == null){
             return ;
         }
 
-        if(writerAnim != null){
-            writerAnim.cancel();
-        }
-
         mode = MODE_ANIM;
+        inkRenderer.reset();
+        resetValidation();
 
         strokeIndex = -1;
+        animPath.rewind();
 
-        hanziBean.initHanzi(getWidth(), getHeight());
-
-        writerAnim = new AnimatorSet();
-
-        //一笔一笔地播放动画
-        Animator[] animators = new Animator[hanziBean.getStrokeCount()];
-        int index = 0;
-        for(final Path path : hanziBean.getMedianPaths()){
-            ValueAnimator va = ValueAnimator.ofFloat(0, 1);
-            va.setDuration(1000);
-            va.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-                PathMeasure pm;
-                @Override
-                public void onAnimationUpdate(ValueAnimator valueAnimator) {
-                    float value = (float) valueAnimator.getAnimatedValue();
-                    if(pm == null){
-                        pm = new PathMeasure(path, false);
-                    }
-                    float end = pm.getLength() * value ;
-                    animPath.reset();
-                    pm.getSegment(0, end, animPath, true);
-                    invalidate();
-                }
-            });
-            va.addListener(new Animator.AnimatorListener() {
-                @Override
-                public void onAnimationStart(Animator animator) {
-                    strokeIndex ++;
-                    if(onAnimStrokeWriterStartListener != null){
-                        onAnimStrokeWriterStartListener.onStart(strokeIndex);
-                    }
-                }
+        //一笔一笔地播放动画  每笔的时长按笔画长度换算
+        strokeAnimator.start(new StrokeTimeline(hanzi.getMedianStrokes()));
+    }
 
-                @Override
-                public void onAnimationEnd(Animator animator) {
+    /**
+     * 暂停动画
+     */
+    public void pauseAnim(){
+        strokeAnimator.pause();
+    }
 
-                }
+    /**
+     * 继续播放暂停的动画
+     */
+    public void resumeAnim(){
+        if(mode == MODE_ANIM){
+            strokeAnimator.resume();
+        }
+    }
+
+    /**
+     * 动画跳到某个时间
+     * @param time 毫秒
+     */
+    public void seekAnim(long time){
+        if(mode == MODE_ANIM){
+            strokeAnimator.seek(time);
+        }
+    }
 
-                @Override
-                public void onAnimationCancel(Animator animator) {
+    /**
+     * 设置动画的播放速度  1是正常速度
+     * @param speed
+     */
+    public void setAnimSpeed(float speed){
+        strokeAnimator.setSpeed(speed);
+    }
 
-                }
+    /**
+     * 动画的总时长 毫秒  没有在播放动画返回0
+     * @return
+     */
+    public long getAnimDuration(){
+        StrokeTimeline timeline = strokeAnimator.getTimeline();
+        return timeline == null ? 0 : timeline.getTotalDuration();
+    }
 
-                @Override
-                public void onAnimationRepeat(Animator animator) {
+    /**
+     * 在单独的线程里判定笔画  默认关闭
+     * 打开之后触摸事件只把采样点放进缓冲区，判定的结果按顺序送回主线程再回调各个监听
+     * @param asyncValidation
+     */
+    public void setAsyncValidation(boolean asyncValidation) {
+        if(this.asyncValidation == asyncValidation){
+            return;
+        }
+        this.asyncValidation = asyncValidation;
+        if(asyncValidation){
+            startValidationPipeline();
+        }else{
+            stopValidationPipeline();
+        }
+    }
 
-                }
-            });
+    public boolean isAsyncValidation() {
+        return asyncValidation;
+    }
 
-            if(index > 0){
-                va.setStartDelay(500);
-            }
-            animators[index++] = va;
+    /**
+     * 判定线程  可以看丢掉的点数和延迟
+     * @return 没有打开或者view不显示的时候返回null
+     */
+    public StrokeValidationPipeline getValidationPipeline() {
+        return validationPipeline;
+    }
+
+    /**
+     * 预测手指接下来的位置，把墨迹往前多画一小段，看起来不会落后手指一帧  默认关闭
+     * 预测的一段只画不判定，下一个真的采样点来了就换掉，松开手指就去掉
+     * @param touchPredictor 比如new TouchPredictor(TouchPredictor.TYPE_KALMAN)，用setHorizon调整预测多久；null表示关闭
+     */
+    public void setTouchPredictor(TouchPredictor touchPredictor) {
+        this.touchPredictor = touchPredictor;
+        if(hasPrediction){
+            hasPrediction = false;
+            invalidate();
+        }
+    }
+
+    public TouchPredictor getTouchPredictor() {
+        return touchPredictor;
+    }
+
+    /**
+     * 自由书写用的识别器  索引比较大，建议在后台线程建立之后多个view共用
+     * @param recognizer
+     */
+    public void setRecognizer(HanziRecognizer recognizer) {
+        this.recognizer = recognizer;
+        this.recognizerSession = recognizer == null ? null : recognizer.newSession();
+        freeStrokes.clear();
+        if(mode == MODE_FREE){
+            clearFreeWriting();
+        }
+    }
+
+    public HanziRecognizer getRecognizer() {
+        return recognizer;
+    }
+
+    /**
+     * 最多回调几个候选字
+     * @param maxCandidates
+     */
+    public void setMaxCandidates(int maxCandidates) {
+        this.maxCandidates = maxCandidates;
+    }
+
+    /**
+     * 开始自由书写模式  随便写一个字，每写完一笔更新候选字
+     * 需要先设置识别器
+     */
+    public void freeWriting(){
+        if(recognizer == null){
+            return;
+        }
+        strokeAnimator.cancel();
+        resetValidation();
+
+        mode = MODE_FREE;
+
+        clearFreeWriting();
+    }
+
+    /**
+     * 清空自由书写的笔画
+     */
+    public void clearFreeWriting(){
+        inkRenderer.reset();
+        freeStrokes.clear();
+        if(recognizerSession != null){
+            recognizerSession.reset();
         }
+        notifyCandidates();
+        invalidate();
+    }
 
-        writerAnim.playSequentially(animators);
-        writerAnim.start();
+    /**
+     * 撤销自由书写的最后一笔  重画剩下的墨迹
+     */
+    public void undoFreeStroke(){
+        if(mode != MODE_FREE || freeStrokes.isEmpty()){
+            return;
+        }
+        freeStrokes.remove(freeStrokes.size() - 1);
+        recognizerSession.removeLastStroke();
+
+        inkRenderer.reset();
+        for(float[] stroke : freeStrokes){
+            inkRenderer.startStroke(stroke[0], stroke[1]);
+            for(int i = 2 ; i + 1 < stroke.length ; i += 2){
+                inkRenderer.lineTo(stroke[i], stroke[i + 1]);
+            }
+            inkRenderer.finishStroke();
+        }
+        notifyCandidates();
+        invalidate();
     }
 
     /*************************************************开放接口 END************************************/
@@ -259,89 +574,412 @@ public class HanziWriterView extends View {
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
+        long drawStart = metrics != null ? System.nanoTime() : 0;
+        if(adaptiveQuality){
+            drawnSinceFrame = true;
+            postFrameCallback();
+        }
+
+        if(mode == MODE_FREE){
+            //自由书写  没有背景的字，只画用户写的
+            userPaint.setColor(writerColor);
+            Bitmap ink = inkRenderer.getBitmap();
+            if(ink != null){
+                canvas.drawBitmap(ink, 0, 0, null);
+            }
+            canvas.drawPath(getInkTailPath(), userPaint);
+        }else if(hanziBean != null && getWidth() > 0 && getHeight() > 0 && prepareHanzi() != null){
+
+            //不变的部分（轮廓、已经写完的笔画、当前笔画的中线）都缓存在一张图里，每帧只画一次图
+            updateStaticLayer();
+            canvas.drawBitmap(staticLayer, 0, 0, null);
+
+            if(mode == MODE_WRITER && strokeIndex < hanzi.getStrokeCount()){
+                //画用户画的  裁剪在当前这一画里面
+                userPaint.setColor(writerColor);
+                drawInStroke(canvas, inkRenderer.getBitmap(), getInkTailPath(), userPaint);
+            }
+
+            if(mode == MODE_ANIM && strokeIndex >= 0 && strokeIndex < hanzi.getStrokeCount()){
+                drawInStroke(canvas, null, animPath, animPaint);
+            }
+        }
+
+        if(metrics != null){
+            metrics.record(HanziMetrics.Metric.DRAW, System.nanoTime() - drawStart);
+        }
+    }
+
+    private void postFrameCallback(){
+        if(!frameCallbackPosted){
+            frameCallbackPosted = true;
+            Choreographer.getInstance().postFrameCallback(frameCallback);
+        }
+    }
+
+    private void stopFrameCallback(){
+        if(frameCallbackPosted){
+            frameCallbackPosted = false;
+            Choreographer.getInstance().removeFrameCallback(frameCallback);
+        }
+        drawnSinceFrame = false;
+        layerRebuiltSinceFrame = false;
+        lastFrameTime = 0;
+    }
+
+    /**
+     * 把内容画在当前笔画的轮廓里面
+     * @param canvas
+     * @param contentBitmap 已经画好的墨迹  可以为null
+     * @param content 用户写的或者动画的path
+     * @param paint
+     */
+    private void drawInStroke(Canvas canvas, Bitmap contentBitmap, Path content, Paint paint){
+        int quality = qualityController.getLevel();
+        if(quality >= AdaptiveQualityController.LEVEL_RECT_CLIP){
+            //最低质量  只裁剪在笔画的外接矩形里
+            int save = canvas.save();
+            canvas.clipRect(getStrokeMaskBounds(strokeIndex));
+            if(contentBitmap != null){
+                canvas.drawBitmap(contentBitmap, 0, 0, null);
+            }
+            canvas.drawPath(content, paint);
+            canvas.restoreToCount(save);
+        }else if(clipMode == CLIP_MODE_MASK){
+            Bitmap mask = getStrokeMask(strokeIndex);
+            if(mask == null){
+                return;
+            }
+            drawMasked(canvas, mask, getStrokeMaskBounds(strokeIndex), contentBitmap, inkBitmapPaint,
+                    content, paint, maskCompositePaint);
+        }else{
+            //当前画到第几画 就裁剪哪
+            int save = canvas.save();
+            canvas.clipPath(getOutlinePaths(quality).get(strokeIndex));
+            if(contentBitmap != null){
+                canvas.drawBitmap(contentBitmap, 0, 0, null);
+            }
+            canvas.drawPath(content, paint);
+            canvas.restoreToCount(save);
+        }
+    }
 
-        if(hanziBean != null){
-            hanziBean.initHanzi(getWidth(), getHeight());
+    /**
+     * 用遮罩裁剪内容
+     * 内容先正常画进图层，最后用DST_IN把遮罩合成上去，只留下遮罩里面的部分
+     * 不能先画遮罩再用SRC_IN画内容：整个view大小的墨迹图片没有墨迹的地方是透明的，会把遮罩也盖掉，后画的尾部就看不到了
+     * @param mask 笔画的遮罩
+     * @param bounds 遮罩的位置
+     * @param contentBitmap 已经画好的内容  可以为null
+     * @param bitmapPaint 画contentBitmap的笔
+     * @param content 每帧画的path
+     * @param paint 画content的笔
+     * @param compositePaint 带DST_IN的笔
+     */
+    static void drawMasked(Canvas canvas, Bitmap mask, RectF bounds, Bitmap contentBitmap, Paint bitmapPaint,
+                           Path content, Paint paint, Paint compositePaint){
+        int save = canvas.saveLayer(bounds, null, Canvas.ALL_SAVE_FLAG);
+        if(contentBitmap != null){
+            canvas.drawBitmap(contentBitmap, 0, 0, bitmapPaint);
+        }
+        canvas.drawPath(content, paint);
+        canvas.drawBitmap(mask, bounds.left, bounds.top, compositePaint);
+        canvas.restoreToCount(save);
+    }
 
-            //画汉字的轮廓
-            for(int i = 0; i < hanziBean.getStrokePaths().size() ; i ++){
-                if(mode == MODE_NORMAL){
-                    mStrokePaint.setColor(normalColor);
+    /**
+     * 笔画的遮罩  每个宽高下每个笔画只画一次
+     * 只有笔画外接矩形那么大，ALPHA_8格式
+     * @param index
+     * @return 笔画是空的就返回null
+     */
+    private Bitmap getStrokeMask(int index){
+        ensureStrokeMasks();
+        if(strokeMasks[index] == null){
+            Path path = hanzi.getStrokePaths().get(index);
+            RectF bounds = getStrokeMaskBounds(index);
+            int width = (int) bounds.width();
+            int height = (int) bounds.height();
+            if(width <= 0 || height <= 0){
+                return null;
+            }
+
+            Bitmap mask = Bitmap.createBitmap(width, height, Bitmap.Config.ALPHA_8);
+            Canvas maskCanvas = new Canvas(mask);
+            maskCanvas.translate(-bounds.left, -bounds.top);
+            maskCanvas.drawPath(path, maskPaint);
+            strokeMasks[index] = mask;
+        }
+        return strokeMasks[index];
+    }
+
+    /**
+     * 笔画遮罩的位置  笔画的外接矩形取整
+     * @param index
+     * @return
+     */
+    private RectF getStrokeMaskBounds(int index){
+        ensureStrokeMasks();
+        if(strokeMaskBounds[index] == null){
+            RectF bounds = new RectF();
+            hanzi.getStrokePaths().get(index).computeBounds(bounds, true);
+            bounds.set((float) Math.floor(bounds.left), (float) Math.floor(bounds.top),
+                    (float) Math.ceil(bounds.right), (float) Math.ceil(bounds.bottom));
+            strokeMaskBounds[index] = bounds;
+        }
+        return strokeMaskBounds[index];
+    }
+
+    /**
+     * 汉字或者宽高变了就丢掉之前的遮罩
+     */
+    private void ensureStrokeMasks(){
+        if(strokeMasks == null || maskHanzi != hanzi){
+            int count = hanzi.getStrokePaths().size();
+            releaseStrokeMasks();
+            strokeMasks = new Bitmap[count];
+            strokeMaskBounds = new RectF[count];
+            maskHanzi = hanzi;
+        }
+    }
+
+    private void releaseStrokeMasks(){
+        if(strokeMasks != null){
+            for(Bitmap mask : strokeMasks){
+                if(mask != null){
+                    mask.recycle();
+                }
+            }
+        }
+        strokeMasks = null;
+        strokeMaskBounds = null;
+    }
+
+    /**
+     * 需要的时候重新画缓存的图
+     * 只有笔画序号、模式、颜色、宽高或者汉字变了才需要重画
+     */
+    private void updateStaticLayer(){
+        int width = getWidth();
+        int height = getHeight();
+        if(staticLayer == null || staticLayer.getWidth() != width || staticLayer.getHeight() != height){
+            if(staticLayer != null){
+                staticLayer.recycle();
+            }
+            staticLayer = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            staticLayerCanvas = new Canvas(staticLayer);
+            staticLayerValid = false;
+        }
+
+        int quality = qualityController.getLevel();
+        if(staticLayerValid && layerHanzi == hanzi
+                && layerMode == mode && layerStrokeIndex == strokeIndex && layerQuality == quality){
+            return;
+        }
+
+        staticLayerValid = true;
+        //软件画整张图很慢  但只是偶尔一次，不能让它把质量降下去
+        layerRebuiltSinceFrame = true;
+        layerHanzi = hanzi;
+        layerMode = mode;
+        layerStrokeIndex = strokeIndex;
+        layerQuality = quality;
+
+        Canvas canvas = staticLayerCanvas;
+        canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+
+        //画汉字的轮廓
+        mStrokePaint.setAntiAlias(quality < AdaptiveQualityController.LEVEL_NO_AA_OUTLINES);
+        List<Path> outlines = getOutlinePaths(quality);
+        for(int i = 0; i < outlines.size() ; i ++){
+            if(mode == MODE_NORMAL){
+                mStrokePaint.setColor(normalColor);
+            }else{
+                if(i < strokeIndex){
+                    mStrokePaint.setColor(mode == MODE_WRITER ? writerColor : animColor);
                 }else{
-                    if(i < strokeIndex){
-                        mStrokePaint.setColor(mode == MODE_WRITER ? writerColor : animColor);
-                    }else{
-                        mStrokePaint.setColor(backgroundColor);
-                    }
+                    mStrokePaint.setColor(backgroundColor);
                 }
-                canvas.drawPath(hanziBean.getStrokePaths().get(i), mStrokePaint);
             }
+            canvas.drawPath(outlines.get(i), mStrokePaint);
+        }
 
-            if(mode == MODE_WRITER && strokeIndex < hanziBean.getStrokeCount()){
-                //画笔画
-                canvas.drawPath(hanziBean.getMedianPaths().get(strokeIndex), mMedianPaint);
+        if(mode == MODE_WRITER && strokeIndex < hanzi.getStrokeCount()){
+            //画笔画
+            canvas.drawPath(hanzi.getMedianPaths().get(strokeIndex), mMedianPaint);
 
-                //显示中线的所有点  用于调试  debug
-//                for(List<Integer> points : hanziBean.getMedians().get(strokeIndex)){
-//                    int x = hanziBean.getCoordinateX(points.get(0));
-//                    int y = hanziBean.getCoordinateY(points.get(1));
-//                    canvas.drawPoint(x, y, mMedianPaint);
-//                }
+            //显示中线的所有点  用于调试  debug
+//            for(List<Integer> points : hanziBean.getMedians().get(strokeIndex)){
+//                int x = hanziBean.getCoordinateX(points.get(0));
+//                int y = hanziBean.getCoordinateY(points.get(1));
+//                canvas.drawPoint(x, y, mMedianPaint);
+//            }
+        }
+    }
 
-                //当前画到第几画 就裁剪哪
-                canvas.clipPath(hanziBean.getStrokePaths().get(strokeIndex));
+    /**
+     * 按质量等级取汉字的外框
+     * @param quality
+     * @return
+     */
+    private List<Path> getOutlinePaths(int quality){
+        return quality >= AdaptiveQualityController.LEVEL_SIMPLIFIED_OUTLINES
+                ? hanzi.getSimplifiedStrokePaths() : hanzi.getStrokePaths();
+    }
 
-                //画用户画的
-                userPaint.setColor(writerColor);
-                canvas.drawPath(userDrawPath, userPaint);
+    /**
+     * 按当前宽高取汉字的绘制数据  同一个字同一个大小的view共用一份
+     * 宽高和汉字都没变就直接用上次的
+     * @return 数据有误返回null
+     */
+    private PreparedHanzi prepareHanzi(){
+        if(hanzi == null || hanzi.getWidth() != getWidth() || hanzi.getHeight() != getHeight()){
+            try{
+                hanzi = hanziBean.prepare(getWidth(), getHeight());
+            }catch (Exception e){
+                Log.e(TAG, "prepareHanzi: 汉字数据有误", e);
+                hanzi = null;
             }
+        }
+        return hanzi;
+    }
 
-            if(mode == MODE_ANIM && strokeIndex < hanziBean.getStrokeCount()){
-                //当前画到第几画 就裁剪哪
-                canvas.clipPath(hanziBean.getStrokePaths().get(strokeIndex));
+    /**
+     * 颜色或者汉字变了，下次绘制时重画缓存的图
+     */
+    private void invalidateStaticLayer(){
+        staticLayerValid = false;
+        invalidate();
+    }
 
-                canvas.drawPath(animPath, animPaint);
-            }
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        inkRenderer.setSize(w, h);
+        staticLayerValid = false;
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if(asyncValidation){
+            startValidationPipeline();
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        stopValidationPipeline();
+        stopFrameCallback();
+        //不显示的时候释放缓存的图，重新显示时再画
+        if(staticLayer != null){
+            staticLayer.recycle();
+            staticLayer = null;
+            staticLayerCanvas = null;
         }
+        releaseStrokeMasks();
+        inkRenderer.release();
+        strokeAnimator.pause();
     }
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
-        if(mode != MODE_WRITER || strokeIndex >= hanziBean.getStrokeCount()){
+        if(mode == MODE_FREE){
+            if(recognizerSession == null){
+                return false;
+            }
+        }else if(mode != MODE_WRITER || hanzi == null || strokeIndex >= hanzi.getStrokeCount()){
             return false;
         }
 
         float x = event.getX();
         float y = event.getY();
+        long time = event.getEventTime();
 
         switch (event.getAction()){
             case MotionEvent.ACTION_DOWN:
-                userDrawPath.reset();
+                if(mode == MODE_FREE){
+                    //自由书写  之前的笔画都留着，重绘范围是整个view
+                    inkRenderer.setSize(getWidth(), getHeight());
+                    inkRenderer.startStroke(x, y);
+                    freePointCount = 0;
+                    addFreePoint(x, y);
+                    lastTouchX = x;
+                    lastTouchY = y;
+                    startPrediction(x, y, time);
+                    strokeBounds.set(0, 0, getWidth(), getHeight());
+                    break;
+                }
+
+                inkRenderer.reset();
                 invalidate();
 
-                if(!inHand(x, y)){
-                    return false;
+                if(validationPipeline != null){
+                    //判定线程决定这一笔算不算  这里只放采样点
+                    if(pipelineHanzi != hanzi){
+                        validationPipeline.setCharacter(hanzi.getMedianStrokes(), userPaintJudgmentRange / 2f, strokeIndex);
+                        pipelineHanzi = hanzi;
+                    }
+                    validationPipeline.onDown(x, y);
+                }else{
+                    //必须从笔画的头部开始写  从尾部开始的也跟踪下去，写完可以提示是倒着写的
+                    StrokeJudge startJudge = getStrokeJudge();
+                    if(!startJudge.begin(x, y) && !startJudge.isOk()){
+                        return false;
+                    }
                 }
 
-                strokeOk = true;
-                maxPointIndex = 0;
-                userDrawPath.moveTo(x, y);
+                inkRenderer.setSize(getWidth(), getHeight());
+                inkRenderer.moveTo(x, y);
+                lastTouchX = x;
+                lastTouchY = y;
+                startPrediction(x, y, time);
+
+                //墨迹会被裁剪在当前笔画里面，重绘的范围不会超过笔画的外框
+                hanzi.getStrokePaths().get(strokeIndex).computeBounds(strokeBounds, true);
                 break;
             case MotionEvent.ACTION_MOVE:
-                // 在开始和结束坐标间画一条线
-                userDrawPath.lineTo(x, y);
-
-                if(!checkDrawPointInHanziStroke(x, y)){
-                    strokeOk = false;
+                //触摸屏采样率比刷新率高的时候，一个事件里会带着多个历史采样点，全部都要处理
+                int historySize = event.getHistorySize();
+                for(int i = 0 ; i < historySize ; i ++){
+                    addWriterPoint(event.getHistoricalX(i), event.getHistoricalY(i), event.getHistoricalEventTime(i));
                 }
+                addWriterPoint(x, y, time);
+                updatePrediction();
 
-                invalidate();
+                if(pendingTouchTime == 0){
+                    //事件时间和System.nanoTime都是开机之后的单调时间
+                    pendingTouchTime = (historySize > 0 ? event.getHistoricalEventTime(0) : event.getEventTime()) * 1000000L;
+                }
+                scheduleInvalidate();
                 break;
             case MotionEvent.ACTION_UP:
             case MotionEvent.ACTION_CANCEL:
-                userDrawPath.reset();
-                //经过了80%的点  且  中间没有错误  就开始下一笔
-                if(maxPointIndex >= (int)(hanziBean.getMedians().get(strokeIndex).size() * 0.8) && strokeOk){
+                hasPrediction = false;
+                if(mode == MODE_FREE){
+                    inkRenderer.finishStroke();
+                    finishFreeStroke();
+                    invalidate();
+                    break;
+                }
+
+                inkRenderer.reset();
+                if(validationPipeline != null){
+                    //结果由validationCallback在主线程回调
+                    validationPipeline.onUp(x, y);
+                    invalidate();
+                    break;
+                }
+
+                StrokeJudge judge = getStrokeJudge();
+                //形状分数边写边算好了，这里最多再算一列
+                int result = judge.getResult();
+                if(onStrokeResultListener != null){
+                    onStrokeResultListener.onResult(strokeIndex, result, judge.getQuality());
+                }
+                //经过了80%的点  且  中间没有错误  形状也对  就开始下一笔
+                if(result == StrokeJudge.RESULT_ACCEPTED){
                     if(onStrokeWriterEndListener != null){
                         onStrokeWriterEndListener.onEnd(strokeIndex);
                     }
@@ -350,17 +988,21 @@ public class HanziWriterView extends View {
                     strokeIndex ++;
 
                     //写完了
-                    if(strokeIndex >= hanziBean.getStrokeCount() && onWriterEndListener != null){
+                    if(strokeIndex >= hanzi.getStrokeCount() && onWriterEndListener != null){
                         onWriterEndListener.onEnd();
                     }
                 }else{
-                    if(!strokeOk){
+                    if(result == StrokeJudge.RESULT_OUT_OF_RANGE){
                         Log.e(TAG, "onTouchEvent: 中途失败");
+                    }else if(result == StrokeJudge.RESULT_BACKWARDS){
+                        Log.e(TAG, "onTouchEvent: 倒着写了");
+                    }else if(result == StrokeJudge.RESULT_WRONG_SHAPE){
+                        Log.e(TAG, "onTouchEvent: 形状不对 " + judge.getShapeScore());
                     }else{
                         Log.e(TAG, "onTouchEvent: 结尾失败"
-                                + maxPointIndex + " "
-                                + hanziBean.getMedians().get(strokeIndex).size() + " "
-                                + ((int)(hanziBean.getMedians().get(strokeIndex).size() * 0.8)));
+                                + judge.getMaxPointIndex() + " "
+                                + judge.getStroke().getPointCount() + " "
+                                + judge.getRequiredPointIndex());
                     }
                 }
 
@@ -372,114 +1014,266 @@ public class HanziWriterView extends View {
     }
 
     /**
-     * 检测用户画的这一点是否在笔画中心线的范围内
-     * @param x0
-     * @param y0
-     * @return
+     * 处理用户写的一个采样点
+     * 在开始和结束坐标间画一条线，判断是否在笔画范围内，并记录需要重绘的范围
+     * @param time 采样的时间 毫秒
      */
-    private boolean checkDrawPointInHanziStroke(float x0,float y0){
-        if(hanziBean == null){
-            return false;
+    private void addWriterPoint(float x, float y, long time){
+        inkRenderer.lineTo(x, y);
+        if(touchPredictor != null){
+            touchPredictor.addSample(x, y, time);
         }
 
-        //对应笔画的坐标点
-        List<List<Integer>> coordinates = hanziBean.getMedians().get(strokeIndex);
+        if(mode == MODE_FREE){
+            addFreePoint(x, y);
+        }else if(validationPipeline != null){
+            validationPipeline.onMove(x, y);
+        }else if(metrics != null){
+            long start = System.nanoTime();
+            strokeJudge.addPoint(x, y);
+            metrics.recordSince(HanziMetrics.Metric.HIT_TEST, start);
+        }else{
+            strokeJudge.addPoint(x, y);
+        }
 
-        //判断点到每条直线的距离是否足够小  并且垂点在定义域内
-        List<Integer> lastCoordinate = null;
-        boolean result = false;
-        for(int i = coordinates.size() - 1 ; i >= 0 ; i --){
-            List<Integer> coordinate = coordinates.get(i);
+        addDirtySegment(lastTouchX, lastTouchY, x, y);
+        lastTouchX = x;
+        lastTouchY = y;
+    }
 
-            if(lastCoordinate != null){
-                int x1 = hanziBean.getCoordinateX(lastCoordinate.get(0));
-                int y1 = hanziBean.getCoordinateY(lastCoordinate.get(1));
-                int x2 = hanziBean.getCoordinateX(coordinate.get(0));
-                int y2 = hanziBean.getCoordinateY(coordinate.get(1));
+    /**
+     * 记录一段墨迹需要重绘的范围
+     */
+    private void addDirtySegment(float x0, float y0, float x1, float y1){
+        float half = userPaintStrokeWidth / 2f + 1;
+        if(dirtyRect.isEmpty()){
+            dirtyRect.set(Math.min(x0, x1) - half, Math.min(y0, y1) - half,
+                    Math.max(x0, x1) + half, Math.max(y0, y1) + half);
+        }else{
+            dirtyRect.union(Math.min(x0, x1) - half, Math.min(y0, y1) - half,
+                    Math.max(x0, x1) + half, Math.max(y0, y1) + half);
+        }
+    }
 
-                //防止直线平行Y轴
-                if(x1 == x2){
-                    x2 ++;
-                }
+    /**
+     * 一笔开始  之前的速度不要了
+     */
+    private void startPrediction(float x, float y, long time){
+        hasPrediction = false;
+        if(touchPredictor != null){
+            touchPredictor.reset();
+            touchPredictor.addSample(x, y, time);
+        }
+    }
 
-                //防止直线平行X轴
-                if(y1 == y2){
-                    y2++;
-                }
+    /**
+     * 这个事件的采样点都处理完了  重新预测
+     * 上一次预测的一段也要重绘，把它擦掉
+     */
+    private void updatePrediction(){
+        if(touchPredictor == null){
+            return;
+        }
+        if(hasPrediction){
+            addDirtySegment(predictedFromX, predictedFromY, predictedPoint[0], predictedPoint[1]);
+        }
+        hasPrediction = touchPredictor.predict(predictedPoint);
+        if(hasPrediction){
+            predictedFromX = lastTouchX;
+            predictedFromY = lastTouchY;
+            addDirtySegment(predictedFromX, predictedFromY, predictedPoint[0], predictedPoint[1]);
+        }
+    }
 
-                //Ax + By + C = 0
-                double A = y2 - y1;
-                double B = x1 - x2;
-                double C = y1 * (x2 - x1) - x1 * (y2 - y1);
-
-                //算出点到线的距离
-                double d = Math.abs(
-                        (A * x0 + B* y0 + C) /
-                                Math.sqrt(A * A + B * B)
-                );
-
-                //圆和直线是否有交点
-                if(d <= userPaintJudgmentRange / 2.0){
-                    double r = userPaintJudgmentRange / 2.0;
-                    double A1 = (B * B) / (A * A) + 1;
-                    double B1 = (2 * B * C) / (A * A) + (2 * x0 * B) / A - 2 * y0;
-                    double C1 = (C * C) / (A * A) + (2 * x0 * C) / A + x0 * x0 + y0 * y0 - r * r;
-
-                    //b^2-4ac
-                    double dt = B1 * B1 - 4 * A1 * C1;
-                    double Y1 = (-B1 + Math.sqrt(dt)) / (2 * A1);
-                    double Y2 = (-B1 - Math.sqrt(dt)) / (2 * A1);
-
-                    double X1 = (-B * Y1 - C) / A;
-                    double X2 = (-B * Y2 - C) / A;
-
-                    double start1 = Math.min(x1, x2);
-                    double end1 = Math.max(x1, x2);
-                    double start2 = Math.min(X1, X2);
-                    double end2 = Math.max(X1, X2);
-
-                    //判断两区间是否有重叠的部分
-                    if(Math.max(start1, start2) <= Math.min(end1, end2)){
-                        result = true;
-                        maxPointIndex = Math.max(i + 1, maxPointIndex);
-                        break;
-                    }
-                }
-            }
-            lastCoordinate = coordinate;
+    /**
+     * 每帧画的墨迹尾部  有预测的时候在后面接上预测的一段
+     */
+    private Path getInkTailPath(){
+        Path tail = inkRenderer.getTailPath();
+        if(!hasPrediction || tail.isEmpty()){
+            return tail;
         }
+        predictedTailPath.set(tail);
+        predictedTailPath.lineTo(predictedPoint[0], predictedPoint[1]);
+        return predictedTailPath;
+    }
 
-        return result;
+    private void addFreePoint(float x, float y){
+        if(freePointCount + 2 > freePoints.length){
+            freePoints = Arrays.copyOf(freePoints, freePoints.length * 2);
+        }
+        freePoints[freePointCount ++] = x;
+        freePoints[freePointCount ++] = y;
     }
 
     /**
-     * 用户现在画的点是否在笔画的头部
-     * @return
+     * 自由书写写完一笔  换算到原始坐标交给识别器，更新候选字
      */
-    private boolean inHand(double x0, double y0){
-        if(hanziBean == null || strokeIndex >= hanziBean.getStrokeCount()){
-            return false;
+    private void finishFreeStroke(){
+        float[] stroke = Arrays.copyOf(freePoints, freePointCount);
+        freeStrokes.add(stroke);
+
+        GlyphTransform transform = new GlyphTransform(getWidth(), getHeight());
+        float[] points = new float[freePointCount];
+        for(int i = 0 ; i + 1 < freePointCount ; i += 2){
+            points[i] = transform.unmapX(stroke[i]);
+            points[i + 1] = transform.unmapY(stroke[i + 1]);
         }
 
-        //获取对应笔画的第一个点的坐标
-        int x = hanziBean.getCoordinateX(hanziBean.getMedians().get(strokeIndex).get(0).get(0));
-        int y = hanziBean.getCoordinateY(hanziBean.getMedians().get(strokeIndex).get(0).get(1));
+        long start = metrics != null ? System.nanoTime() : 0;
+        recognizerSession.addStroke(points);
+        if(metrics != null){
+            metrics.recordSince(HanziMetrics.Metric.RECOGNITION, start);
+        }
+        notifyCandidates();
+    }
 
-        double distance = getPointDistance(x0, y0, x, y);
+    private void notifyCandidates(){
+        if(onCandidatesListener != null && recognizerSession != null){
+            onCandidatesListener.onCandidates(recognizerSession.getCandidates(maxCandidates));
+        }
+    }
 
-        return distance <= userPaintJudgmentRange / 2.0;
+    /**
+     * 合并重绘请求  每一帧最多重绘一次，而且只重绘新墨迹所在的范围
+     */
+    private void scheduleInvalidate(){
+        if(invalidateScheduled){
+            return;
+        }
+        invalidateScheduled = true;
+        postOnAnimation(invalidateRunnable);
     }
 
+    private final Runnable invalidateRunnable = new Runnable() {
+        @Override
+        public void run() {
+            invalidateScheduled = false;
+            long touchTime = pendingTouchTime;
+            pendingTouchTime = 0;
+            if(dirtyRect.isEmpty()){
+                return;
+            }
+            if(dirtyRect.intersect(strokeBounds)){
+                dirtyRect.roundOut(dirtyBounds);
+                invalidate(dirtyBounds);
+                if(metrics != null && touchTime != 0){
+                    metrics.recordSince(HanziMetrics.Metric.TOUCH_LATENCY, touchTime);
+                }
+            }
+            dirtyRect.setEmpty();
+        }
+    };
+
     /**
-     * 计算两点间的距离
+     * 当前笔画的判定
+     * 汉字、宽高或者判定范围变了就重新建立
      * @return
      */
-    private double getPointDistance(double x0, double y0, double x1, double y1){
-        double x = x0 - x1;
-        double y = y0 - y1;
-        return Math.sqrt(x * x + y * y);
+    private StrokeJudge getStrokeJudge(){
+        MedianStroke median = hanzi.getMedianStrokes().get(strokeIndex);
+        float radius = userPaintJudgmentRange / 2f;
+        if(strokeJudge == null || strokeJudge.getStroke() != median || strokeJudge.getRadius() != radius){
+            strokeJudge = new StrokeJudge(median, radius);
+        }
+        return strokeJudge;
+    }
+
+    private void startValidationPipeline(){
+        if(validationPipeline != null){
+            return;
+        }
+        validationPipeline = new StrokeValidationPipeline(StrokeValidationPipeline.DEFAULT_CAPACITY,
+                new Executor() {
+                    @Override
+                    public void execute(Runnable command) {
+                        mainHandler.post(command);
+                    }
+                }, validationCallback);
+        validationPipeline.start();
+        pipelineHanzi = null;
     }
 
+    /**
+     * 重新开始写、换了字或者换了模式  判定线程丢掉当前的字和还没送回来的结果，下次落笔时重新设置
+     */
+    private void resetValidation(){
+        if(validationPipeline != null && pipelineHanzi != null){
+            validationPipeline.clearCharacter();
+        }
+        pipelineHanzi = null;
+    }
+
+    private void stopValidationPipeline(){
+        if(validationPipeline != null){
+            validationPipeline.stop();
+            validationPipeline = null;
+        }
+        pipelineHanzi = null;
+    }
+
+    /**
+     * 判定线程送回来的结果  在主线程，按写的顺序
+     */
+    private final StrokeValidationPipeline.Callback validationCallback = new StrokeValidationPipeline.Callback() {
+        @Override
+        public void onStrokeResult(int index, int result, float quality) {
+            //不是当前这一笔的结果  是重新开始之前写的
+            if(mode != MODE_WRITER || hanzi == null || index != strokeIndex){
+                return;
+            }
+            if(onStrokeResultListener != null){
+                onStrokeResultListener.onResult(index, result, quality);
+            }
+            if(result == StrokeJudge.RESULT_ACCEPTED){
+                if(onStrokeWriterEndListener != null){
+                    onStrokeWriterEndListener.onEnd(index);
+                }
+                //下一笔
+                strokeIndex = index + 1;
+                if(strokeIndex < hanzi.getStrokeCount()){
+                    //结果回来之前已经开始写下一笔了  按下去时用的还是上一笔的范围
+                    hanzi.getStrokePaths().get(strokeIndex).computeBounds(strokeBounds, true);
+                }
+                invalidate();
+            }
+        }
+
+        @Override
+        public void onCharacterEnd() {
+            if(mode == MODE_WRITER && hanzi != null && strokeIndex >= hanzi.getStrokeCount()
+                    && onWriterEndListener != null){
+                onWriterEndListener.onEnd();
+            }
+        }
+    };
+
+    private final HanziStrokeAnimator.Listener animListener = new HanziStrokeAnimator.Listener() {
+        @Override
+        public void onStrokeStart(int index) {
+            if(onAnimStrokeWriterStartListener != null){
+                onAnimStrokeWriterStartListener.onStart(index);
+            }
+        }
+
+        @Override
+        public void onFrame(int index, float progress) {
+            strokeIndex = index;
+            animPath.rewind();
+            if(index >= 0 && index < hanzi.getStrokeCount()){
+                //用预先算好的弧长表截取这一笔，不需要PathMeasure
+                MedianStroke median = hanzi.getMedianStrokes().get(index);
+                median.extract(median.getLength() * progress, animPathSink);
+            }
+            invalidate();
+        }
+
+        @Override
+        public void onEnd() {
+
+        }
+    };
+
     /**
      * 监听写完字
      */
@@ -502,4 +1296,22 @@ public class HanziWriterView extends View {
     public interface OnAnimStrokeWriterStartListener{
         void onStart(int index);
     }
+
+    /**
+     * 监听每一笔的判定结果
+     * index   第几笔
+     * result  StrokeJudge.RESULT_XXX
+     * quality 写得好不好  0到1
+     */
+    public interface OnStrokeResultListener{
+        void onResult(int index, int result, float quality);
+    }
+
+    /**
+     * 监听自由书写的候选字
+     * candidates   按相似程度从高到低  还没写或者没有相近的字时是空的
+     */
+    public interface OnCandidatesListener{
+        void onCandidates(List<HanziRecognizer.Candidate> candidates);
+    }
 }
@@ -0,0 +1,213 @@
+package com.example.androidhanziwriter;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.PorterDuff;
+
+/**
+ * 用户墨迹的增量绘制
+ *
+ * 采样点用二次曲线平滑：每来一个点，就画一段从上一个中点到这个中点、以上一个点为控制点的曲线
+ * 只有最近的几段作为path每帧绘制，更早的段画进一张一直保留的图里
+ * 不管这一笔写了多长，每帧的绘制量都是固定的
+ */
+public class InkRenderer {
+    private static final int TAIL_SEGMENTS = 4;//每帧用path画的段数
+
+    private final Paint paint;
+
+    private Bitmap bitmap;                  //已经画好的墨迹
+    private Canvas bitmapCanvas;
+    private boolean bitmapEmpty = true;
+
+    //还没有画进图里的段  每段 起点x,y 控制点x,y 终点x,y
+    private final float[] segments = new float[TAIL_SEGMENTS * 6];
+    private int segmentStart;
+    private int segmentCount;
+
+    private final Path tailPath = new Path();   //最近的几段
+    private final Path flushPath = new Path();  //画进图里用的
+    private float lastX, lastY;                 //最后一个采样点
+    private float midX, midY;                   //最后一段曲线的终点
+    private boolean started;
+
+    /**
+     * @param paint 墨迹的笔  画进图里和每帧画尾部都用这支笔
+     */
+    public InkRenderer(Paint paint) {
+        this.paint = paint;
+    }
+
+    /**
+     * 设置画布大小  大小变了会丢掉已经画好的墨迹
+     * @param width
+     * @param height
+     */
+    public void setSize(int width, int height){
+        if(bitmap != null && bitmap.getWidth() == width && bitmap.getHeight() == height){
+            return;
+        }
+        release();
+        if(width > 0 && height > 0){
+            bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            bitmapCanvas = new Canvas(bitmap);
+        }
+        reset();
+    }
+
+    /**
+     * 清空墨迹
+     */
+    public void reset(){
+        if(bitmap != null && !bitmapEmpty){
+            bitmapCanvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+        }
+        bitmapEmpty = true;
+        segmentStart = 0;
+        segmentCount = 0;
+        tailPath.rewind();
+        started = false;
+    }
+
+    /**
+     * 开始新的一笔
+     */
+    public void moveTo(float x, float y){
+        reset();
+        startStroke(x, y);
+    }
+
+    /**
+     * 开始新的一笔  保留之前画好的墨迹，自由书写时用
+     */
+    public void startStroke(float x, float y){
+        finishStroke();
+        lastX = midX = x;
+        lastY = midY = y;
+        started = true;
+        tailPath.moveTo(x, y);
+    }
+
+    /**
+     * 这一笔写完了  剩下的几段都画进图里
+     */
+    public void finishStroke(){
+        if(!started){
+            return;
+        }
+        while (segmentCount > 0){
+            flushOldestSegment();
+        }
+        if(bitmapCanvas != null){
+            flushPath.rewind();
+            flushPath.moveTo(midX, midY);
+            flushPath.lineTo(lastX, lastY);
+            bitmapCanvas.drawPath(flushPath, paint);
+            bitmapEmpty = false;
+        }
+        segmentStart = 0;
+        tailPath.rewind();
+        started = false;
+    }
+
+    /**
+     * 加一个采样点
+     */
+    public void lineTo(float x, float y){
+        if(!started){
+            moveTo(x, y);
+            return;
+        }
+
+        float nextMidX = (lastX + x) / 2;
+        float nextMidY = (lastY + y) / 2;
+        addSegment(midX, midY, lastX, lastY, nextMidX, nextMidY);
+        midX = nextMidX;
+        midY = nextMidY;
+        lastX = x;
+        lastY = y;
+
+        rebuildTail();
+    }
+
+    /**
+     * 已经画好的墨迹
+     * @return 还没有画进任何东西的时候返回null
+     */
+    public Bitmap getBitmap(){
+        return bitmapEmpty ? null : bitmap;
+    }
+
+    /**
+     * 最近的几段  每帧绘制
+     * @return
+     */
+    public Path getTailPath(){
+        return tailPath;
+    }
+
+    /**
+     * 释放图片
+     */
+    public void release(){
+        if(bitmap != null){
+            bitmap.recycle();
+            bitmap = null;
+            bitmapCanvas = null;
+        }
+        bitmapEmpty = true;
+    }
+
+    private void addSegment(float x0, float y0, float x1, float y1, float x2, float y2){
+        if(segmentCount == TAIL_SEGMENTS){
+            flushOldestSegment();
+        }
+        int offset = ((segmentStart + segmentCount) % TAIL_SEGMENTS) * 6;
+        segments[offset] = x0;
+        segments[offset + 1] = y0;
+        segments[offset + 2] = x1;
+        segments[offset + 3] = y1;
+        segments[offset + 4] = x2;
+        segments[offset + 5] = y2;
+        segmentCount ++;
+    }
+
+    /**
+     * 把最早的一段画进图里
+     */
+    private void flushOldestSegment(){
+        int offset = segmentStart * 6;
+        if(bitmapCanvas != null){
+            flushPath.rewind();
+            flushPath.moveTo(segments[offset], segments[offset + 1]);
+            flushPath.quadTo(segments[offset + 2], segments[offset + 3],
+                    segments[offset + 4], segments[offset + 5]);
+            bitmapCanvas.drawPath(flushPath, paint);
+            bitmapEmpty = false;
+        }
+        segmentStart = (segmentStart + 1) % TAIL_SEGMENTS;
+        segmentCount --;
+    }
+
+    /**
+     * 重新生成尾部的path  最多TAIL_SEGMENTS段，再连到最后一个采样点
+     */
+    private void rebuildTail(){
+        tailPath.rewind();
+        for(int i = 0 ; i < segmentCount ; i ++){
+            int offset = ((segmentStart + i) % TAIL_SEGMENTS) * 6;
+            if(i == 0){
+                tailPath.moveTo(segments[offset], segments[offset + 1]);
+            }
+            tailPath.quadTo(segments[offset + 2], segments[offset + 3],
+                    segments[offset + 4], segments[offset + 5]);
+        }
+        if(segmentCount == 0){
+            tailPath.moveTo(midX, midY);
+        }
+        tailPath.lineTo(lastX, lastY);
+    }
+}
@@ -3,14 +3,22 @@ package com.example.androidhanziwriter;
 import androidx.appcompat.app.AppCompatActivity;
 
 import android.os.Bundle;
+import android.util.Log;
 import android.view.View;
 
+import com.example.hanzicore.HanziGlyph;
+import com.example.hanzicore.HanziGlyphSource;
+import com.example.hanzicore.HanziMetrics;
 import com.google.gson.Gson;
 
 public class MainActivity extends AppCompatActivity {
+    private static final String TAG = "MainActivity";
 
     private HanziWriterView hanziWriterView;
-    private HanziBean hanziBean;
+    private HanziGridView hanziGridView;
+    private HanziRepository hanziRepository;
+    private HanziDiskCache hanziDiskCache;
+    private HanziMetrics hanziMetrics;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -18,16 +26,62 @@ public class MainActivity extends AppCompatActivity {
         setContentView(R.layout.activity_main);
 
         hanziWriterView = findViewById(R.id.hanzi_writer_view);
-        String json = "{\"medianData\":\"[[[458,627],[392,631],[336,588],[274,552],[258,550],[253,542],[220,530],[212,532],[203,522]],[[174,404],[215,398],[241,402],[672,514],[742,512]],[[323,556],[351,542],[365,522],[361,116],[340,67],[246,113]],[[100,206],[124,195],[163,189],[492,334]],[[492,807],[537,760],[538,627],[569,435],[612,299],[676,170],[717,112],[779,48],[817,22],[859,12],[880,78],[891,140],[886,147],[894,173]],[[723,412],[737,365],[664,259],[594,198],[489,142],[454,132]],[[657,710],[750,668],[781,634]]]\"," +
+        final String json = "{\"medianData\":\"[[[458,627],[392,631],[336,588],[274,552],[258,550],[253,542],[220,530],[212,532],[203,522]],[[174,404],[215,398],[241,402],[672,514],[742,512]],[[323,556],[351,542],[365,522],[361,116],[340,67],[246,113]],[[100,206],[124,195],[163,189],[492,334]],[[492,807],[537,760],[538,627],[569,435],[612,299],[676,170],[717,112],[779,48],[817,22],[859,12],[880,78],[891,140],[886,147],[894,173]],[[723,412],[737,365],[664,259],[594,198],[489,142],[454,132]],[[657,710],[750,668],[781,634]]]\"," +
                 "\"strokeCount\":7,\"strokeData\":[\"M 350 571 Q 380 593 449 614 Q 465 615 468 623 Q 471 633 458 643 Q 439 656 396 668 Q 381 674 370 672 Q 363 668 363 657 Q 364 621 200 527 Q 196 518 201 516 Q 213 516 290 546 Q 303 550 316 556 L 350 571 Z\",\"M 584 466 Q 666 485 734 497 Q 746 496 754 511 Q 755 524 729 533 Q 693 554 622 527 Q 598 520 575 511 L 537 499 Q 518 495 500 488 Q 442 472 386 457 L 337 446 Q 327 446 179 416 Q 148 409 173 392 Q 212 365 241 376 Q 287 389 339 404 L 387 416 Q 460 438 545 457 L 584 466 Z\"," +
                 "\"M 386 457 Q 387 493 398 517 Q 405 535 390 548 Q 371 564 350 571 L 316 556 Q 315 556 316 555 Q 338 519 337 478 Q 337 462 337 446 L 339 404 Q 340 343 339 289 L 338 241 Q 337 180 334 133 Q 333 115 323 109 Q 317 105 250 119 Q 238 122 239 114 Q 240 108 249 100 Q 309 42 328 6 Q 341 -10 357 3 Q 390 36 390 126 Q 387 169 387 265 L 387 306 Q 387 355 387 416 L 386 457 Z\",\"M 339 289 Q 254 261 161 229 Q 139 222 101 221 Q 86 220 85 207 Q 84 192 94 184 Q 119 166 157 147 Q 169 144 182 154 Q 239 199 338 241 L 387 265 Q 477 " +
                 "314 484 318 Q 499 327 498 337 Q 492 343 479 340 Q 434 324 387 306 L 339 289 Z\",\"M 635 195 Q 690 75 797 -14 Q 876 -62 898 -47 Q 920 -37 914 3 Q 905 34 899 152 Q 900 174 894 178 Q 890 179 884 160 Q 857 75 838 60 Q 823 56 785 88 Q 710 155 670 226 L 644 279 Q 599 381 584 466 L 575 511 Q 547 659 576 752 Q 586 779 543 805 Q 509 827 489 825 Q 470 824 479 795 Q 503 752 507 707 Q 517 601 537 499 L 545 457 Q 573 334 612 245 L 635 195 Z\",\"M 612 245 Q 558 197 452 138 Q 442 132 448 128 Q 455 124 468 126 Q 523 135 574 160 Q " +
                 "608 175 635 195 L 670 226 Q 706 260 747 317 Q 762 336 778 354 Q 788 361 785 374 Q 781 386 753 410 Q 734 428 723 428 Q 708 427 707 411 Q 701 354 644 279 L 612 245 Z\",\"M 687 669 Q 718 648 754 623 Q 770 613 786 615 Q 798 618 801 632 Q 802 648 789 678 Q 780 697 746 708 Q 665 726 651 715 Q 647 711 651 697 Q 655 687 687 669 Z\"],\"word\":\"我\"}";
 
-        hanziBean = new Gson().fromJson(json, HanziBean.class);
-        hanziWriterView.setHanziBean(hanziBean);
+        //内存紧张的时候释放准备好的汉字
+        HanziGlyphCache.getInstance().registerTrimCallbacks(this);
 
-        hanziWriterView.writerHanzi();
+        //解析和生成path都在后台线程做
+        hanziRepository = new HanziRepository(new HanziGlyphSource() {
+            @Override
+            public boolean contains(char word) {
+                return word == '我';
+            }
+
+            @Override
+            public HanziGlyph loadGlyph(char word) {
+                return contains(word) ? new Gson().fromJson(json, HanziBean.class).getGlyph() : null;
+            }
+        });
+
+        //解析过的字形保存在缓存目录，下次启动不用再解析json
+        hanziDiskCache = new HanziDiskCache(getCacheDir());
+        hanziRepository.setDiskCache(hanziDiskCache);
+
+        //性能数据  退出的时候打印出来
+        hanziMetrics = new HanziMetrics();
+        hanziRepository.setMetrics(hanziMetrics);
+        hanziWriterView.setMetrics(hanziMetrics);
+
+        //等view有了宽高再按它的大小准备
+        hanziWriterView.post(new Runnable() {
+            @Override
+            public void run() {
+                hanziRepository.prepare('我', hanziWriterView.getWidth(), hanziWriterView.getHeight(),
+                        new HanziRepository.Callback() {
+                            @Override
+                            public void onReady(char word, HanziBean bean) {
+                                hanziWriterView.setHanziBean(bean);
+                                hanziWriterView.writerHanzi();
+                            }
+
+                            @Override
+                            public void onError(char word, Exception e) {
+                                Log.e(TAG, "prepare " + word + " failed", e);
+                            }
+                        });
+            }
+        });
+
+        //生字表  点一个字就在上面写这个字
+        hanziGridView = findViewById(R.id.hanzi_grid_view);
+        hanziGridView.setRepository(hanziRepository);
+        hanziGridView.setWriterView(hanziWriterView);
+        hanziGridView.setCharacters("我");
 
         findViewById(R.id.write_hanzi).setOnClickListener(new View.OnClickListener() {
             @Override
@@ -43,4 +97,12 @@ public class MainActivity extends AppCompatActivity {
             }
         });
     }
-}
\ No newline at end of file
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        Log.i(TAG, hanziMetrics.snapshot().toString());
+        hanziRepository.shutdown();
+        hanziDiskCache.close();
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.androidhanziwriter;
+
+import android.graphics.Path;
+
+import com.example.hanzicore.GlyphTransform;
+import com.example.hanzicore.HanziGlyph;
+import com.example.hanzicore.MedianStroke;
+import com.example.hanzicore.OutlineSimplifier;
+import com.example.hanzicore.PathSink;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 一个汉字在某个宽高下已经准备好的绘制数据
+ * 外框和中线的path、触摸判定用的中线都已经变换到view坐标
+ *
+ * 创建之后不再修改（简化的外框用到时才生成），由 {@link HanziGlyphCache} 按 (字形, 宽, 高) 在所有view之间共享
+ * 不要修改取到的path
+ */
+public final class PreparedHanzi {
+    private static final float SIMPLIFIED_TOLERANCE = 2;//简化外框的误差 像素
+
+    private final HanziGlyph glyph;
+    private final int width, height;
+
+    private final List<Path> strokePaths;//汉字外框
+    private final Path strokePath = new Path();//汉字外框 全部合成一个path
+    private final List<Path> medianPaths;//笔画
+    private final Path medianPath = new Path();//笔画 全部合成一个path
+    private final List<MedianStroke> medianStrokes;//变换到view坐标的中线
+    private volatile int byteSize;
+    private volatile List<Path> simplifiedStrokePaths;//简化过的外框  用到的时候才生成
+    private volatile HanziGlyphCache cache;//放在哪个缓存里  简化的外框生成之后要告诉它大小变了
+
+    /**
+     * 按宽高变换字形  坐标变换见 {@link GlyphTransform}
+     * @param glyph
+     * @param width
+     * @param height
+     */
+    public PreparedHanzi(HanziGlyph glyph, int width, int height) {
+        this.glyph = glyph;
+        this.width = width;
+        this.height = height;
+
+        GlyphTransform transform = new GlyphTransform(width, height);
+        int coordinateCount = 0;
+
+        List<Path> strokes = new ArrayList<>(glyph.getOutlineCount());
+        AndroidPathSink pathSink = new AndroidPathSink();
+        PathSink sink = transform.wrap(pathSink);
+        for(int i = 0 ; i < glyph.getOutlineCount() ; i ++){
+            Path path = new Path();
+            pathSink.setPath(path);
+            glyph.replayStroke(i, sink);
+            strokes.add(path);
+            strokePath.addPath(path);
+            coordinateCount += glyph.getStrokeCoordinates(i).length;
+        }
+
+        List<Path> medians = new ArrayList<>(glyph.getStrokeCount());
+        List<MedianStroke> strokesInView = new ArrayList<>(glyph.getStrokeCount());
+        for(int i = 0 ; i < glyph.getStrokeCount() ; i ++){
+            float[] src = glyph.getMedian(i);
+            float[] points = transform.mapPoints(src);
+            Path path = new Path();
+            for(int j = 0 ; j + 1 < points.length ; j += 2){
+                if(j == 0){
+                    path.moveTo(points[j], points[j + 1]);
+                }else{
+                    path.lineTo(points[j], points[j + 1]);
+                }
+            }
+            strokesInView.add(new MedianStroke(points));
+            medians.add(path);
+            medianPath.addPath(path);
+            coordinateCount += src.length;
+        }
+
+        strokePaths = Collections.unmodifiableList(strokes);
+        medianPaths = Collections.unmodifiableList(medians);
+        medianStrokes = Collections.unmodifiableList(strokesInView);
+
+        //path里的点各存了两份（单独的和合成的），中线还有点、弧长和每一段的数据
+        byteSize = coordinateCount * 4 * 6 + (glyph.getOutlineCount() + glyph.getStrokeCount()) * 64 + 256;
+    }
+
+    public HanziGlyph getGlyph() {
+        return glyph;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getStrokeCount(){
+        return glyph.getStrokeCount();
+    }
+
+    public List<Path> getStrokePaths() {
+        return strokePaths;
+    }
+
+    public Path getStrokePath() {
+        return strokePath;
+    }
+
+    public List<Path> getMedianPaths() {
+        return medianPaths;
+    }
+
+    public Path getMedianPath() {
+        return medianPath;
+    }
+
+    /**
+     * 简化过的汉字外框  曲线拍平后去掉多余的点，误差不超过SIMPLIFIED_TOLERANCE像素
+     * 绘制来不及的时候用，点数少很多，绘制和裁剪都便宜  第一次调用时生成
+     * @return
+     */
+    public List<Path> getSimplifiedStrokePaths() {
+        boolean created = false;
+        synchronized (this){
+            if(simplifiedStrokePaths == null){
+                createSimplifiedStrokePaths();
+                created = true;
+            }
+        }
+        //不在锁里通知  缓存有自己的锁
+        HanziGlyphCache cache = this.cache;
+        if(created && cache != null){
+            cache.onSizeChanged(this);
+        }
+        return simplifiedStrokePaths;
+    }
+
+    private void createSimplifiedStrokePaths(){
+        final AndroidPathSink pathSink = new AndroidPathSink();
+        final int[] coordinateCount = new int[1];
+        //数一下简化之后有多少个坐标  算进占用的内存
+        PathSink counter = new PathSink() {
+            @Override
+            public void moveTo(float x, float y) {
+                coordinateCount[0] += 2;
+                pathSink.moveTo(x, y);
+            }
+
+            @Override
+            public void lineTo(float x, float y) {
+                coordinateCount[0] += 2;
+                pathSink.lineTo(x, y);
+            }
+
+            @Override
+            public void quadTo(float x1, float y1, float x, float y) {
+                coordinateCount[0] += 4;
+                pathSink.quadTo(x1, y1, x, y);
+            }
+
+            @Override
+            public void cubicTo(float x1, float y1, float x2, float y2, float x, float y) {
+                coordinateCount[0] += 6;
+                pathSink.cubicTo(x1, y1, x2, y2, x, y);
+            }
+
+            @Override
+            public void close() {
+                pathSink.close();
+            }
+        };
+        GlyphTransform transform = new GlyphTransform(width, height);
+        OutlineSimplifier simplifier = new OutlineSimplifier(counter, SIMPLIFIED_TOLERANCE);
+        PathSink sink = transform.wrap(simplifier);
+
+        List<Path> paths = new ArrayList<>(glyph.getOutlineCount());
+        for(int i = 0 ; i < glyph.getOutlineCount() ; i ++){
+            Path path = new Path();
+            pathSink.setPath(path);
+            glyph.replayStroke(i, sink);
+            simplifier.finish();
+            paths.add(path);
+        }
+        simplifiedStrokePaths = Collections.unmodifiableList(paths);
+        //只有单独的一份path  原生path里的点和动词按两倍算
+        byteSize += coordinateCount[0] * 4 * 2 + glyph.getOutlineCount() * 64;
+    }
+
+    /**
+     * 每个笔画的中线  用于触摸判定和动画
+     * @return
+     */
+    public List<MedianStroke> getMedianStrokes() {
+        return medianStrokes;
+    }
+
+    /**
+     * 大概占用多少字节  缓存按这个计算内存预算
+     * 生成了简化的外框之后会变大
+     * @return
+     */
+    public int getByteSize() {
+        return byteSize;
+    }
+
+    void setCache(HanziGlyphCache cache) {
+        this.cache = cache;
+    }
+}
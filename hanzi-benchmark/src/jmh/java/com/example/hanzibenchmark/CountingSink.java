@@ -0,0 +1,40 @@
+package com.example.hanzibenchmark;
+
+import com.example.hanzicore.PathSink;
+
+/**
+ * 只累加收到的坐标的sink  测量路径生成本身的开销，结果交给Blackhole防止被优化掉
+ */
+final class CountingSink implements PathSink {
+    int commands;
+    float sum;
+
+    @Override
+    public void moveTo(float x, float y) {
+        commands ++;
+        sum += x + y;
+    }
+
+    @Override
+    public void lineTo(float x, float y) {
+        commands ++;
+        sum += x + y;
+    }
+
+    @Override
+    public void quadTo(float x1, float y1, float x, float y) {
+        commands ++;
+        sum += x1 + y1 + x + y;
+    }
+
+    @Override
+    public void cubicTo(float x1, float y1, float x2, float y2, float x, float y) {
+        commands ++;
+        sum += x1 + y1 + x2 + y2 + x + y;
+    }
+
+    @Override
+    public void close() {
+        commands ++;
+    }
+}
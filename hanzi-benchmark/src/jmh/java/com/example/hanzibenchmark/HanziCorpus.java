@@ -0,0 +1,119 @@
+package com.example.hanzibenchmark;
+
+import com.example.hanzicore.GraphicsRecord;
+import com.example.hanzicore.HanziDataLoader;
+import com.example.hanzicore.HanziGlyph;
+import com.example.hanzicore.SvgPathParser;
+import com.google.gson.Gson;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * 测试用的汉字数据  所有benchmark共用
+ *
+ * 默认用打包在resources里的graphics-sample.txt（一、我）  结果不依赖网络和上游数据的更新
+ * 指定graphicsFile就从完整的makemeahanzi graphics.txt读取，可以测其他的字，比如从1画到30画的一、人、永、我、藏、爨
+ * 要把别的字加进默认的测试，从graphics.txt把那一行原样加进graphics-sample.txt，再加到character里
+ * 每个字单独出一行结果，可以看出耗时和笔画数的关系
+ */
+@State(Scope.Benchmark)
+public class HanziCorpus {
+    private static final String SAMPLE = "/graphics-sample.txt";
+
+    @Param({"一", "我"})
+    public String character;
+
+    /**
+     * makemeahanzi的graphics.txt  空字符串表示用打包的样例
+     */
+    @Param({""})
+    public String graphicsFile;
+
+    String graphicsJson;    //graphics.txt中的一行
+    String beanJson;        //app里HanziBean格式的json
+    String medianData;      //HanziBean.medianData字段
+    List<String> strokes;
+    float[][] medians;
+    HanziGlyph glyph;
+
+    /**
+     * 和app里HanziBean一样的json字段
+     * HanziBean依赖android，不能在这里直接用
+     */
+    static class BeanRecord {
+        String medianData;
+        int strokeCount;
+        String word;
+        List<String> strokeData;
+        List<List<List<Integer>>> medians;
+    }
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        if(character.length() != 1){
+            throw new IllegalArgumentException("one character expected: " + character);
+        }
+        char word = character.charAt(0);
+
+        graphicsJson = graphicsFile.isEmpty() ? readSample(word) : readFile(word);
+        if(graphicsJson == null){
+            throw new IllegalArgumentException("no data for " + character
+                    + (graphicsFile.isEmpty() ? " in " + SAMPLE + ", set graphicsFile" : " in " + graphicsFile));
+        }
+
+        Gson gson = new Gson();
+        GraphicsRecord record = gson.fromJson(graphicsJson, GraphicsRecord.class);
+        strokes = record.getStrokes();
+        medians = HanziGlyph.toMedianArrays(record.getMedians());
+        glyph = HanziGlyph.fromSvg(record.getCharacter(), strokes, medians, new SvgPathParser());
+
+        BeanRecord bean = new BeanRecord();
+        bean.medianData = gson.toJson(record.getMedians());
+        bean.strokeCount = glyph.getStrokeCount();
+        bean.word = record.getCharacter();
+        bean.strokeData = record.getStrokes();
+        beanJson = gson.toJson(bean);
+        medianData = bean.medianData;
+    }
+
+    private String readFile(char word) throws IOException {
+        HanziDataLoader loader = new HanziDataLoader(new File(graphicsFile));
+        try{
+            return loader.readRecord(word);
+        }finally {
+            loader.close();
+        }
+    }
+
+    private static String readSample(char word) throws IOException {
+        InputStream in = HanziCorpus.class.getResourceAsStream(SAMPLE);
+        if(in == null){
+            throw new IOException(SAMPLE + " not found");
+        }
+        String key = "\"character\": \"" + word + "\"";
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, Charset.forName("UTF-8")));
+        try{
+            String line;
+            while ((line = reader.readLine()) != null){
+                if(line.contains(key)){
+                    return line;
+                }
+            }
+            return null;
+        }finally {
+            reader.close();
+        }
+    }
+}
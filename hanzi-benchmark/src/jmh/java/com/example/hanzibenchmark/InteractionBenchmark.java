@@ -0,0 +1,173 @@
+package com.example.hanzibenchmark;
+
+import com.example.hanzicore.GlyphTransform;
+import com.example.hanzicore.HanziGlyph;
+import com.example.hanzicore.MedianStroke;
+import com.example.hanzicore.PathSink;
+import com.example.hanzicore.StrokeHitTester;
+import com.example.hanzicore.StrokeJudge;
+import com.example.hanzicore.StrokeTimeline;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 写字和动画时每个采样点、每一帧的开销
+ * 按300x300的view准备，判定范围和HanziWriterView默认的一样
+ * 每次调用只处理一个采样点或者一帧，结果就是单次的开销，分配率应该是0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InteractionBenchmark {
+    private static final int VIEW_SIZE = 300;
+    private static final float RADIUS = 60;         //userPaintJudgmentRange / 2
+    private static final float SAMPLE_SPACING = 4;  //相邻两个触摸采样点的距离
+    private static final long FRAME_TIME = 16;
+
+    private StrokeHitTester[] hitTesters;
+    private StrokeJudge[] judges;
+    private int[] sampleStroke;     //每个采样点属于哪一笔
+    private float[] samples;        //x,y交替
+    private int sampleCursor;
+
+    private List<MedianStroke> medianStrokes;
+    private StrokeTimeline timeline;
+    private long frameTime;
+
+    private final CountingSink countingSink = new CountingSink();
+
+    @Setup(Level.Trial)
+    public void prepare(HanziCorpus corpus){
+        HanziGlyph glyph = corpus.glyph;
+        GlyphTransform transform = new GlyphTransform(VIEW_SIZE, VIEW_SIZE);
+        medianStrokes = new ArrayList<>(glyph.getStrokeCount());
+        for(int i = 0 ; i < glyph.getStrokeCount() ; i ++){
+            medianStrokes.add(new MedianStroke(transform.mapPoints(glyph.getMedian(i))));
+        }
+        timeline = new StrokeTimeline(medianStrokes);
+
+        hitTesters = new StrokeHitTester[medianStrokes.size()];
+        judges = new StrokeJudge[medianStrokes.size()];
+        for(int i = 0 ; i < hitTesters.length ; i ++){
+            hitTesters[i] = new StrokeHitTester(medianStrokes.get(i), RADIUS);
+            judges[i] = new StrokeJudge(medianStrokes.get(i), RADIUS);
+        }
+
+        //沿着每一笔的中线采样  加上手抖的偏移，偶尔偏出判定范围
+        Random random = new Random(42);
+        List<float[]> points = new ArrayList<>();
+        List<Integer> strokes = new ArrayList<>();
+        PointSink end = new PointSink();
+        for(int i = 0 ; i < medianStrokes.size() ; i ++){
+            MedianStroke median = medianStrokes.get(i);
+            for(float distance = 0 ; distance <= median.getLength() ; distance += SAMPLE_SPACING){
+                median.extract(distance, end);
+                points.add(new float[]{
+                        end.x + (float) random.nextGaussian() * RADIUS / 2,
+                        end.y + (float) random.nextGaussian() * RADIUS / 2});
+                strokes.add(i);
+            }
+        }
+        samples = new float[points.size() * 2];
+        sampleStroke = new int[points.size()];
+        for(int i = 0 ; i < points.size() ; i ++){
+            samples[i * 2] = points.get(i)[0];
+            samples[i * 2 + 1] = points.get(i)[1];
+            sampleStroke[i] = strokes.get(i);
+        }
+    }
+
+    /**
+     * 一个触摸采样点的命中判断  原来的checkDrawPointInHanziStroke
+     */
+    @Benchmark
+    public int hitTest(){
+        int i = nextSample();
+        return hitTesters[sampleStroke[i]].hitTest(samples[i * 2], samples[i * 2 + 1]);
+    }
+
+    /**
+     * 一个触摸采样点经过StrokeJudge  包括记录写到了哪个点和形状匹配的DTW
+     */
+    @Benchmark
+    public boolean judgePoint(){
+        int i = nextSample();
+        StrokeJudge judge = judges[sampleStroke[i]];
+        if(i == 0 || sampleStroke[i - 1] != sampleStroke[i]){
+            MedianStroke median = judge.getStroke();
+            judge.begin(median.getX(0), median.getY(0));
+        }
+        return judge.addPoint(samples[i * 2], samples[i * 2 + 1]);
+    }
+
+    /**
+     * 动画的一帧  时间换算成笔画和进度，再截取这一笔已经画出的部分
+     */
+    @Benchmark
+    public void animationFrame(Blackhole blackhole){
+        frameTime += FRAME_TIME;
+        if(frameTime > timeline.getTotalDuration()){
+            frameTime = 0;
+        }
+
+        int index = timeline.getStrokeIndexAt(frameTime);
+        if(index >= 0){
+            MedianStroke median = medianStrokes.get(index);
+            median.extract(median.getLength() * timeline.getStrokeProgressAt(index, frameTime), countingSink);
+        }
+        blackhole.consume(countingSink.sum);
+    }
+
+    private int nextSample(){
+        int i = sampleCursor;
+        sampleCursor = i + 1 == sampleStroke.length ? 0 : i + 1;
+        return i;
+    }
+
+    /**
+     * 只记住最后一个点
+     */
+    private static final class PointSink implements PathSink {
+        float x, y;
+
+        @Override
+        public void moveTo(float x, float y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public void lineTo(float x, float y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public void quadTo(float x1, float y1, float x, float y) {
+            lineTo(x, y);
+        }
+
+        @Override
+        public void cubicTo(float x1, float y1, float x2, float y2, float x, float y) {
+            lineTo(x, y);
+        }
+
+        @Override
+        public void close() {
+
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.hanzibenchmark;
+
+import com.example.hanzicore.GlyphTransform;
+import com.example.hanzicore.HanziGlyph;
+import com.example.hanzicore.MedianStroke;
+import com.example.hanzicore.PathRecorder;
+import com.example.hanzicore.PathSink;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按view的大小准备一个字  对应initHanzi / PreparedHanzi
+ * android的Path换成PathRecorder，测的是坐标变换和中线预处理，不包括Path本身的开销
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LayoutBenchmark {
+    /**
+     * view的边长  列表里的小字、普通的写字板、平板上的大字
+     */
+    @Param({"96", "300", "720"})
+    public int size;
+
+    private final CountingSink countingSink = new CountingSink();
+
+    /**
+     * 只做坐标变换  外框的所有命令和中线的所有点
+     */
+    @Benchmark
+    public void coordinateConversion(HanziCorpus corpus, Blackhole blackhole){
+        HanziGlyph glyph = corpus.glyph;
+        GlyphTransform transform = new GlyphTransform(size, size);
+        PathSink sink = transform.wrap(countingSink);
+        for(int i = 0 ; i < glyph.getOutlineCount() ; i ++){
+            glyph.replayStroke(i, sink);
+        }
+        for(int i = 0 ; i < glyph.getStrokeCount() ; i ++){
+            blackhole.consume(transform.mapPoints(glyph.getMedian(i)));
+        }
+        blackhole.consume(countingSink.sum);
+    }
+
+    /**
+     * 完整的准备过程  每个外框一个path，每个中线一个path和一个MedianStroke
+     */
+    @Benchmark
+    public void initHanzi(HanziCorpus corpus, Blackhole blackhole){
+        HanziGlyph glyph = corpus.glyph;
+        GlyphTransform transform = new GlyphTransform(size, size);
+        for(int i = 0 ; i < glyph.getOutlineCount() ; i ++){
+            PathRecorder path = new PathRecorder();
+            glyph.replayStroke(i, transform.wrap(path));
+            blackhole.consume(path);
+        }
+        for(int i = 0 ; i < glyph.getStrokeCount() ; i ++){
+            float[] points = transform.mapPoints(glyph.getMedian(i));
+            PathRecorder path = new PathRecorder();
+            for(int j = 0 ; j + 1 < points.length ; j += 2){
+                if(j == 0){
+                    path.moveTo(points[j], points[j + 1]);
+                }else{
+                    path.lineTo(points[j], points[j + 1]);
+                }
+            }
+            blackhole.consume(path);
+            blackhole.consume(new MedianStroke(points));
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.hanzibenchmark;
+
+import com.example.hanzicore.GraphicsRecord;
+import com.example.hanzicore.HanziGlyph;
+import com.example.hanzicore.SvgPathParser;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 加载一个字  json解析、中线解析、svg解析
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LoadBenchmark {
+    private static final Type MEDIANS_TYPE = new TypeToken<List<List<List<Integer>>>>(){}.getType();
+
+    private final Gson gson = new Gson();
+    private final SvgPathParser parser = new SvgPathParser();
+
+    /**
+     * Gson解析HanziBean格式的json
+     */
+    @Benchmark
+    public Object gsonBean(HanziCorpus corpus){
+        return gson.fromJson(corpus.beanJson, HanziCorpus.BeanRecord.class);
+    }
+
+    /**
+     * Gson解析graphics.txt的一行
+     */
+    @Benchmark
+    public Object gsonGraphics(HanziCorpus corpus){
+        return gson.fromJson(corpus.graphicsJson, GraphicsRecord.class);
+    }
+
+    /**
+     * HanziBean.getMedians原来的做法  Gson解析成三层装箱的列表
+     */
+    @Benchmark
+    public Object mediansGson(HanziCorpus corpus){
+        return gson.fromJson(corpus.medianData, MEDIANS_TYPE);
+    }
+
+    /**
+     * 现在的做法  medianData直接解析成float数组
+     */
+    @Benchmark
+    public float[][] mediansArray(HanziCorpus corpus){
+        return HanziGlyph.parseMedians(corpus.medianData);
+    }
+
+    /**
+     * 解析所有笔画的svg  HanziBean.getGlyph
+     */
+    @Benchmark
+    public HanziGlyph parseSvg(HanziCorpus corpus){
+        return HanziGlyph.fromSvg(corpus.character, corpus.strokes, corpus.medians, parser);
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.hanzicore;
+
+/**
+ * 根据最近的帧耗时调整绘制质量
+ *
+ * 最近一个窗口里超时的帧太多就降一级，连续几个窗口里所有帧都远低于预算就升一级
+ * 可以记录每帧的耗时 {@link #record(long)}，也可以记录两帧之间真实的间隔 {@link #recordInterval(long)}
+ * 每次调整之后要重新攒满一个窗口才会再调整
+ * 升上去之后没撑到下一次升级需要的时间又降下来，说明那一级撑不住，下次升级要多等一倍的窗口，
+ * 最多等MAX_CLEAN_WINDOWS个；撑住了就恢复成一个窗口。这样不会每隔一两个窗口来回跳，每次跳都要重建静态层
+ *
+ * 记录时不分配内存  只在一个线程里使用
+ */
+public class AdaptiveQualityController {
+    /**
+     * 完整质量
+     */
+    public static final int LEVEL_FULL = 0;
+    /**
+     * 背景的轮廓不抗锯齿
+     */
+    public static final int LEVEL_NO_AA_OUTLINES = 1;
+    /**
+     * 轮廓用简化过的path
+     */
+    public static final int LEVEL_SIMPLIFIED_OUTLINES = 2;
+    /**
+     * 墨迹只裁剪在笔画的外接矩形里
+     */
+    public static final int LEVEL_RECT_CLIP = 3;
+    public static final int MAX_LEVEL = LEVEL_RECT_CLIP;
+
+    public static final long DEFAULT_FRAME_BUDGET = 16666667;//60fps
+    private static final int DEFAULT_WINDOW = 30;
+    private static final float OVER_BUDGET_RATIO = 0.25f;   //窗口里超过这个比例的帧超时就降级
+    private static final float HEADROOM_RATIO = 0.5f;       //窗口里最慢的帧都不到预算的一半才升级
+    private static final float DROPPED_RATIO = 1.5f;        //两帧的间隔超过预算的这么多倍算掉了帧
+    private static final int MAX_CLEAN_WINDOWS = 32;        //升级前最多要连续多少个有余量的窗口
+
+    private long frameBudget = DEFAULT_FRAME_BUDGET;
+    private final long[] frames;    //最近的帧耗时 纳秒  环形缓冲区
+    private int cursor;
+    private int frameCount;         //上次调整之后记录了多少帧  最多一个窗口
+    private int level = LEVEL_FULL;
+    private int cleanWindows;       //连续有余量的窗口数
+    private int requiredCleanWindows = 1;   //升级需要的连续有余量的窗口数
+    private boolean lastStepUp;     //上次调整是不是升级
+    private long framesAtLevel;     //调整到当前等级之后记录了多少帧
+    private Listener listener;
+
+    public AdaptiveQualityController() {
+        this(DEFAULT_WINDOW);
+    }
+
+    /**
+     * @param window 每次按最近多少帧判断
+     */
+    public AdaptiveQualityController(int window) {
+        if(window <= 0){
+            throw new IllegalArgumentException("window must be positive: " + window);
+        }
+        frames = new long[window];
+    }
+
+    /**
+     * 每帧的时间预算
+     * @param frameBudget 纳秒
+     */
+    public void setFrameBudget(long frameBudget) {
+        if(frameBudget <= 0){
+            throw new IllegalArgumentException("frame budget must be positive: " + frameBudget);
+        }
+        this.frameBudget = frameBudget;
+    }
+
+    public long getFrameBudget() {
+        return frameBudget;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 当前的质量等级  LEVEL_XXX，数字越大质量越低
+     * @return
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * 直接设置等级  重新开始统计，升级需要的窗口数也恢复成一个
+     * @param level
+     */
+    public void setLevel(int level) {
+        requiredCleanWindows = 1;
+        lastStepUp = false;
+        changeLevel(Math.max(LEVEL_FULL, Math.min(MAX_LEVEL, level)));
+    }
+
+    /**
+     * 回到完整质量
+     */
+    public void reset(){
+        setLevel(LEVEL_FULL);
+    }
+
+    /**
+     * 记录一帧的耗时
+     * @param frameNanos 纳秒
+     * @return 等级是否变了
+     */
+    public boolean record(long frameNanos){
+        framesAtLevel ++;
+        frames[cursor] = frameNanos;
+        cursor = cursor + 1 == frames.length ? 0 : cursor + 1;
+        if(frameCount < frames.length){
+            frameCount ++;
+        }
+        if(frameCount < frames.length){
+            return false;
+        }
+
+        int over = 0;
+        long slowest = 0;
+        for(long frame : frames){
+            if(frame > frameBudget){
+                over ++;
+            }
+            slowest = Math.max(slowest, frame);
+        }
+
+        if(level < MAX_LEVEL && over >= frames.length * OVER_BUDGET_RATIO){
+            if(lastStepUp && framesAtLevel <= (long) requiredCleanWindows * frames.length){
+                //刚升上来就撑不住  下次多等一倍
+                requiredCleanWindows = Math.min(MAX_CLEAN_WINDOWS, requiredCleanWindows * 2);
+            }else{
+                requiredCleanWindows = 1;
+            }
+            lastStepUp = false;
+            changeLevel(level + 1);
+            return true;
+        }
+        if(level > LEVEL_FULL && slowest <= frameBudget * HEADROOM_RATIO){
+            cleanWindows ++;
+            if(cleanWindows >= requiredCleanWindows){
+                lastStepUp = true;
+                changeLevel(level - 1);
+                return true;
+            }
+            //下一个窗口要重新攒满  不和这个窗口重叠
+            frameCount = 0;
+            cursor = 0;
+            return false;
+        }
+        cleanWindows = 0;
+        return false;
+    }
+
+    /**
+     * 记录两帧之间的间隔  比如Choreographer两次回调的帧时间之差
+     * 间隔最短也是一帧，看不出还有多少余量：掉了帧按实际的间隔记，没掉帧的按有余量记，
+     * 所以连续的窗口里都没掉帧就升一级
+     * @param intervalNanos 纳秒
+     * @return 等级是否变了
+     */
+    public boolean recordInterval(long intervalNanos){
+        if(intervalNanos > frameBudget * DROPPED_RATIO){
+            return record(intervalNanos);
+        }
+        return record((long) (frameBudget * HEADROOM_RATIO));
+    }
+
+    private void changeLevel(int newLevel){
+        frameCount = 0;
+        cursor = 0;
+        cleanWindows = 0;
+        framesAtLevel = 0;
+        if(newLevel == level){
+            return;
+        }
+        int oldLevel = level;
+        level = newLevel;
+        if(listener != null){
+            listener.onLevelChanged(oldLevel, newLevel);
+        }
+    }
+
+    public interface Listener{
+        /**
+         * 质量等级变了
+         * @param oldLevel
+         * @param newLevel
+         */
+        void onLevelChanged(int oldLevel, int newLevel);
+    }
+}
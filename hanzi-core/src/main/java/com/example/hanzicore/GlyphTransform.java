@@ -0,0 +1,87 @@
+package com.example.hanzicore;
+
+/**
+ * 原始坐标 -> view坐标
+ *
+ * makemeahanzi的笔画在1024x1024的坐标系里，左上角在(0,900)，右下角在(1024,-124)，y轴向上
+ * 变换到宽高为width x height的view坐标  x' = x * width / 1024,  y' = (900 - y) * height / 1024
+ */
+public final class GlyphTransform {
+    public static final float DESIGN_SIZE = 1024;
+    public static final float BASELINE = 900;
+
+    private final float scaleX;
+    private final float scaleY;
+
+    public GlyphTransform(int width, int height) {
+        this.scaleX = width / DESIGN_SIZE;
+        this.scaleY = height / DESIGN_SIZE;
+    }
+
+    public float mapX(float x){
+        return x * scaleX;
+    }
+
+    public float mapY(float y){
+        return (BASELINE - y) * scaleY;
+    }
+
+    /**
+     * view坐标 -> 原始坐标
+     */
+    public float unmapX(float x){
+        return x / scaleX;
+    }
+
+    public float unmapY(float y){
+        return BASELINE - y / scaleY;
+    }
+
+    /**
+     * 变换一组点
+     * @param src 原始坐标 x,y交替
+     * @return 新的数组
+     */
+    public float[] mapPoints(float[] src){
+        float[] dst = new float[src.length];
+        for(int i = 0 ; i + 1 < src.length ; i += 2){
+            dst[i] = mapX(src[i]);
+            dst[i + 1] = mapY(src[i + 1]);
+        }
+        return dst;
+    }
+
+    /**
+     * 包装一个sink，输出到它的坐标都先经过变换
+     * @param target
+     * @return
+     */
+    public PathSink wrap(final PathSink target){
+        return new PathSink() {
+            @Override
+            public void moveTo(float x, float y) {
+                target.moveTo(mapX(x), mapY(y));
+            }
+
+            @Override
+            public void lineTo(float x, float y) {
+                target.lineTo(mapX(x), mapY(y));
+            }
+
+            @Override
+            public void quadTo(float x1, float y1, float x, float y) {
+                target.quadTo(mapX(x1), mapY(y1), mapX(x), mapY(y));
+            }
+
+            @Override
+            public void cubicTo(float x1, float y1, float x2, float y2, float x, float y) {
+                target.cubicTo(mapX(x1), mapY(y1), mapX(x2), mapY(y2), mapX(x), mapY(y));
+            }
+
+            @Override
+            public void close() {
+                target.close();
+            }
+        };
+    }
+}
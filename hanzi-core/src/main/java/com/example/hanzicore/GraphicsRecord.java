@@ -0,0 +1,50 @@
+package com.example.hanzicore;
+
+import java.util.List;
+
+/**
+ * makemeahanzi的graphics.txt中一行的内容  用Gson解析
+ * 编译器、数据读取、批量导出和benchmark共用
+ */
+public final class GraphicsRecord {
+    private String character;
+    private List<String> strokes;                   //每个笔画的svg外框
+    private List<List<List<Integer>>> medians;      //每个笔画的中线  每个点是[x,y]
+
+    public String getCharacter() {
+        return character;
+    }
+
+    public List<String> getStrokes() {
+        return strokes;
+    }
+
+    public List<List<List<Integer>>> getMedians() {
+        return medians;
+    }
+
+    /**
+     * 有没有字
+     * @return
+     */
+    public boolean hasCharacter(){
+        return character != null && !character.isEmpty();
+    }
+
+    /**
+     * 字、外框和中线都有才能转换成字形
+     * @return
+     */
+    public boolean isComplete(){
+        return hasCharacter() && strokes != null && medians != null;
+    }
+
+    /**
+     * 解析外框，转换成字形
+     * @param parser 解析器  可以复用
+     * @return
+     */
+    public HanziGlyph toGlyph(SvgPathParser parser){
+        return HanziGlyph.fromSvg(character, strokes, HanziGlyph.toMedianArrays(medians), parser);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.hanzicore;
+
+import com.google.gson.Gson;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * 离线工具
+ * 把makemeahanzi的graphics.txt编译成 {@link HanziBinaryFormat} 格式的二进制文件
+ * 运行时就不用再解析json和svg字符串了
+ *
+ * 用法  java HanziBinaryCompiler graphics.txt hanzi.bin
+ * 只依赖gson，不依赖android
+ */
+public class HanziBinaryCompiler {
+
+    public static void main(String[] args) throws IOException {
+        if(args.length < 2){
+            System.err.println("usage: HanziBinaryCompiler <graphics.txt> <output.bin>");
+            System.exit(1);
+            return;
+        }
+
+        int count = compile(args[0], args[1]);
+        System.out.println("compiled " + count + " characters to " + args[1]);
+    }
+
+    /**
+     * 编译整个文件
+     * @param graphicsPath graphics.txt的路径
+     * @param outputPath 输出文件的路径
+     * @return 编译了多少个汉字
+     */
+    public static int compile(String graphicsPath, String outputPath) throws IOException {
+        Gson gson = new Gson();
+        //码点 -> 编译好的记录  TreeMap保证索引有序
+        SortedMap<Integer, byte[]> records = new TreeMap<>();
+        SvgPathParser parser = new SvgPathParser();
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(graphicsPath), Charset.forName("UTF-8")));
+        try{
+            String line;
+            while ((line = reader.readLine()) != null){
+                if(line.trim().isEmpty()){
+                    continue;
+                }
+                GraphicsRecord record = gson.fromJson(line, GraphicsRecord.class);
+                if(record == null || !record.isComplete()){
+                    continue;
+                }
+                records.put(record.getCharacter().codePointAt(0),
+                        HanziBinaryFormat.encodeGlyph(record.toGlyph(parser)));
+            }
+        }finally {
+            reader.close();
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(outputPath)));
+        try{
+            HanziBinaryFormat.writeFile(out, records);
+        }finally {
+            out.close();
+        }
+
+        return records.size();
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.hanzicore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * 预编译汉字二进制文件的格式定义
+ * 由 {@link HanziBinaryCompiler} 离线生成，运行时由 {@link HanziBinaryReader} 内存映射读取
+ * app的磁盘缓存也用同样的格式保存最近用过的汉字
+ *
+ * 所有数值都是大端序
+ *
+ * 文件头
+ *   int     MAGIC
+ *   short   VERSION
+ *   short   保留，目前为0
+ *   int     汉字个数 n
+ *
+ * 索引  n 项，按码点从小到大排序，用于二分查找
+ *   int     码点
+ *   int     记录在文件中的偏移
+ *
+ * 记录  每个汉字一条
+ *   short   笔画数
+ *   每个笔画的外框：
+ *     short   命令个数
+ *     short   坐标个数
+ *     byte[]  命令  见 CMD_*
+ *     float[] 坐标  已经全部转换成绝对坐标，仍然是1024x1024的原始坐标系
+ *   short   中线数
+ *   每个笔画的中线：
+ *     short   点的个数
+ *     short[] 坐标  x,y 交替
+ */
+public final class HanziBinaryFormat {
+    public static final int MAGIC = 0x485A5742;//"HZWB"
+    public static final int VERSION = 1;
+
+    public static final int HEADER_SIZE = 12;
+    public static final int INDEX_ENTRY_SIZE = 8;
+
+    public static final byte CMD_MOVE_TO = 0;   //x y
+    public static final byte CMD_LINE_TO = 1;   //x y
+    public static final byte CMD_QUAD_TO = 2;   //x1 y1 x y
+    public static final byte CMD_CUBIC_TO = 3;  //x1 y1 x2 y2 x y
+    public static final byte CMD_CLOSE = 4;
+
+    private HanziBinaryFormat(){
+    }
+
+    /**
+     * 每种命令带几个坐标
+     * @param command
+     * @return
+     */
+    public static int getCoordinateCount(byte command){
+        switch (command){
+            case CMD_MOVE_TO:
+            case CMD_LINE_TO:
+                return 2;
+            case CMD_QUAD_TO:
+                return 4;
+            case CMD_CUBIC_TO:
+                return 6;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * 写出整个文件  文件头、索引和所有记录
+     * @param out
+     * @param records 码点 -> encodeGlyph编码好的记录  按码点从小到大
+     */
+    public static void writeFile(DataOutputStream out, SortedMap<Integer, byte[]> records) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeShort(0);
+        out.writeInt(records.size());
+
+        int offset = HEADER_SIZE + records.size() * INDEX_ENTRY_SIZE;
+        for(Map.Entry<Integer, byte[]> entry : records.entrySet()){
+            out.writeInt(entry.getKey());
+            out.writeInt(offset);
+            offset += entry.getValue().length;
+        }
+
+        for(byte[] data : records.values()){
+            out.write(data);
+        }
+    }
+
+    /**
+     * 编码一个汉字的记录
+     * @param glyph
+     * @return
+     */
+    public static byte[] encodeGlyph(HanziGlyph glyph) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeShort(glyph.getOutlineCount());
+        for(int i = 0 ; i < glyph.getOutlineCount() ; i ++){
+            byte[] commands = glyph.getStrokeCommands(i);
+            float[] coordinates = glyph.getStrokeCoordinates(i);
+            out.writeShort(commands.length);
+            out.writeShort(coordinates.length);
+            out.write(commands);
+            for(float coordinate : coordinates){
+                out.writeFloat(coordinate);
+            }
+        }
+
+        out.writeShort(glyph.getMedianCount());
+        for(int i = 0 ; i < glyph.getMedianCount() ; i ++){
+            float[] median = glyph.getMedian(i);
+            out.writeShort(median.length / 2);
+            for(int j = 0 ; j + 1 < median.length ; j += 2){
+                out.writeShort(Math.round(median[j]));
+                out.writeShort(Math.round(median[j + 1]));
+            }
+        }
+
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * 从缓冲区解码一个汉字的记录  只用绝对位置读取，多个线程可以同时读同一个缓冲区
+     * 每个长度读出来之后都先和记录的结尾比较，记录被截断或者长度被改坏的时候报IOException
+     * @param buffer
+     * @param position 记录的偏移
+     * @param limit 记录的结尾  下一条记录的偏移或者文件的长度
+     * @param codePoint
+     * @return
+     */
+    public static HanziGlyph decodeGlyph(ByteBuffer buffer, int position, int limit, int codePoint) throws IOException {
+        checkRecord(position, 2, limit, codePoint);
+        int strokeCount = buffer.getShort(position) & 0xFFFF;
+        position += 2;
+
+        byte[][] commands = new byte[strokeCount][];
+        float[][] coordinates = new float[strokeCount][];
+        for(int i = 0 ; i < strokeCount ; i ++){
+            checkRecord(position, 4, limit, codePoint);
+            int commandCount = buffer.getShort(position) & 0xFFFF;
+            int coordinateCount = buffer.getShort(position + 2) & 0xFFFF;
+            position += 4;
+            checkRecord(position, commandCount + coordinateCount * 4L, limit, codePoint);
+
+            byte[] strokeCommands = new byte[commandCount];
+            for(int j = 0 ; j < commandCount ; j ++){
+                strokeCommands[j] = buffer.get(position + j);
+            }
+            position += commandCount;
+
+            float[] strokeCoordinates = new float[coordinateCount];
+            for(int j = 0 ; j < coordinateCount ; j ++){
+                strokeCoordinates[j] = buffer.getFloat(position);
+                position += 4;
+            }
+
+            commands[i] = strokeCommands;
+            coordinates[i] = strokeCoordinates;
+        }
+
+        checkRecord(position, 2, limit, codePoint);
+        int medianCount = buffer.getShort(position) & 0xFFFF;
+        position += 2;
+
+        float[][] medians = new float[medianCount][];
+        for(int i = 0 ; i < medianCount ; i ++){
+            checkRecord(position, 2, limit, codePoint);
+            int pointCount = buffer.getShort(position) & 0xFFFF;
+            position += 2;
+            checkRecord(position, pointCount * 4L, limit, codePoint);
+
+            float[] median = new float[pointCount * 2];
+            for(int j = 0 ; j < median.length ; j ++){
+                median[j] = buffer.getShort(position);
+                position += 2;
+            }
+            medians[i] = median;
+        }
+
+        return new HanziGlyph(new String(Character.toChars(codePoint)), commands, coordinates, medians);
+    }
+
+    private static void checkRecord(int position, long size, int limit, int codePoint) throws IOException {
+        if(position + size > limit){
+            throw new IOException("record of " + new String(Character.toChars(codePoint))
+                    + " is truncated at " + position + ", limit " + limit);
+        }
+    }
+}
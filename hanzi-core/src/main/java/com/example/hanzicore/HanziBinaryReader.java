@@ -0,0 +1,148 @@
+package com.example.hanzicore;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 读取 {@link HanziBinaryCompiler} 编译出来的二进制文件
+ * 整个文件通过NIO内存映射，直接从映射的缓冲区构造 {@link HanziGlyph}
+ * 不经过json，也不产生中间字符串
+ *
+ * 文件必须在文件系统上（比如先从assets拷贝到filesDir），压缩过的asset是不能映射的
+ */
+public class HanziBinaryReader implements HanziGlyphSource, Closeable {
+    private static final int MIN_RECORD_SIZE = 4;
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final int glyphCount;
+
+    public HanziBinaryReader(File file) throws IOException {
+        this.file = new RandomAccessFile(file, "r");
+        try{
+            FileChannel channel = this.file.getChannel();
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }catch (IOException e){
+            this.file.close();
+            throw e;
+        }
+
+        if(buffer.capacity() < HanziBinaryFormat.HEADER_SIZE
+                || buffer.getInt(0) != HanziBinaryFormat.MAGIC){
+            close();
+            throw new IOException("not a hanzi binary file: " + file);
+        }
+        int version = buffer.getShort(4);
+        if(version != HanziBinaryFormat.VERSION){
+            close();
+            throw new IOException("unsupported hanzi binary version " + version + ": " + file);
+        }
+        glyphCount = buffer.getInt(8);
+
+        //文件被截断或者损坏的时候在这里报错，不要等到查找的时候越界
+        long dataStart = HanziBinaryFormat.HEADER_SIZE + (long) glyphCount * HanziBinaryFormat.INDEX_ENTRY_SIZE;
+        if(glyphCount < 0 || dataStart > buffer.capacity()){
+            close();
+            throw new IOException("index of " + glyphCount + " glyphs does not fit in "
+                    + buffer.capacity() + " bytes: " + file);
+        }
+        //记录按索引的顺序写  下一条记录的偏移就是这一条的结尾，解码时不会读出去
+        long previous = dataStart;
+        for(int i = 0 ; i < glyphCount ; i ++){
+            int offset = recordOffset(i);
+            //记录至少有笔画数和中线数
+            if(offset < previous || (long) offset + MIN_RECORD_SIZE > buffer.capacity()){
+                close();
+                throw new IOException("record offset " + offset + " out of range: " + file);
+            }
+            previous = offset + MIN_RECORD_SIZE;
+        }
+    }
+
+    /**
+     * 映射的整个文件  包括记录后面附加的内容，只读
+     * @return 新的视图  position和limit可以随便改
+     */
+    public ByteBuffer getBuffer(){
+        return buffer.asReadOnlyBuffer();
+    }
+
+    /**
+     * 总共有多少个汉字
+     * @return
+     */
+    public int getGlyphCount() {
+        return glyphCount;
+    }
+
+    @Override
+    public boolean contains(char word){
+        return findRecord(word) >= 0;
+    }
+
+    @Override
+    public HanziGlyph loadGlyph(char word) throws IOException {
+        return loadGlyph((int) word);
+    }
+
+    /**
+     * 加载一个汉字的字形
+     * @param codePoint
+     * @return 没有这个字就返回null
+     * @throws IOException 记录被截断或者损坏
+     */
+    public HanziGlyph loadGlyph(int codePoint) throws IOException {
+        int index = findRecord(codePoint);
+        if(index < 0){
+            return null;
+        }
+        int limit = index + 1 < glyphCount ? recordOffset(index + 1) : buffer.capacity();
+        return HanziBinaryFormat.decodeGlyph(buffer, recordOffset(index), limit, codePoint);
+    }
+
+    /**
+     * 索引里第index个汉字的码点  按码点从小到大
+     * @param index
+     * @return
+     */
+    public int getCodePoint(int index){
+        return buffer.getInt(HanziBinaryFormat.HEADER_SIZE + index * HanziBinaryFormat.INDEX_ENTRY_SIZE);
+    }
+
+    /**
+     * 在索引中二分查找
+     * @param codePoint
+     * @return 在索引里的位置，没有就返回-1
+     */
+    private int findRecord(int codePoint){
+        int low = 0;
+        int high = glyphCount - 1;
+        while (low <= high){
+            int mid = (low + high) >>> 1;
+            int entry = HanziBinaryFormat.HEADER_SIZE + mid * HanziBinaryFormat.INDEX_ENTRY_SIZE;
+            int value = buffer.getInt(entry);
+            if(value < codePoint){
+                low = mid + 1;
+            }else if(value > codePoint){
+                high = mid - 1;
+            }else{
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int recordOffset(int index){
+        return buffer.getInt(HanziBinaryFormat.HEADER_SIZE + index * HanziBinaryFormat.INDEX_ENTRY_SIZE + 4);
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
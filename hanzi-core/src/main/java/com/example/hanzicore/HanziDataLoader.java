@@ -0,0 +1,386 @@
+package com.example.hanzicore;
+
+import com.google.gson.Gson;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * 直接读取makemeahanzi原始的graphics.txt / dictionary.txt
+ *
+ * 这两个文件都是一行一个json，每行都有"character"字段
+ * 第一次打开时把整个文件流式地扫一遍，建立 码点->行偏移 的索引，保存在旁边的 xxx.idx 文件里
+ * 之后每次只根据索引定位到一行，只解析这一行
+ *
+ * 索引是开放寻址的哈希表，内存映射读取，查找是O(1)的，占用的内存和文件大小无关
+ */
+public class HanziDataLoader implements HanziGlyphSource, Closeable {
+    private static final int INDEX_MAGIC = 0x485A4958;//"HZIX"
+    private static final int INDEX_VERSION = 1;
+    private static final int INDEX_HEADER_SIZE = 32;
+    private static final int INDEX_ENTRY_SIZE = 12;//码点 偏移 长度
+
+    private static final byte[] CHARACTER_KEY = "\"character\"".getBytes(Charset.forName("UTF-8"));
+
+    private final File dataFile;
+    private final RandomAccessFile data;
+    private final FileChannel dataChannel;
+    private MappedByteBuffer index;
+    private int indexCapacity;
+    private int indexCount;
+
+    private final Gson gson = new Gson();
+
+    /**
+     * 打开数据文件
+     * 如果索引文件不存在或者已经过期，就重新建立索引
+     * 文件很大的时候第一次打开会比较慢，不要在主线程调用
+     * @param dataFile graphics.txt或者dictionary.txt
+     */
+    public HanziDataLoader(File dataFile) throws IOException {
+        this.dataFile = dataFile;
+        this.data = new RandomAccessFile(dataFile, "r");
+        this.dataChannel = data.getChannel();
+
+        try{
+            File indexFile = getIndexFile();
+            if(!openIndex(indexFile)){
+                buildIndex(indexFile);
+                if(!openIndex(indexFile)){
+                    throw new IOException("failed to build index for " + dataFile);
+                }
+            }
+        }catch (IOException e){
+            data.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 索引文件的位置  数据文件旁边的 xxx.idx
+     * @return
+     */
+    public File getIndexFile(){
+        return new File(dataFile.getPath() + ".idx");
+    }
+
+    /**
+     * 总共有多少个汉字
+     * @return
+     */
+    public int getCount(){
+        return indexCount;
+    }
+
+    @Override
+    public boolean contains(char word){
+        return findEntry(word) >= 0;
+    }
+
+    /**
+     * 读取一个汉字的原始json
+     * dictionary.txt用这个方法，自己解析需要的字段
+     * @param word
+     * @return 没有这个字就返回null
+     */
+    public String readRecord(char word) throws IOException {
+        int entry = findEntry(word);
+        if(entry < 0){
+            return null;
+        }
+
+        int offset = index.getInt(entry + 4);
+        int length = index.getInt(entry + 8);
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()){
+            if(dataChannel.read(buffer, offset + buffer.position()) < 0){
+                throw new IOException("unexpected end of " + dataFile);
+            }
+        }
+        return new String(buffer.array(), 0, length, Charset.forName("UTF-8"));
+    }
+
+    /**
+     * 加载一个汉字  只读取和解析graphics.txt中的这一行
+     * @param word
+     * @return 没有这个字就返回null
+     */
+    @Override
+    public HanziGlyph loadGlyph(char word) throws IOException {
+        String json = readRecord(word);
+        if(json == null){
+            return null;
+        }
+
+        GraphicsRecord record = gson.fromJson(json, GraphicsRecord.class);
+        if(!record.isComplete()){
+            throw new IOException("incomplete record for " + word + " in " + dataFile);
+        }
+        return record.toGlyph(new SvgPathParser());
+    }
+
+    /**
+     * 在哈希表中查找
+     * @param codePoint
+     * @return 表项在索引文件中的位置，没有就返回-1
+     */
+    private int findEntry(int codePoint){
+        int mask = indexCapacity - 1;
+        int slot = mix(codePoint) & mask;
+        for(int i = 0 ; i < indexCapacity ; i ++){
+            int entry = INDEX_HEADER_SIZE + slot * INDEX_ENTRY_SIZE;
+            int value = index.getInt(entry);
+            if(value == codePoint){
+                return entry;
+            }
+            if(value == 0){
+                return -1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * 打开索引文件  检查是否和数据文件对应
+     * @param indexFile
+     * @return 索引是否可用
+     */
+    private boolean openIndex(File indexFile) throws IOException {
+        if(!indexFile.isFile()){
+            return false;
+        }
+
+        RandomAccessFile file = new RandomAccessFile(indexFile, "r");
+        try{
+            FileChannel channel = file.getChannel();
+            if(channel.size() < INDEX_HEADER_SIZE){
+                return false;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if(buffer.getInt(0) != INDEX_MAGIC
+                    || buffer.getShort(4) != INDEX_VERSION
+                    || buffer.getLong(8) != dataFile.length()
+                    || buffer.getLong(16) != dataFile.lastModified()){
+                return false;
+            }
+            int count = buffer.getInt(24);
+            int capacity = buffer.getInt(28);
+            if(capacity <= 0 || (capacity & (capacity - 1)) != 0
+                    || channel.size() != INDEX_HEADER_SIZE + (long) capacity * INDEX_ENTRY_SIZE){
+                return false;
+            }
+
+            index = buffer;
+            indexCount = count;
+            indexCapacity = capacity;
+            return true;
+        }finally {
+            file.close();
+        }
+    }
+
+    /**
+     * 流式扫描数据文件，建立索引
+     * 只需要一个行缓冲区，内存占用只和最长的一行有关
+     * @param indexFile
+     */
+    private void buildIndex(File indexFile) throws IOException {
+        int[] codePoints = new int[1024];
+        int[] offsets = new int[1024];
+        int[] lengths = new int[1024];
+        int count = 0;
+
+        byte[] line = new byte[4096];
+        int lineLength = 0;
+        long lineStart = 0;
+        long position = 0;
+
+        byte[] chunk = new byte[64 * 1024];
+        InputStream in = new FileInputStream(dataFile);
+        try{
+            int read;
+            while (true){
+                read = in.read(chunk);
+                for(int i = 0 ; i < read ; i ++){
+                    byte b = chunk[i];
+                    position ++;
+                    if(b != '\n'){
+                        if(lineLength == line.length){
+                            line = Arrays.copyOf(line, line.length * 2);
+                        }
+                        line[lineLength ++] = b;
+                        continue;
+                    }
+
+                    if(count == codePoints.length){
+                        codePoints = Arrays.copyOf(codePoints, count * 2);
+                        offsets = Arrays.copyOf(offsets, count * 2);
+                        lengths = Arrays.copyOf(lengths, count * 2);
+                    }
+                    if(addLine(line, lineLength, lineStart, codePoints, offsets, lengths, count)){
+                        count ++;
+                    }
+                    lineStart = position;
+                    lineLength = 0;
+                }
+
+                if(read < 0){
+                    //最后一行可能没有换行符
+                    if(count == codePoints.length){
+                        codePoints = Arrays.copyOf(codePoints, count + 1);
+                        offsets = Arrays.copyOf(offsets, count + 1);
+                        lengths = Arrays.copyOf(lengths, count + 1);
+                    }
+                    if(addLine(line, lineLength, lineStart, codePoints, offsets, lengths, count)){
+                        count ++;
+                    }
+                    break;
+                }
+            }
+        }finally {
+            in.close();
+        }
+
+        //负载因子不超过0.5
+        int capacity = 16;
+        while (capacity < count * 2){
+            capacity <<= 1;
+        }
+        int[] table = new int[capacity * 3];
+        int mask = capacity - 1;
+        for(int i = 0 ; i < count ; i ++){
+            int slot = mix(codePoints[i]) & mask;
+            while (table[slot * 3] != 0 && table[slot * 3] != codePoints[i]){
+                slot = (slot + 1) & mask;
+            }
+            table[slot * 3] = codePoints[i];
+            table[slot * 3 + 1] = offsets[i];
+            table[slot * 3 + 2] = lengths[i];
+        }
+
+        //先写临时文件再改名，避免中途失败留下半个索引
+        File tmp = new File(indexFile.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+        try{
+            out.writeInt(INDEX_MAGIC);
+            out.writeShort(INDEX_VERSION);
+            out.writeShort(0);
+            out.writeLong(dataFile.length());
+            out.writeLong(dataFile.lastModified());
+            out.writeInt(count);
+            out.writeInt(capacity);
+            for(int value : table){
+                out.writeInt(value);
+            }
+        }finally {
+            out.close();
+        }
+        if(!tmp.renameTo(indexFile)){
+            indexFile.delete();
+            if(!tmp.renameTo(indexFile)){
+                tmp.delete();
+                throw new IOException("failed to write index " + indexFile);
+            }
+        }
+    }
+
+    /**
+     * 把一行加入索引
+     * @return 这一行是否有汉字
+     */
+    private boolean addLine(byte[] line, int lineLength, long lineStart,
+                            int[] codePoints, int[] offsets, int[] lengths, int count) throws IOException {
+        //去掉windows的换行符
+        if(lineLength > 0 && line[lineLength - 1] == '\r'){
+            lineLength --;
+        }
+
+        int codePoint = findCharacter(line, lineLength);
+        if(codePoint <= 0){
+            return false;
+        }
+        if(lineStart + lineLength > Integer.MAX_VALUE){
+            throw new IOException("data file too large: " + dataFile);
+        }
+        codePoints[count] = codePoint;
+        offsets[count] = (int) lineStart;
+        lengths[count] = lineLength;
+        return true;
+    }
+
+    /**
+     * 在一行json中找到"character"字段的值
+     * @return 码点，没找到返回-1
+     */
+    private static int findCharacter(byte[] line, int length){
+        int keyStart = indexOf(line, length, CHARACTER_KEY);
+        if(keyStart < 0){
+            return -1;
+        }
+
+        int i = keyStart + CHARACTER_KEY.length;
+        while (i < length && (line[i] == ' ' || line[i] == ':')){
+            i ++;
+        }
+        if(i >= length || line[i] != '"'){
+            return -1;
+        }
+        i ++;
+        if(i >= length){
+            return -1;
+        }
+
+        //解码一个utf-8字符
+        int b0 = line[i] & 0xFF;
+        if(b0 < 0x80){
+            return b0;
+        }else if((b0 & 0xE0) == 0xC0 && i + 1 < length){
+            return ((b0 & 0x1F) << 6) | (line[i + 1] & 0x3F);
+        }else if((b0 & 0xF0) == 0xE0 && i + 2 < length){
+            return ((b0 & 0x0F) << 12) | ((line[i + 1] & 0x3F) << 6) | (line[i + 2] & 0x3F);
+        }else if((b0 & 0xF8) == 0xF0 && i + 3 < length){
+            return ((b0 & 0x07) << 18) | ((line[i + 1] & 0x3F) << 12)
+                    | ((line[i + 2] & 0x3F) << 6) | (line[i + 3] & 0x3F);
+        }
+        return -1;
+    }
+
+    private static int indexOf(byte[] data, int length, byte[] target){
+        outer:
+        for(int i = 0 ; i + target.length <= length ; i ++){
+            for(int j = 0 ; j < target.length ; j ++){
+                if(data[i + j] != target[j]){
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * 打散码点  连续的汉字码点不要挤在一起
+     */
+    private static int mix(int codePoint){
+        int h = codePoint * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public void close() throws IOException {
+        data.close();
+    }
+}
@@ -0,0 +1,256 @@
+package com.example.hanzicore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 一个汉字的字形  不可变，可以在多个view、多个线程之间共享
+ *
+ * 只保存1024x1024原始坐标系中的数据：
+ * 每个笔画外框的 命令+绝对坐标（见 {@link HanziBinaryFormat}），每个笔画中线的点
+ * 变换到view坐标见 {@link GlyphTransform}
+ *
+ * 按内容比较  同一个字重新读取或者从别的来源读出来，数据一样就相等，可以共用按它准备的数据
+ */
+public final class HanziGlyph {
+    private final String word;
+    private final byte[][] strokeCommands;
+    private final float[][] strokeCoordinates;
+    private final float[][] medians;
+    private final int strokeCount;
+    private int hash;//内容的哈希  第一次用到时计算
+
+    /**
+     * 数组直接使用，不会复制，之后不要再修改
+     * @param word
+     * @param strokeCommands 每个笔画外框的命令
+     * @param strokeCoordinates 每个笔画外框的绝对坐标
+     * @param medians 每个笔画中线的点 x,y交替
+     */
+    public HanziGlyph(String word, byte[][] strokeCommands, float[][] strokeCoordinates, float[][] medians) {
+        this.word = word;
+        this.strokeCommands = strokeCommands;
+        this.strokeCoordinates = strokeCoordinates;
+        this.medians = medians;
+        this.strokeCount = Math.min(strokeCommands.length, medians.length);
+    }
+
+    /**
+     * 用svg路径字符串构造
+     * @param word
+     * @param strokes 每个笔画外框的svg路径
+     * @param medians 每个笔画中线的点 x,y交替
+     * @param parser 解析器
+     * @return
+     */
+    public static HanziGlyph fromSvg(String word, List<String> strokes, float[][] medians, SvgPathParser parser){
+        byte[][] commands = new byte[strokes.size()][];
+        float[][] coordinates = new float[strokes.size()][];
+        PathRecorder recorder = new PathRecorder();
+        for(int i = 0 ; i < commands.length ; i ++){
+            recorder.reset();
+            parser.parse(strokes.get(i), recorder);
+            commands[i] = recorder.getCommands();
+            coordinates[i] = recorder.getCoordinates();
+        }
+        return new HanziGlyph(word, commands, coordinates, medians);
+    }
+
+    /**
+     * 把json里的三维int列表转成数组
+     * @param medians 每个笔画的中线  每个点是[x,y]
+     * @return 每个笔画一个数组，x,y交替
+     */
+    public static float[][] toMedianArrays(List<List<List<Integer>>> medians){
+        float[][] points = new float[medians.size()][];
+        for(int i = 0 ; i < points.length ; i ++){
+            List<List<Integer>> median = medians.get(i);
+            float[] stroke = new float[median.size() * 2];
+            for(int j = 0 ; j < median.size() ; j ++){
+                stroke[j * 2] = median.get(j).get(0);
+                stroke[j * 2 + 1] = median.get(j).get(1);
+            }
+            points[i] = stroke;
+        }
+        return points;
+    }
+
+    /**
+     * 直接解析medianData字符串  形如 [[[x,y],[x,y]],[[x,y]]]
+     * 第二层的每个数组是一个笔画，第三层是一个点
+     * @param data
+     * @return 每个笔画一个数组，x,y交替
+     */
+    public static float[][] parseMedians(String data){
+        List<float[]> strokes = new ArrayList<>();
+        float[] buffer = new float[64];
+        int count = 0;
+        int depth = 0;
+
+        int length = data.length();
+        for(int i = 0 ; i < length ; i ++){
+            char c = data.charAt(i);
+            if(c == '['){
+                depth ++;
+                if(depth == 2){
+                    count = 0;
+                }
+            }else if(c == ']'){
+                if(depth == 2){
+                    float[] stroke = new float[count - count % 2];
+                    System.arraycopy(buffer, 0, stroke, 0, stroke.length);
+                    strokes.add(stroke);
+                }
+                depth --;
+            }else if(c == '-' || c >= '0' && c <= '9'){
+                boolean negative = c == '-';
+                int value = 0;
+                if(negative){
+                    i ++;
+                }
+                while (i < length && data.charAt(i) >= '0' && data.charAt(i) <= '9'){
+                    value = value * 10 + (data.charAt(i) - '0');
+                    i ++;
+                }
+                //小数部分直接忽略  makemeahanzi的中线都是整数
+                while (i < length && (data.charAt(i) == '.' || data.charAt(i) >= '0' && data.charAt(i) <= '9')){
+                    i ++;
+                }
+                i --;
+
+                if(depth == 3){
+                    if(count == buffer.length){
+                        float[] larger = new float[count * 2];
+                        System.arraycopy(buffer, 0, larger, 0, count);
+                        buffer = larger;
+                    }
+                    buffer[count ++] = negative ? -value : value;
+                }
+            }
+        }
+
+        return strokes.toArray(new float[strokes.size()][]);
+    }
+
+    public String getWord() {
+        return word;
+    }
+
+    /**
+     * 码点  作为缓存的key
+     * @return
+     */
+    public int getCodePoint(){
+        return word == null || word.isEmpty() ? 0 : word.codePointAt(0);
+    }
+
+    /**
+     * 笔画数  外框和中线数量不一致的时候取少的
+     * @return
+     */
+    public int getStrokeCount() {
+        return strokeCount;
+    }
+
+    /**
+     * 外框的数量  可能比笔画数多
+     * @return
+     */
+    public int getOutlineCount(){
+        return strokeCommands.length;
+    }
+
+    /**
+     * 中线的数量  可能比笔画数多
+     * @return
+     */
+    public int getMedianCount(){
+        return medians.length;
+    }
+
+    /**
+     * 一个笔画中线的点  原始坐标 x,y交替  不要修改
+     * @param index
+     * @return
+     */
+    public float[] getMedian(int index){
+        return medians[index];
+    }
+
+    /**
+     * 一个笔画外框的命令  不要修改
+     */
+    public byte[] getStrokeCommands(int index){
+        return strokeCommands[index];
+    }
+
+    /**
+     * 一个笔画外框的绝对坐标  不要修改
+     */
+    public float[] getStrokeCoordinates(int index){
+        return strokeCoordinates[index];
+    }
+
+    /**
+     * 把一个笔画的外框输出到sink  原始坐标
+     * @param index
+     * @param sink
+     */
+    public void replayStroke(int index, PathSink sink){
+        byte[] commands = strokeCommands[index];
+        float[] c = strokeCoordinates[index];
+        int offset = 0;
+        for(byte command : commands){
+            switch (command){
+                case HanziBinaryFormat.CMD_MOVE_TO:
+                    sink.moveTo(c[offset], c[offset + 1]);
+                    break;
+                case HanziBinaryFormat.CMD_LINE_TO:
+                    sink.lineTo(c[offset], c[offset + 1]);
+                    break;
+                case HanziBinaryFormat.CMD_QUAD_TO:
+                    sink.quadTo(c[offset], c[offset + 1], c[offset + 2], c[offset + 3]);
+                    break;
+                case HanziBinaryFormat.CMD_CUBIC_TO:
+                    sink.cubicTo(c[offset], c[offset + 1], c[offset + 2], c[offset + 3],
+                            c[offset + 4], c[offset + 5]);
+                    break;
+                case HanziBinaryFormat.CMD_CLOSE:
+                    sink.close();
+                    break;
+            }
+            offset += HanziBinaryFormat.getCoordinateCount(command);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o){
+            return true;
+        }
+        if(!(o instanceof HanziGlyph)){
+            return false;
+        }
+        HanziGlyph other = (HanziGlyph) o;
+        return hashCode() == other.hashCode()
+                && (word == null ? other.word == null : word.equals(other.word))
+                && Arrays.deepEquals(strokeCommands, other.strokeCommands)
+                && Arrays.deepEquals(strokeCoordinates, other.strokeCoordinates)
+                && Arrays.deepEquals(medians, other.medians);
+    }
+
+    @Override
+    public int hashCode() {
+        //不可变  算过一次就不用再算，多个线程同时算结果也一样
+        int h = hash;
+        if(h == 0){
+            h = word == null ? 0 : word.hashCode();
+            h = h * 31 + Arrays.deepHashCode(strokeCommands);
+            h = h * 31 + Arrays.deepHashCode(strokeCoordinates);
+            h = h * 31 + Arrays.deepHashCode(medians);
+            hash = h;
+        }
+        return h;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.hanzicore;
+
+import java.io.IOException;
+
+/**
+ * 汉字字形的来源
+ * 可能在多个后台线程同时调用，实现需要保证同时读取是安全的
+ */
+public interface HanziGlyphSource {
+    boolean contains(char word);
+
+    /**
+     * 加载一个汉字的字形
+     * @param word
+     * @return 没有这个字就返回null
+     */
+    HanziGlyph loadGlyph(char word) throws IOException;
+}
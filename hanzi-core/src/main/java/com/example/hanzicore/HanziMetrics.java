@@ -0,0 +1,160 @@
+package com.example.hanzicore;
+
+/**
+ * 运行时的性能数据
+ *
+ * 每种耗时一个 {@link LatencyHistogram}，都是预先分配好的，记录时不分配内存，release版本也可以一直开着
+ * 需要的时候用snapshot导出，或者设置Listener自己收集每一次的值
+ *
+ * 默认不记录，把同一个对象设置给view、HanziBean和HanziRepository就会开始记录
+ * 线程安全
+ */
+public class HanziMetrics {
+    public static final int DEFAULT_RECENT_CAPACITY = 64;
+
+    public enum Metric {
+        /**
+         * 读取一个字  包括磁盘缓存、数据文件和svg解析
+         */
+        GLYPH_LOAD,
+        /**
+         * 解析svg生成字形
+         */
+        GLYPH_PARSE,
+        /**
+         * 按view的宽高准备绘制数据  initHanzi
+         */
+        LAYOUT,
+        /**
+         * 一次onDraw
+         */
+        DRAW,
+        /**
+         * 从触摸事件发生到发出重绘请求
+         */
+        TOUCH_LATENCY,
+        /**
+         * 一个触摸采样点的判定
+         */
+        HIT_TEST,
+        /**
+         * 自由书写时写完一笔之后更新候选字
+         */
+        RECOGNITION
+    }
+
+    private static final Metric[] METRICS = Metric.values();
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[METRICS.length];
+    private volatile Listener listener;
+
+    public HanziMetrics() {
+        this(DEFAULT_RECENT_CAPACITY);
+    }
+
+    /**
+     * @param recentCapacity 每种耗时保留最近多少个原始值
+     */
+    public HanziMetrics(int recentCapacity) {
+        for(int i = 0 ; i < histograms.length ; i ++){
+            histograms[i] = new LatencyHistogram(recentCapacity);
+        }
+    }
+
+    /**
+     * 每次记录的时候回调  在记录的线程里调用，不要做耗时的事情
+     * @param listener 可以为null
+     */
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 记录一次耗时
+     * @param metric
+     * @param nanos 纳秒
+     */
+    public void record(Metric metric, long nanos){
+        histograms[metric.ordinal()].record(nanos);
+        Listener l = listener;
+        if(l != null){
+            l.onSample(metric, nanos);
+        }
+    }
+
+    /**
+     * 记录从start到现在的耗时
+     * @param metric
+     * @param startNanos System.nanoTime()
+     */
+    public void recordSince(Metric metric, long startNanos){
+        record(metric, System.nanoTime() - startNanos);
+    }
+
+    public LatencyHistogram getHistogram(Metric metric){
+        return histograms[metric.ordinal()];
+    }
+
+    public void reset(){
+        for(LatencyHistogram histogram : histograms){
+            histogram.reset();
+        }
+    }
+
+    /**
+     * 导出当前的数据
+     * @return
+     */
+    public Snapshot snapshot(){
+        LatencyHistogram.Snapshot[] snapshots = new LatencyHistogram.Snapshot[histograms.length];
+        for(int i = 0 ; i < histograms.length ; i ++){
+            snapshots[i] = histograms[i].snapshot();
+        }
+        return new Snapshot(System.currentTimeMillis(), snapshots);
+    }
+
+    public interface Listener{
+        /**
+         * 记录了一次耗时
+         * @param metric
+         * @param nanos 纳秒
+         */
+        void onSample(Metric metric, long nanos);
+    }
+
+    /**
+     * 某个时刻所有耗时的数据  不可变
+     */
+    public static final class Snapshot {
+        private final long time;
+        private final LatencyHistogram.Snapshot[] histograms;
+
+        Snapshot(long time, LatencyHistogram.Snapshot[] histograms) {
+            this.time = time;
+            this.histograms = histograms;
+        }
+
+        /**
+         * 导出的时间 毫秒
+         */
+        public long getTime() {
+            return time;
+        }
+
+        public LatencyHistogram.Snapshot get(Metric metric){
+            return histograms[metric.ordinal()];
+        }
+
+        /**
+         * 每种耗时一行  可以直接写进日志
+         */
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder("HanziMetrics@").append(time);
+            for(Metric metric : METRICS){
+                builder.append('\n').append(metric).append(' ').append(get(metric));
+            }
+            return builder.toString();
+        }
+    }
+}
@@ -0,0 +1,497 @@
+package com.example.hanzicore;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 自由书写识别  用户随便写一个字，和整个数据集的中线比较，给出候选字
+ *
+ * 建立时把每个字每一笔的特征预先算好，都放在几个连续的基本类型数组里：
+ * 笔画数、粗特征（起笔/收笔方向 + 起点/终点格子，见 {@link StrokeFeatures}）、8个点的形状、原始中线
+ * 另外按首笔的 起笔方向+起点格子 建立倒排索引
+ *
+ * 识别是增量的，用户每写完一笔调用一次 {@link Session#addStroke(float[])}：
+ * 1. 第一笔从倒排索引取出相近的字，之后每一笔只在剩下的候选里按第k笔的粗特征过滤，同时累加形状距离
+ * 2. 按粗略的分数取前SHORT_LIST个，用32个点的形状精确打分
+ * 过滤只是整数比较和位运算，在完整的9000多字上也远小于1毫秒
+ *
+ * 要求按正确的笔顺书写。坐标都是原始坐标系（y轴向上），view坐标用 {@link GlyphTransform} 换算
+ *
+ * 索引不可变，可以在多个线程之间共享；Session只能在一个线程里使用
+ */
+public class HanziRecognizer {
+    static final int SHAPE_POINTS = 8;      //粗略比较形状的采样点数
+    static final int PRECISE_POINTS = 32;   //精确打分的采样点数
+    private static final int SHORT_LIST = 48;
+    private static final float MISS_PENALTY = 96;      //一笔的粗特征对不上  原始坐标单位
+    private static final float REMAINING_PENALTY = 16; //还有一笔没写
+
+    private final int glyphCount;
+    private final int[] codePoints;
+    private final int[] strokeStart;        //第i个字的第一笔在笔画数组里的位置  长度glyphCount + 1
+    private final int[] codes;              //每一笔的粗特征
+    private final short[] shapes;           //每一笔SHAPE_POINTS个点 x,y交替
+    private final int[] medianStart;        //每一笔的中线在medianPoints里的位置  长度为笔画总数 + 1
+    private final short[] medianPoints;     //原始中线 x,y交替
+    private final int[] firstKeyStart;      //首笔索引  长度FIRST_KEY_COUNT + 1
+    private final int[] firstKeyGlyphs;
+
+    private HanziRecognizer(Builder builder) {
+        glyphCount = builder.glyphCount;
+        codePoints = Arrays.copyOf(builder.codePoints, glyphCount);
+        strokeStart = Arrays.copyOf(builder.strokeStart, glyphCount + 1);
+        int strokes = strokeStart[glyphCount];
+        codes = Arrays.copyOf(builder.codes, strokes);
+        shapes = Arrays.copyOf(builder.shapes, strokes * SHAPE_POINTS * 2);
+        medianStart = Arrays.copyOf(builder.medianStart, strokes + 1);
+        medianPoints = Arrays.copyOf(builder.medianPoints, medianStart[strokes]);
+
+        //按首笔的key分组  计数之后再填，每组里按添加的顺序
+        firstKeyStart = new int[StrokeFeatures.FIRST_KEY_COUNT + 1];
+        for(int i = 0 ; i < glyphCount ; i ++){
+            firstKeyStart[StrokeFeatures.firstKey(codes[strokeStart[i]]) + 1] ++;
+        }
+        for(int i = 0 ; i < StrokeFeatures.FIRST_KEY_COUNT ; i ++){
+            firstKeyStart[i + 1] += firstKeyStart[i];
+        }
+        firstKeyGlyphs = new int[glyphCount];
+        int[] cursor = Arrays.copyOf(firstKeyStart, StrokeFeatures.FIRST_KEY_COUNT);
+        for(int i = 0 ; i < glyphCount ; i ++){
+            firstKeyGlyphs[cursor[StrokeFeatures.firstKey(codes[strokeStart[i]])] ++] = i;
+        }
+    }
+
+    /**
+     * 用二进制数据文件里的所有汉字建立索引  损坏的记录跳过，不影响其他的字
+     * @param reader
+     * @return
+     */
+    public static HanziRecognizer build(HanziBinaryReader reader){
+        Builder builder = new Builder();
+        for(int i = 0 ; i < reader.getGlyphCount() ; i ++){
+            HanziGlyph glyph;
+            try{
+                glyph = reader.loadGlyph(reader.getCodePoint(i));
+            }catch (IOException e){
+                continue;
+            }
+            if(glyph != null){
+                builder.add(glyph);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * 收录了多少个字
+     * @return
+     */
+    public int getGlyphCount() {
+        return glyphCount;
+    }
+
+    /**
+     * 开始识别一个字
+     * @return
+     */
+    public Session newSession(){
+        return new Session();
+    }
+
+    private int glyphStrokeCount(int glyph){
+        return strokeStart[glyph + 1] - strokeStart[glyph];
+    }
+
+    /**
+     * 用户的一笔和某个字第stroke笔的粗略形状距离  平均每个点
+     */
+    private float shapeDistance(int stroke, float[] samples, int offset){
+        int base = stroke * SHAPE_POINTS * 2;
+        float sum = 0;
+        for(int i = 0 ; i < SHAPE_POINTS * 2 ; i += 2){
+            float dx = shapes[base + i] - samples[offset + i];
+            float dy = shapes[base + i + 1] - samples[offset + i + 1];
+            sum += (float) Math.sqrt(dx * dx + dy * dy);
+        }
+        return sum / SHAPE_POINTS;
+    }
+
+    private static float meanDistance(float[] a, int aOffset, float[] b, int bOffset, int count){
+        float sum = 0;
+        for(int i = 0 ; i < count * 2 ; i += 2){
+            float dx = a[aOffset + i] - b[bOffset + i];
+            float dy = a[aOffset + i + 1] - b[bOffset + i + 1];
+            sum += (float) Math.sqrt(dx * dx + dy * dy);
+        }
+        return sum / count;
+    }
+
+    /**
+     * 一次识别  保存用户写过的笔画和当前的候选
+     * 候选数组都是建立时按字数分配好的，写一笔不会再分配
+     */
+    public class Session {
+        private final int[] candidates = new int[glyphCount];
+        private final byte[] misses = new byte[glyphCount];        //粗特征对不上的笔数
+        private final float[] distances = new float[glyphCount];   //累计的粗略形状距离
+        private int candidateCount;
+
+        private int strokeCount;
+        private int[] userCodes = new int[16];
+        private float[] userShapes = new float[16 * SHAPE_POINTS * 2];
+        private float[] userPrecise = new float[16 * PRECISE_POINTS * 2];
+
+        //精确打分
+        private final int[] shortList = new int[SHORT_LIST];
+        private final byte[] shortMisses = new byte[SHORT_LIST];
+        private final float[] shortScores = new float[SHORT_LIST];
+        private final int[] coarseList = new int[SHORT_LIST];
+        private final byte[] coarseMisses = new byte[SHORT_LIST];
+        private int shortCount;
+        private final float[] medianSamples = new float[PRECISE_POINTS * 2];
+        private float[] medianBuffer = new float[64];
+
+        private Session() {
+        }
+
+        /**
+         * 已经写了几笔
+         * @return
+         */
+        public int getStrokeCount() {
+            return strokeCount;
+        }
+
+        /**
+         * 过滤之后还剩多少个字
+         * @return
+         */
+        public int getCandidateCount() {
+            return candidateCount;
+        }
+
+        /**
+         * 写完了一笔  更新候选
+         * @param points 原始坐标 x,y交替
+         */
+        public void addStroke(float[] points){
+            if(points.length < 2){
+                return;
+            }
+            ensureStrokeCapacity(strokeCount + 1);
+            StrokeFeatures.resample(points, SHAPE_POINTS, userShapes, strokeCount * SHAPE_POINTS * 2);
+            StrokeFeatures.resample(points, PRECISE_POINTS, userPrecise, strokeCount * PRECISE_POINTS * 2);
+            userCodes[strokeCount] = StrokeFeatures.encode(userShapes, strokeCount * SHAPE_POINTS * 2, SHAPE_POINTS);
+            strokeCount ++;
+
+            filter(strokeCount - 1);
+            score();
+        }
+
+        /**
+         * 撤销最后一笔  从第一笔重新过滤
+         */
+        public void removeLastStroke(){
+            if(strokeCount == 0){
+                return;
+            }
+            strokeCount --;
+            candidateCount = 0;
+            for(int i = 0 ; i < strokeCount ; i ++){
+                filter(i);
+            }
+            score();
+        }
+
+        /**
+         * 清空  重新写
+         */
+        public void reset(){
+            strokeCount = 0;
+            candidateCount = 0;
+            shortCount = 0;
+        }
+
+        /**
+         * 最好的几个候选字  分数从小到大
+         * @param max 最多几个
+         * @return
+         */
+        public List<Candidate> getCandidates(int max){
+            int count = Math.min(max, shortCount);
+            if(count <= 0){
+                return Collections.emptyList();
+            }
+            List<Candidate> result = new ArrayList<>(count);
+            for(int i = 0 ; i < count ; i ++){
+                int glyph = shortList[i];
+                result.add(new Candidate(codePoints[glyph], glyphStrokeCount(glyph), shortScores[i]));
+            }
+            return result;
+        }
+
+        /**
+         * 按用户的第stroke笔过滤候选
+         */
+        private void filter(int stroke){
+            int code = userCodes[stroke];
+            int shapeOffset = stroke * SHAPE_POINTS * 2;
+            int endDirections = StrokeFeatures.directionMask(StrokeFeatures.endDirection(code));
+            int endCells = StrokeFeatures.cellMask(StrokeFeatures.endCell(code));
+
+            if(stroke == 0){
+                //第一笔  只看起笔方向和起点格子相近的几组
+                int startDirections = StrokeFeatures.directionMask(StrokeFeatures.startDirection(code));
+                int startCells = StrokeFeatures.cellMask(StrokeFeatures.startCell(code));
+                candidateCount = 0;
+                for(int direction = 0 ; direction < StrokeFeatures.DIRECTIONS ; direction ++){
+                    if((startDirections & 1 << direction) == 0){
+                        continue;
+                    }
+                    for(int cell = 0 ; cell < StrokeFeatures.CELLS ; cell ++){
+                        if((startCells & 1 << cell) == 0){
+                            continue;
+                        }
+                        int key = direction * StrokeFeatures.CELLS + cell;
+                        for(int i = firstKeyStart[key] ; i < firstKeyStart[key + 1] ; i ++){
+                            int glyph = firstKeyGlyphs[i];
+                            int first = codes[strokeStart[glyph]];
+                            if((endDirections & 1 << StrokeFeatures.endDirection(first)) == 0
+                                    || (endCells & 1 << StrokeFeatures.endCell(first)) == 0){
+                                continue;
+                            }
+                            candidates[candidateCount] = glyph;
+                            misses[candidateCount] = 0;
+                            distances[candidateCount] = shapeDistance(strokeStart[glyph], userShapes, shapeOffset);
+                            candidateCount ++;
+                        }
+                    }
+                }
+                return;
+            }
+
+            //之后的笔画  在剩下的候选里原地过滤，允许每3笔有1笔对不上
+            int startDirections = StrokeFeatures.directionMask(StrokeFeatures.startDirection(code));
+            int startCells = StrokeFeatures.cellMask(StrokeFeatures.startCell(code));
+            int allowedMisses = (stroke + 1) / 3;
+            int kept = 0;
+            for(int i = 0 ; i < candidateCount ; i ++){
+                int glyph = candidates[i];
+                if(glyphStrokeCount(glyph) <= stroke){
+                    continue;
+                }
+                int index = strokeStart[glyph] + stroke;
+                int other = codes[index];
+                int miss = misses[i];
+                if((startDirections & 1 << StrokeFeatures.startDirection(other)) == 0
+                        || (endDirections & 1 << StrokeFeatures.endDirection(other)) == 0
+                        || (startCells & 1 << StrokeFeatures.startCell(other)) == 0
+                        || (endCells & 1 << StrokeFeatures.endCell(other)) == 0){
+                    miss ++;
+                    if(miss > allowedMisses){
+                        continue;
+                    }
+                }
+                candidates[kept] = glyph;
+                misses[kept] = (byte) miss;
+                distances[kept] = distances[i] + shapeDistance(index, userShapes, shapeOffset);
+                kept ++;
+            }
+            candidateCount = kept;
+        }
+
+        /**
+         * 粗略的分数取前SHORT_LIST个，再精确打分排序
+         */
+        private void score(){
+            shortCount = 0;
+            for(int i = 0 ; i < candidateCount ; i ++){
+                int glyph = candidates[i];
+                float score = distances[i] / strokeCount + penalty(glyph, misses[i]);
+                if(shortCount == SHORT_LIST && score >= shortScores[SHORT_LIST - 1]){
+                    continue;
+                }
+                insert(glyph, misses[i], score);
+            }
+
+            //粗略的分数只用来挑出短名单，重新精确打分
+            int count = shortCount;
+            System.arraycopy(shortList, 0, coarseList, 0, count);
+            System.arraycopy(shortMisses, 0, coarseMisses, 0, count);
+            shortCount = 0;
+            for(int i = 0 ; i < count ; i ++){
+                int glyph = coarseList[i];
+                insert(glyph, coarseMisses[i], preciseDistance(glyph) + penalty(glyph, coarseMisses[i]));
+            }
+        }
+
+        private float penalty(int glyph, int miss){
+            return MISS_PENALTY * miss + REMAINING_PENALTY * (glyphStrokeCount(glyph) - strokeCount);
+        }
+
+        /**
+         * 按分数插入短名单  满了就挤掉最后一个
+         */
+        private void insert(int glyph, byte miss, float score){
+            int position = shortCount < SHORT_LIST ? shortCount : SHORT_LIST - 1;
+            while (position > 0 && shortScores[position - 1] > score){
+                shortList[position] = shortList[position - 1];
+                shortMisses[position] = shortMisses[position - 1];
+                shortScores[position] = shortScores[position - 1];
+                position --;
+            }
+            shortList[position] = glyph;
+            shortMisses[position] = miss;
+            shortScores[position] = score;
+            if(shortCount < SHORT_LIST){
+                shortCount ++;
+            }
+        }
+
+        /**
+         * 已经写的每一笔和中线按PRECISE_POINTS个点比较  平均距离
+         */
+        private float preciseDistance(int glyph){
+            float sum = 0;
+            for(int stroke = 0 ; stroke < strokeCount ; stroke ++){
+                int index = strokeStart[glyph] + stroke;
+                int from = medianStart[index];
+                int length = medianStart[index + 1] - from;
+                //只在不够长的时候换大的  多出来的部分不用
+                if(medianBuffer.length < length){
+                    medianBuffer = new float[Math.max(length, medianBuffer.length * 2)];
+                }
+                for(int i = 0 ; i < length ; i ++){
+                    medianBuffer[i] = medianPoints[from + i];
+                }
+                StrokeFeatures.resample(medianBuffer, length, PRECISE_POINTS, medianSamples, 0);
+                sum += meanDistance(medianSamples, 0, userPrecise, stroke * PRECISE_POINTS * 2, PRECISE_POINTS);
+            }
+            return sum / strokeCount;
+        }
+
+        private void ensureStrokeCapacity(int count){
+            if(userCodes.length >= count){
+                return;
+            }
+            int capacity = Math.max(count, userCodes.length * 2);
+            userCodes = Arrays.copyOf(userCodes, capacity);
+            userShapes = Arrays.copyOf(userShapes, capacity * SHAPE_POINTS * 2);
+            userPrecise = Arrays.copyOf(userPrecise, capacity * PRECISE_POINTS * 2);
+        }
+    }
+
+    /**
+     * 一个候选字
+     */
+    public static final class Candidate {
+        private final int codePoint;
+        private final int strokeCount;
+        private final float score;
+
+        Candidate(int codePoint, int strokeCount, float score) {
+            this.codePoint = codePoint;
+            this.strokeCount = strokeCount;
+            this.score = score;
+        }
+
+        public int getCodePoint() {
+            return codePoint;
+        }
+
+        public String getWord(){
+            return new String(Character.toChars(codePoint));
+        }
+
+        /**
+         * 这个字总共几笔
+         * @return
+         */
+        public int getStrokeCount() {
+            return strokeCount;
+        }
+
+        /**
+         * 分数  越小越像，大约是平均每个点差了多少原始坐标单位
+         * @return
+         */
+        public float getScore() {
+            return score;
+        }
+
+        @Override
+        public String toString() {
+            return getWord() + " " + score;
+        }
+    }
+
+    /**
+     * 逐个添加字形  最后build
+     */
+    public static class Builder {
+        private int glyphCount;
+        private int[] codePoints = new int[256];
+        private int[] strokeStart = new int[257];
+        private int strokeCount;
+        private int[] codes = new int[1024];
+        private short[] shapes = new short[1024 * SHAPE_POINTS * 2];
+        private int[] medianStart = new int[1025];
+        private short[] medianPoints = new short[8192];
+        private final float[] samples = new float[SHAPE_POINTS * 2];
+
+        /**
+         * 添加一个字  只用到中线，没有笔画的字会被忽略
+         * @param glyph
+         * @return
+         */
+        public Builder add(HanziGlyph glyph){
+            int strokes = glyph.getStrokeCount();
+            if(strokes == 0){
+                return this;
+            }
+            if(glyphCount + 1 >= codePoints.length){
+                codePoints = Arrays.copyOf(codePoints, codePoints.length * 2);
+                strokeStart = Arrays.copyOf(strokeStart, codePoints.length + 1);
+            }
+            if(strokeCount + strokes >= codes.length){
+                int capacity = Math.max(strokeCount + strokes, codes.length * 2);
+                codes = Arrays.copyOf(codes, capacity);
+                shapes = Arrays.copyOf(shapes, capacity * SHAPE_POINTS * 2);
+                medianStart = Arrays.copyOf(medianStart, capacity + 1);
+            }
+
+            codePoints[glyphCount] = glyph.getCodePoint();
+            for(int i = 0 ; i < strokes ; i ++){
+                float[] median = glyph.getMedian(i);
+                StrokeFeatures.resample(median, SHAPE_POINTS, samples, 0);
+                codes[strokeCount] = StrokeFeatures.encode(samples, 0, SHAPE_POINTS);
+                int shapeOffset = strokeCount * SHAPE_POINTS * 2;
+                for(int j = 0 ; j < samples.length ; j ++){
+                    shapes[shapeOffset + j] = (short) Math.round(samples[j]);
+                }
+
+                //原始坐标都是-124到1024之间的整数，用short保存
+                int from = medianStart[strokeCount];
+                int length = median.length - median.length % 2;
+                if(from + length > medianPoints.length){
+                    medianPoints = Arrays.copyOf(medianPoints, Math.max(from + length, medianPoints.length * 2));
+                }
+                for(int j = 0 ; j < length ; j ++){
+                    medianPoints[from + j] = (short) Math.round(median[j]);
+                }
+                medianStart[strokeCount + 1] = from + length;
+                strokeCount ++;
+            }
+            glyphCount ++;
+            strokeStart[glyphCount] = strokeCount;
+            return this;
+        }
+
+        public HanziRecognizer build(){
+            return new HanziRecognizer(this);
+        }
+    }
+}
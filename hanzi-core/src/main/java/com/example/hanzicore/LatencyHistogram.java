@@ -0,0 +1,222 @@
+package com.example.hanzicore;
+
+import java.util.Arrays;
+
+/**
+ * 耗时的直方图  记录时不分配内存，可以一直开着
+ *
+ * 按微秒分桶：0~3微秒每微秒一个桶，之后每个2的幂次区间再平分成4个桶，误差不超过25%，最大到半个多小时
+ * 另外用一个环形缓冲区保存最近的几个原始值，看最近有没有突然变慢
+ *
+ * 线程安全
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 30;
+    public static final int BUCKET_COUNT = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    private final long[] recent;    //最近的原始值 纳秒
+    private int recentCursor;       //下一个写入的位置
+    private int recentSize;
+
+    /**
+     * @param recentCapacity 保留最近多少个原始值
+     */
+    public LatencyHistogram(int recentCapacity) {
+        this.recent = new long[Math.max(recentCapacity, 0)];
+    }
+
+    /**
+     * 记录一次耗时
+     * @param nanos 纳秒  负数按0算
+     */
+    public synchronized void record(long nanos){
+        if(nanos < 0){
+            nanos = 0;
+        }
+        counts[bucketOf(nanos)] ++;
+        count ++;
+        sum += nanos;
+        if(nanos < min){
+            min = nanos;
+        }
+        if(nanos > max){
+            max = nanos;
+        }
+
+        if(recent.length > 0){
+            recent[recentCursor] = nanos;
+            recentCursor = recentCursor + 1 == recent.length ? 0 : recentCursor + 1;
+            if(recentSize < recent.length){
+                recentSize ++;
+            }
+        }
+    }
+
+    public synchronized void reset(){
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+        recentCursor = 0;
+        recentSize = 0;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * 复制当前的数据
+     * @return
+     */
+    public synchronized Snapshot snapshot(){
+        long[] samples = new long[recentSize];
+        int start = recentSize < recent.length ? 0 : recentCursor;
+        for(int i = 0 ; i < recentSize ; i ++){
+            samples[i] = recent[(start + i) % recent.length];
+        }
+        return new Snapshot(counts.clone(), count, sum, count == 0 ? 0 : min, max, samples);
+    }
+
+    /**
+     * 一个耗时落在哪个桶
+     * @param nanos
+     * @return
+     */
+    public static int bucketOf(long nanos){
+        long micros = nanos / 1000;
+        if(micros < SUB_BUCKETS){
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if(exponent > MAX_EXPONENT){
+            return BUCKET_COUNT - 1;
+        }
+        int sub = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * 桶的下限 纳秒  包含
+     * @param bucket
+     * @return
+     */
+    public static long bucketLowerBound(int bucket){
+        if(bucket < SUB_BUCKETS){
+            return bucket * 1000L;
+        }
+        int exponent = (bucket - SUB_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS;
+        int sub = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS)) * 1000L;
+    }
+
+    /**
+     * 桶的上限 纳秒  不包含
+     * @param bucket
+     * @return
+     */
+    public static long bucketUpperBound(int bucket){
+        return bucket + 1 < BUCKET_COUNT ? bucketLowerBound(bucket + 1) : Long.MAX_VALUE;
+    }
+
+    /**
+     * 某个时刻的直方图  不可变
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long min;
+        private final long max;
+        private final long[] recent;
+
+        Snapshot(long[] counts, long count, long sum, long min, long max, long[] recent) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.min = min;
+            this.max = max;
+            this.recent = recent;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public long getMin() {
+            return min;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public long getMean(){
+            return count == 0 ? 0 : sum / count;
+        }
+
+        /**
+         * 第几个桶里有多少个
+         */
+        public long getBucketCount(int bucket){
+            return counts[bucket];
+        }
+
+        /**
+         * 最近的原始值 纳秒  从旧到新
+         */
+        public long[] getRecent() {
+            return recent.clone();
+        }
+
+        /**
+         * 百分位数  返回所在桶的上限，不会超过最大值
+         * @param percentile 0到100
+         * @return 纳秒
+         */
+        public long getPercentile(double percentile){
+            if(count == 0){
+                return 0;
+            }
+            long target = (long) Math.ceil(count * Math.max(0, Math.min(percentile, 100)) / 100);
+            if(target <= 0){
+                return min;
+            }
+            long seen = 0;
+            for(int i = 0 ; i < counts.length ; i ++){
+                seen += counts[i];
+                if(seen >= target){
+                    return Math.max(min, Math.min(max, bucketUpperBound(i)));
+                }
+            }
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + count
+                    + " mean=" + micros(getMean())
+                    + " p50=" + micros(getPercentile(50))
+                    + " p90=" + micros(getPercentile(90))
+                    + " p99=" + micros(getPercentile(99))
+                    + " max=" + micros(max);
+        }
+
+        private static String micros(long nanos){
+            return (nanos / 1000) + "us";
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.hanzicore;
+
+/**
+ * 一个笔画的中线  已经变换到view坐标
+ *
+ * 点用float数组保存，x,y交替
+ * 每一段（第i个点到第i+1个点）的方向向量、长度的平方和外接矩形都预先算好
+ * 判断触摸点的时候不需要再装箱、分配内存或者重新换算坐标
+ * 弧长表也预先算好，播放动画时按长度截取笔画不需要PathMeasure
+ */
+public class MedianStroke {
+    private final float[] points;
+    private final int pointCount;
+
+    //每一段的方向向量和长度的平方
+    private final float[] segmentDx;
+    private final float[] segmentDy;
+    private final float[] segmentLengthSquared;
+    //每一段的外接矩形  minX minY maxX maxY 交替
+    private final float[] segmentBounds;
+
+    //整个笔画的外接矩形
+    private float minX, minY, maxX, maxY;
+
+    //弧长表  从起点到第i个点的长度
+    private final float[] lengths;
+
+    /**
+     * @param points view坐标 x,y交替  直接使用，不会复制
+     */
+    public MedianStroke(float[] points) {
+        this.points = points;
+        this.pointCount = points.length / 2;
+
+        int segmentCount = Math.max(pointCount - 1, 0);
+        segmentDx = new float[segmentCount];
+        segmentDy = new float[segmentCount];
+        segmentLengthSquared = new float[segmentCount];
+        segmentBounds = new float[segmentCount * 4];
+
+        lengths = new float[pointCount];
+
+        minX = minY = Float.MAX_VALUE;
+        maxX = maxY = -Float.MAX_VALUE;
+        for(int i = 0 ; i < pointCount ; i ++){
+            float x = points[i * 2];
+            float y = points[i * 2 + 1];
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+
+            if(i < segmentCount){
+                float x2 = points[i * 2 + 2];
+                float y2 = points[i * 2 + 3];
+                float dx = x2 - x;
+                float dy = y2 - y;
+                segmentDx[i] = dx;
+                segmentDy[i] = dy;
+                segmentLengthSquared[i] = dx * dx + dy * dy;
+                segmentBounds[i * 4] = Math.min(x, x2);
+                segmentBounds[i * 4 + 1] = Math.min(y, y2);
+                segmentBounds[i * 4 + 2] = Math.max(x, x2);
+                segmentBounds[i * 4 + 3] = Math.max(y, y2);
+                lengths[i + 1] = lengths[i] + (float) Math.sqrt(segmentLengthSquared[i]);
+            }
+        }
+        if(pointCount == 0){
+            minX = minY = maxX = maxY = 0;
+        }
+    }
+
+    public int getPointCount() {
+        return pointCount;
+    }
+
+    public int getSegmentCount() {
+        return segmentDx.length;
+    }
+
+    public float getX(int index){
+        return points[index * 2];
+    }
+
+    public float getY(int index){
+        return points[index * 2 + 1];
+    }
+
+    /**
+     * 所有点  x,y交替  不要修改
+     * @return
+     */
+    public float[] getPoints() {
+        return points;
+    }
+
+    public float getSegmentDx(int segment){
+        return segmentDx[segment];
+    }
+
+    public float getSegmentDy(int segment){
+        return segmentDy[segment];
+    }
+
+    public float getSegmentLengthSquared(int segment){
+        return segmentLengthSquared[segment];
+    }
+
+    public float getSegmentMinX(int segment){
+        return segmentBounds[segment * 4];
+    }
+
+    public float getSegmentMinY(int segment){
+        return segmentBounds[segment * 4 + 1];
+    }
+
+    public float getSegmentMaxX(int segment){
+        return segmentBounds[segment * 4 + 2];
+    }
+
+    public float getSegmentMaxY(int segment){
+        return segmentBounds[segment * 4 + 3];
+    }
+
+    /**
+     * 笔画的总长度
+     * @return
+     */
+    public float getLength(){
+        return pointCount == 0 ? 0 : lengths[pointCount - 1];
+    }
+
+    /**
+     * 从起点到第index个点的长度
+     * @param index
+     * @return
+     */
+    public float getLengthAt(int index){
+        return lengths[index];
+    }
+
+    /**
+     * 取出从起点开始、长度为distance的一段折线
+     * 用弧长表二分查找，不分配内存
+     * @param distance 长度  超过总长度就取整个笔画
+     * @param sink 接收折线
+     */
+    public void extract(float distance, PathSink sink){
+        if(pointCount == 0){
+            return;
+        }
+
+        sink.moveTo(points[0], points[1]);
+        if(distance <= 0){
+            return;
+        }
+
+        //找到最后一个长度不超过distance的点
+        int low = 0;
+        int high = pointCount - 1;
+        while (low < high){
+            int mid = (low + high + 1) >>> 1;
+            if(lengths[mid] <= distance){
+                low = mid;
+            }else{
+                high = mid - 1;
+            }
+        }
+
+        for(int i = 1 ; i <= low ; i ++){
+            sink.lineTo(points[i * 2], points[i * 2 + 1]);
+        }
+        if(low < pointCount - 1){
+            float segmentLength = lengths[low + 1] - lengths[low];
+            float t = segmentLength > 0 ? (distance - lengths[low]) / segmentLength : 0;
+            sink.lineTo(points[low * 2] + segmentDx[low] * t, points[low * 2 + 1] + segmentDy[low] * t);
+        }
+    }
+
+    public float getMinX() {
+        return minX;
+    }
+
+    public float getMinY() {
+        return minY;
+    }
+
+    public float getMaxX() {
+        return maxX;
+    }
+
+    public float getMaxY() {
+        return maxY;
+    }
+}
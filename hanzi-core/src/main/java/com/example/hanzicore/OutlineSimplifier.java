@@ -0,0 +1,301 @@
+package com.example.hanzicore;
+
+import java.util.Arrays;
+
+/**
+ * 简化笔画外框  用于小尺寸的绘制
+ *
+ * 先把二次、三次曲线按误差拆成折线（曲线拍平），再用Ramer–Douglas–Peucker算法去掉多余的点
+ * 输出只有moveTo、lineTo和close，和原来的外框相差不超过tolerance
+ * 两步的误差会叠加：拍平用tolerance的1/4，去点用剩下的3/4
+ * tolerance和输入的坐标是同一个单位：在view坐标里用就是像素，在原始坐标里用要按大小换算
+ *
+ * 作为PathSink包装另一个sink使用，缓冲区可以复用，每个外框结束后调用finish
+ */
+public class OutlineSimplifier implements PathSink {
+    private static final int MAX_SEGMENTS = 64;//一段曲线最多拆成多少段
+
+    /**
+     * 简化外框的尺寸档位  宽高不超过某一档就用这一档简化过的外框，更大的用原始的外框
+     */
+    private static final int[] LOD_SIZES = {32, 64, 128, 256};
+    public static final int LOD_LEVEL_COUNT = LOD_SIZES.length;
+    /**
+     * 简化外框允许的误差 像素  不到半个像素看不出区别
+     */
+    public static final float LOD_TOLERANCE = 0.5f;
+
+    private final float flattenTolerance;  //曲线拍平成折线的误差
+    private final float pointTolerance;    //去掉多余的点的误差
+    private PathSink target;
+
+    //当前子路径的点 x,y交替
+    private float[] points = new float[128];
+    private int pointCount;
+    private float startX, startY;   //子路径的起点  闭合之后从这里继续
+    private boolean[] keep = new boolean[64];
+    private int[] stack = new int[64];
+
+    /**
+     * @param target 输出
+     * @param tolerance 允许的误差
+     */
+    public OutlineSimplifier(PathSink target, float tolerance) {
+        if(tolerance <= 0){
+            throw new IllegalArgumentException("tolerance must be positive: " + tolerance);
+        }
+        this.target = target;
+        //拍平和去点各用一部分误差  加起来不超过tolerance
+        this.flattenTolerance = tolerance / 4;
+        this.pointTolerance = tolerance - flattenTolerance;
+    }
+
+    public void setTarget(PathSink target) {
+        this.target = target;
+    }
+
+    /**
+     * 这个尺寸用哪一档简化过的外框
+     * @param size 宽高中大的那个 像素
+     * @return 档位  太大不用简化返回-1
+     */
+    public static int getLodLevel(int size){
+        for(int level = 0 ; level < LOD_SIZES.length ; level ++){
+            if(LOD_SIZES[level] >= size){
+                return level;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 这一档在原始坐标系里允许的误差
+     * 按这一档的上限换算，这一档里更小的尺寸误差只会更小
+     * @param level getLodLevel返回的档位
+     * @return
+     */
+    public static float getLodTolerance(int level){
+        return LOD_TOLERANCE * GlyphTransform.DESIGN_SIZE / LOD_SIZES[level];
+    }
+
+    /**
+     * 按尺寸档位简化外框  不缓存，每次都重新生成
+     * @param glyph
+     * @param size 宽高中大的那个 像素
+     * @return 太大不用简化就返回原来的字形
+     */
+    public static HanziGlyph simplifyForSize(HanziGlyph glyph, int size){
+        int level = getLodLevel(size);
+        return level < 0 ? glyph : simplify(glyph, getLodTolerance(level));
+    }
+
+    /**
+     * 简化整个字形的外框  中线不变
+     * @param glyph
+     * @param tolerance 原始坐标系里允许的误差
+     * @return 新的字形
+     */
+    public static HanziGlyph simplify(HanziGlyph glyph, float tolerance){
+        PathRecorder recorder = new PathRecorder();
+        OutlineSimplifier simplifier = new OutlineSimplifier(recorder, tolerance);
+        byte[][] commands = new byte[glyph.getOutlineCount()][];
+        float[][] coordinates = new float[glyph.getOutlineCount()][];
+        for(int i = 0 ; i < commands.length ; i ++){
+            recorder.reset();
+            glyph.replayStroke(i, simplifier);
+            simplifier.finish();
+            commands[i] = recorder.getCommands();
+            coordinates[i] = recorder.getCoordinates();
+        }
+
+        float[][] medians = new float[glyph.getMedianCount()][];
+        for(int i = 0 ; i < medians.length ; i ++){
+            medians[i] = glyph.getMedian(i);
+        }
+        return new HanziGlyph(glyph.getWord(), commands, coordinates, medians);
+    }
+
+    @Override
+    public void moveTo(float x, float y) {
+        flush(false);
+        startX = x;
+        startY = y;
+        addPoint(x, y);
+    }
+
+    @Override
+    public void lineTo(float x, float y) {
+        if(pointCount == 0){
+            addPoint(startX, startY);
+        }
+        addPoint(x, y);
+    }
+
+    @Override
+    public void quadTo(float x1, float y1, float x, float y) {
+        if(pointCount == 0){
+            addPoint(startX, startY);
+        }
+        float x0 = points[pointCount - 2];
+        float y0 = points[pointCount - 1];
+
+        //二阶导数是常数  n段折线的误差不超过 |p0 - 2p1 + p2| / (4n²)
+        float ddx = x0 - 2 * x1 + x;
+        float ddy = y0 - 2 * y1 + y;
+        int n = segments((float) Math.sqrt(ddx * ddx + ddy * ddy) / 4);
+        for(int i = 1 ; i < n ; i ++){
+            float t = (float) i / n;
+            float u = 1 - t;
+            addPoint(u * u * x0 + 2 * u * t * x1 + t * t * x,
+                    u * u * y0 + 2 * u * t * y1 + t * t * y);
+        }
+        addPoint(x, y);
+    }
+
+    @Override
+    public void cubicTo(float x1, float y1, float x2, float y2, float x, float y) {
+        if(pointCount == 0){
+            addPoint(startX, startY);
+        }
+        float x0 = points[pointCount - 2];
+        float y0 = points[pointCount - 1];
+
+        //二阶导数不超过 6 * max(|p0 - 2p1 + p2|, |p1 - 2p2 + p3|)  误差不超过 3m / (4n²)
+        float ax = x0 - 2 * x1 + x2;
+        float ay = y0 - 2 * y1 + y2;
+        float bx = x1 - 2 * x2 + x;
+        float by = y1 - 2 * y2 + y;
+        float m = (float) Math.sqrt(Math.max(ax * ax + ay * ay, bx * bx + by * by));
+        int n = segments(m * 3 / 4);
+        for(int i = 1 ; i < n ; i ++){
+            float t = (float) i / n;
+            float u = 1 - t;
+            float a = u * u * u;
+            float b = 3 * u * u * t;
+            float c = 3 * u * t * t;
+            float d = t * t * t;
+            addPoint(a * x0 + b * x1 + c * x2 + d * x, a * y0 + b * y1 + c * y2 + d * y);
+        }
+        addPoint(x, y);
+    }
+
+    @Override
+    public void close() {
+        flush(true);
+    }
+
+    /**
+     * 一个外框结束  输出还没有闭合的子路径
+     */
+    public void finish(){
+        flush(false);
+    }
+
+    /**
+     * 误差系数为k时需要拆成几段  k / n² <= flattenTolerance
+     */
+    private int segments(float k){
+        int n = (int) Math.ceil(Math.sqrt(k / flattenTolerance));
+        return Math.max(1, Math.min(MAX_SEGMENTS, n));
+    }
+
+    private void addPoint(float x, float y){
+        if(pointCount + 2 > points.length){
+            points = Arrays.copyOf(points, points.length * 2);
+        }
+        points[pointCount ++] = x;
+        points[pointCount ++] = y;
+    }
+
+    /**
+     * 简化当前的子路径并输出
+     * @param closed 是否闭合
+     */
+    private void flush(boolean closed){
+        int count = pointCount / 2;
+        if(count == 0){
+            if(closed){
+                target.close();
+            }
+            return;
+        }
+
+        if(keep.length < count){
+            keep = new boolean[Math.max(count, keep.length * 2)];
+        }
+        Arrays.fill(keep, 0, count, false);
+        keep[0] = true;
+        keep[count - 1] = true;
+        if(count > 2){
+            simplifyRange(0, count - 1);
+        }
+
+        target.moveTo(points[0], points[1]);
+        for(int i = 1 ; i < count ; i ++){
+            if(keep[i]){
+                target.lineTo(points[i * 2], points[i * 2 + 1]);
+            }
+        }
+        if(closed){
+            target.close();
+        }
+        pointCount = 0;
+    }
+
+    /**
+     * Ramer–Douglas–Peucker  用栈代替递归
+     */
+    private void simplifyRange(int first, int last){
+        float toleranceSquared = pointTolerance * pointTolerance;
+        int top = 0;
+        push(top ++, first, last);
+        while (top > 0){
+            top --;
+            int start = stack[top * 2];
+            int end = stack[top * 2 + 1];
+
+            int farthest = -1;
+            float maxDistance = toleranceSquared;
+            for(int i = start + 1 ; i < end ; i ++){
+                float distance = distanceSquared(i, start, end);
+                if(distance > maxDistance){
+                    maxDistance = distance;
+                    farthest = i;
+                }
+            }
+            if(farthest < 0){
+                continue;
+            }
+
+            keep[farthest] = true;
+            push(top ++, start, farthest);
+            push(top ++, farthest, end);
+        }
+    }
+
+    private void push(int index, int start, int end){
+        if(index * 2 + 2 > stack.length){
+            stack = Arrays.copyOf(stack, stack.length * 2);
+        }
+        stack[index * 2] = start;
+        stack[index * 2 + 1] = end;
+    }
+
+    /**
+     * 第i个点到线段(start, end)的距离的平方
+     * 闭合的路径首尾是同一个点，这时就是到这个点的距离
+     */
+    private float distanceSquared(int i, int start, int end){
+        float px = points[i * 2], py = points[i * 2 + 1];
+        float ax = points[start * 2], ay = points[start * 2 + 1];
+        float dx = points[end * 2] - ax, dy = points[end * 2 + 1] - ay;
+        float lengthSquared = dx * dx + dy * dy;
+        float t = 0;
+        if(lengthSquared > 0){
+            t = Math.max(0, Math.min(1, ((px - ax) * dx + (py - ay) * dy) / lengthSquared));
+        }
+        float ex = ax + dx * t - px;
+        float ey = ay + dy * t - py;
+        return ex * ex + ey * ey;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.hanzicore;
+
+import java.util.Arrays;
+
+/**
+ * 把路径记录成 命令+绝对坐标 的形式  命令见 {@link HanziBinaryFormat}
+ * 可以用reset复用
+ */
+public class PathRecorder implements PathSink {
+    private byte[] commands = new byte[32];
+    private float[] coordinates = new float[128];
+    private int commandCount;
+    private int coordinateCount;
+
+    @Override
+    public void moveTo(float x, float y) {
+        addCommand(HanziBinaryFormat.CMD_MOVE_TO);
+        addCoordinate(x);
+        addCoordinate(y);
+    }
+
+    @Override
+    public void lineTo(float x, float y) {
+        addCommand(HanziBinaryFormat.CMD_LINE_TO);
+        addCoordinate(x);
+        addCoordinate(y);
+    }
+
+    @Override
+    public void quadTo(float x1, float y1, float x, float y) {
+        addCommand(HanziBinaryFormat.CMD_QUAD_TO);
+        addCoordinate(x1);
+        addCoordinate(y1);
+        addCoordinate(x);
+        addCoordinate(y);
+    }
+
+    @Override
+    public void cubicTo(float x1, float y1, float x2, float y2, float x, float y) {
+        addCommand(HanziBinaryFormat.CMD_CUBIC_TO);
+        addCoordinate(x1);
+        addCoordinate(y1);
+        addCoordinate(x2);
+        addCoordinate(y2);
+        addCoordinate(x);
+        addCoordinate(y);
+    }
+
+    @Override
+    public void close() {
+        addCommand(HanziBinaryFormat.CMD_CLOSE);
+    }
+
+    public void reset(){
+        commandCount = 0;
+        coordinateCount = 0;
+    }
+
+    /**
+     * 记录的命令  复制一份
+     * @return
+     */
+    public byte[] getCommands(){
+        return Arrays.copyOf(commands, commandCount);
+    }
+
+    /**
+     * 记录的坐标  复制一份
+     * @return
+     */
+    public float[] getCoordinates(){
+        return Arrays.copyOf(coordinates, coordinateCount);
+    }
+
+    private void addCommand(byte command){
+        if(commandCount == commands.length){
+            commands = Arrays.copyOf(commands, commandCount * 2);
+        }
+        commands[commandCount ++] = command;
+    }
+
+    private void addCoordinate(float value){
+        if(coordinateCount == coordinates.length){
+            coordinates = Arrays.copyOf(coordinates, coordinateCount * 2);
+        }
+        coordinates[coordinateCount ++] = value;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.hanzicore;
+
+/**
+ * 接收路径命令的对象
+ * {@link SvgPathParser} 把svg解析成这些调用，所有坐标都已经是绝对坐标
+ */
+public interface PathSink {
+    void moveTo(float x, float y);
+
+    void lineTo(float x, float y);
+
+    void quadTo(float x1, float y1, float x, float y);
+
+    void cubicTo(float x1, float y1, float x2, float y2, float x, float y);
+
+    void close();
+}
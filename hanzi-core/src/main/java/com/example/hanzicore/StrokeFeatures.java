@@ -0,0 +1,176 @@
+package com.example.hanzicore;
+
+/**
+ * 识别用的笔画特征  都在1024x1024的原始坐标系里算，y轴向上
+ *
+ * 粗特征编成一个int：起笔方向、收笔方向（各8个方向）和起点、终点所在的格子（4x4）
+ * 形状特征是按弧长等距重新采样的点
+ */
+final class StrokeFeatures {
+    static final int DIRECTIONS = 8;
+    static final int GRID = 4;
+    static final int CELLS = GRID * GRID;
+    static final int CODE_COUNT = DIRECTIONS * DIRECTIONS * CELLS * CELLS;
+
+    /**
+     * 首笔索引的key个数  起笔方向 x 起点格子
+     */
+    static final int FIRST_KEY_COUNT = DIRECTIONS * CELLS;
+
+    private StrokeFeatures() {
+    }
+
+    /**
+     * 按弧长等距采样
+     * @param points 折线 x,y交替
+     * @param count 采样点数  至少2个
+     * @param out 输出 x,y交替
+     * @param offset 从out的哪个位置开始写
+     */
+    static void resample(float[] points, int count, float[] out, int offset){
+        resample(points, points.length, count, out, offset);
+    }
+
+    /**
+     * 按弧长等距采样  只用points的前length个float，数组可以比折线长
+     * @param points 折线 x,y交替
+     * @param length 折线占多少个float
+     * @param count 采样点数  至少2个
+     * @param out 输出 x,y交替
+     * @param offset 从out的哪个位置开始写
+     */
+    static void resample(float[] points, int length, int count, float[] out, int offset){
+        int pointCount = length / 2;
+        if(pointCount == 0){
+            for(int i = 0 ; i < count * 2 ; i ++){
+                out[offset + i] = 0;
+            }
+            return;
+        }
+
+        float total = 0;
+        for(int i = 1 ; i < pointCount ; i ++){
+            total += distance(points, i - 1, i);
+        }
+        if(total == 0){
+            for(int i = 0 ; i < count ; i ++){
+                out[offset + i * 2] = points[0];
+                out[offset + i * 2 + 1] = points[1];
+            }
+            return;
+        }
+
+        //沿着折线走  每走过step长度取一个点
+        float step = total / (count - 1);
+        int segment = 0;
+        float segmentStart = 0;                         //当前这一段起点的弧长
+        float segmentLength = distance(points, 0, Math.min(1, pointCount - 1));
+        for(int i = 0 ; i < count ; i ++){
+            float target = i == count - 1 ? total : step * i;
+            while (segment < pointCount - 2 && segmentStart + segmentLength < target){
+                segmentStart += segmentLength;
+                segment ++;
+                segmentLength = distance(points, segment, segment + 1);
+            }
+            float t = segmentLength == 0 ? 0 : Math.min(1, (target - segmentStart) / segmentLength);
+            int next = Math.min(segment + 1, pointCount - 1);
+            out[offset + i * 2] = points[segment * 2] + (points[next * 2] - points[segment * 2]) * t;
+            out[offset + i * 2 + 1] = points[segment * 2 + 1] + (points[next * 2 + 1] - points[segment * 2 + 1]) * t;
+        }
+    }
+
+    /**
+     * 由重新采样过的点算粗特征
+     * 起笔方向取前1/4左右，收笔方向取后1/4左右
+     * @param samples 采样点 x,y交替
+     * @param offset
+     * @param count 采样点数  至少4个
+     * @return
+     */
+    static int encode(float[] samples, int offset, int count){
+        int quarter = Math.max(1, (count - 1) / 4);
+        int last = offset + (count - 1) * 2;
+        int startDirection = direction(samples, offset, offset + quarter * 2);
+        int endDirection = direction(samples, last - quarter * 2, last);
+        int startCell = cell(samples[offset], samples[offset + 1]);
+        int endCell = cell(samples[last], samples[last + 1]);
+        return ((startDirection * DIRECTIONS + endDirection) * CELLS + startCell) * CELLS + endCell;
+    }
+
+    static int startDirection(int code){
+        return code / (DIRECTIONS * CELLS * CELLS);
+    }
+
+    static int endDirection(int code){
+        return code / (CELLS * CELLS) % DIRECTIONS;
+    }
+
+    static int startCell(int code){
+        return code / CELLS % CELLS;
+    }
+
+    static int endCell(int code){
+        return code % CELLS;
+    }
+
+    /**
+     * 首笔索引用的key
+     */
+    static int firstKey(int code){
+        return startDirection(code) * CELLS + startCell(code);
+    }
+
+    /**
+     * 和某个方向相差不超过45度的方向  按位
+     */
+    static int directionMask(int direction){
+        return 1 << direction
+                | 1 << ((direction + 1) % DIRECTIONS)
+                | 1 << ((direction + DIRECTIONS - 1) % DIRECTIONS);
+    }
+
+    /**
+     * 某个格子和它周围的格子  按位
+     */
+    static int cellMask(int cell){
+        int row = cell / GRID;
+        int column = cell % GRID;
+        int mask = 0;
+        for(int r = Math.max(0, row - 1) ; r <= Math.min(GRID - 1, row + 1) ; r ++){
+            for(int c = Math.max(0, column - 1) ; c <= Math.min(GRID - 1, column + 1) ; c ++){
+                mask |= 1 << (r * GRID + c);
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * 8个方向  0是向右，逆时针增加（y轴向上）
+     */
+    private static int direction(float[] samples, int from, int to){
+        float dx = samples[to] - samples[from];
+        float dy = samples[to + 1] - samples[from + 1];
+        double angle = Math.atan2(dy, dx);
+        int direction = (int) Math.round(angle / (Math.PI * 2 / DIRECTIONS));
+        return (direction + DIRECTIONS) % DIRECTIONS;
+    }
+
+    /**
+     * 点所在的格子  行从上往下
+     */
+    private static int cell(float x, float y){
+        int column = clamp((int) (x * GRID / GlyphTransform.DESIGN_SIZE));
+        int row = clamp((int) ((GlyphTransform.BASELINE - y) * GRID / GlyphTransform.DESIGN_SIZE));
+        return row * GRID + column;
+    }
+
+    private static int clamp(int value){
+        return Math.max(0, Math.min(GRID - 1, value));
+    }
+
+    private static float distance(float[] points, int a, int b){
+        float dx = points[b * 2] - points[a * 2];
+        float dy = points[b * 2 + 1] - points[a * 2 + 1];
+        return (float) Math.sqrt(dx * dx + dy * dy);
+    }
+}
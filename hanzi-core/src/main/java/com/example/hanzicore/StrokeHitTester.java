@@ -0,0 +1,154 @@
+package com.example.hanzicore;
+
+/**
+ * 判断触摸点是否落在一个笔画中线的判定范围内
+ *
+ * 点到线段的距离用投影到线段上（截断到线段两端）的方法计算，只比较距离的平方，不需要开方
+ * 每个笔画建立一个均匀网格，每个格子记录和它相交的线段（线段的外接矩形向外扩大判定半径）
+ * 判断时只需要检查触摸点所在格子里的线段
+ *
+ * 建好之后判断过程不分配内存
+ */
+public class StrokeHitTester {
+    private final MedianStroke stroke;
+    private final float radius;
+    private final float radiusSquared;
+
+    //网格
+    private final float originX, originY;
+    private final float cellSize;
+    private final int columns, rows;
+    //第i个格子的线段是 cellSegments[cellStart[i]] 到 cellSegments[cellStart[i + 1] - 1]，按线段序号从大到小
+    private final int[] cellStart;
+    private final int[] cellSegments;
+
+    /**
+     * @param stroke 笔画中线  view坐标
+     * @param radius 判定半径
+     */
+    public StrokeHitTester(MedianStroke stroke, float radius) {
+        this.stroke = stroke;
+        this.radius = radius;
+        this.radiusSquared = radius * radius;
+
+        //格子边长取判定范围的直径，一个点附近的线段最多只落在少量格子里
+        cellSize = Math.max(radius * 2, 1);
+        originX = stroke.getMinX() - radius;
+        originY = stroke.getMinY() - radius;
+        int segmentCount = stroke.getSegmentCount();
+        if(segmentCount == 0){
+            columns = rows = 0;
+            cellStart = new int[1];
+            cellSegments = new int[0];
+            return;
+        }
+        columns = (int) ((stroke.getMaxX() + radius - originX) / cellSize) + 1;
+        rows = (int) ((stroke.getMaxY() + radius - originY) / cellSize) + 1;
+
+        //先数每个格子有几条线段，再填进去
+        int cellCount = columns * rows;
+        cellStart = new int[cellCount + 1];
+        for(int i = 0 ; i < segmentCount ; i ++){
+            int left = column(stroke.getSegmentMinX(i) - radius);
+            int top = row(stroke.getSegmentMinY(i) - radius);
+            int right = column(stroke.getSegmentMaxX(i) + radius);
+            int bottom = row(stroke.getSegmentMaxY(i) + radius);
+            for(int r = top ; r <= bottom ; r ++){
+                for(int c = left ; c <= right ; c ++){
+                    cellStart[r * columns + c + 1] ++;
+                }
+            }
+        }
+        for(int i = 0 ; i < cellCount ; i ++){
+            cellStart[i + 1] += cellStart[i];
+        }
+
+        cellSegments = new int[cellStart[cellCount]];
+        int[] fill = new int[cellCount];
+        for(int i = segmentCount - 1 ; i >= 0 ; i --){
+            int left = column(stroke.getSegmentMinX(i) - radius);
+            int top = row(stroke.getSegmentMinY(i) - radius);
+            int right = column(stroke.getSegmentMaxX(i) + radius);
+            int bottom = row(stroke.getSegmentMaxY(i) + radius);
+            for(int r = top ; r <= bottom ; r ++){
+                for(int c = left ; c <= right ; c ++){
+                    int cell = r * columns + c;
+                    cellSegments[cellStart[cell] + fill[cell]++] = i;
+                }
+            }
+        }
+    }
+
+    public MedianStroke getStroke() {
+        return stroke;
+    }
+
+    public float getRadius() {
+        return radius;
+    }
+
+    /**
+     * 判断一个点
+     * @param x view坐标
+     * @param y view坐标
+     * @return 判定范围内序号最大的线段的终点序号（第i段返回i+1），也就是写到了第几个点
+     *         不在任何线段的判定范围内返回-1
+     */
+    public int hitTest(float x, float y){
+        if(columns == 0){
+            return -1;
+        }
+
+        float fx = (x - originX) / cellSize;
+        float fy = (y - originY) / cellSize;
+        if(fx < 0 || fy < 0 || fx >= columns || fy >= rows){
+            return -1;
+        }
+
+        int cell = (int) fy * columns + (int) fx;
+        for(int i = cellStart[cell] ; i < cellStart[cell + 1] ; i ++){
+            int segment = cellSegments[i];
+            if(distanceSquared(segment, x, y) <= radiusSquared){
+                //格子里的线段是从大到小排的，第一个命中的就是最大的
+                return segment + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 点到线段的距离的平方
+     */
+    private float distanceSquared(int segment, float x, float y){
+        float x1 = stroke.getX(segment);
+        float y1 = stroke.getY(segment);
+        float dx = stroke.getSegmentDx(segment);
+        float dy = stroke.getSegmentDy(segment);
+        float lengthSquared = stroke.getSegmentLengthSquared(segment);
+
+        float px = x - x1;
+        float py = y - y1;
+        if(lengthSquared > 0){
+            //投影到线段上，截断到两端
+            float t = (px * dx + py * dy) / lengthSquared;
+            if(t > 1){
+                t = 1;
+            }else if(t < 0){
+                t = 0;
+            }
+            px -= t * dx;
+            py -= t * dy;
+        }
+        return px * px + py * py;
+    }
+
+    private int column(float x){
+        int c = (int) ((x - originX) / cellSize);
+        return Math.max(0, Math.min(columns - 1, c));
+    }
+
+    private int row(float y){
+        int r = (int) ((y - originY) / cellSize);
+        return Math.max(0, Math.min(rows - 1, r));
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.hanzicore;
+
+/**
+ * 判断用户写的一笔对不对
+ *
+ * 必须从笔画的起点附近开始写，中间每个采样点都要在中线的判定范围内，
+ * 并且至少写到中线80%的点，形状也要和中线相近，这一笔才算写对
+ *
+ * 形状用 {@link StrokeShapeMatcher} 边写边算，同时和倒过来的中线比较，可以发现倒着写的笔画
+ */
+public class StrokeJudge {
+    public static final float DEFAULT_ACCEPT_RATIO = 0.8f;
+    /**
+     * 形状分数（平均距离）超过判定半径的这个比例就算形状不对
+     */
+    public static final float DEFAULT_SHAPE_TOLERANCE = 0.6f;
+
+    /**
+     * 写对了
+     */
+    public static final int RESULT_ACCEPTED = 0;
+    /**
+     * 没有从起点开始写，或者中途写出了判定范围
+     */
+    public static final int RESULT_OUT_OF_RANGE = 1;
+    /**
+     * 没有写完
+     */
+    public static final int RESULT_INCOMPLETE = 2;
+    /**
+     * 倒着写的
+     */
+    public static final int RESULT_BACKWARDS = 3;
+    /**
+     * 在判定范围内，但是形状不对
+     */
+    public static final int RESULT_WRONG_SHAPE = 4;
+
+    private final MedianStroke stroke;
+    private final StrokeHitTester hitTester;
+    private final float radiusSquared;
+    private final int requiredPointIndex;
+    private final float acceptRatio;
+    private final StrokeShapeMatcher forward;
+    private final StrokeShapeMatcher backward;
+    private float shapeTolerance;
+
+    private boolean ok;
+    private boolean fromStart;      //是从起点开始写的  从终点开始写的也继续判断
+    private int maxPointIndex;
+
+    /**
+     * @param stroke 笔画中线  view坐标
+     * @param radius 判定半径
+     */
+    public StrokeJudge(MedianStroke stroke, float radius) {
+        this(stroke, radius, DEFAULT_ACCEPT_RATIO);
+    }
+
+    /**
+     * @param stroke 笔画中线  view坐标
+     * @param radius 判定半径
+     * @param acceptRatio 至少要写到中线多少比例的点
+     */
+    public StrokeJudge(MedianStroke stroke, float radius, float acceptRatio) {
+        this.stroke = stroke;
+        this.hitTester = new StrokeHitTester(stroke, radius);
+        this.radiusSquared = radius * radius;
+        this.requiredPointIndex = (int) (stroke.getPointCount() * acceptRatio);
+        this.acceptRatio = acceptRatio;
+        this.shapeTolerance = radius * DEFAULT_SHAPE_TOLERANCE;
+        //间距取半径的一半  误差远小于判定范围
+        float spacing = Math.max(radius / 2, 1);
+        this.forward = new StrokeShapeMatcher(stroke.getPoints(), spacing, false);
+        this.backward = new StrokeShapeMatcher(stroke.getPoints(), spacing, true);
+    }
+
+    /**
+     * 形状分数超过多少算形状不对
+     * @param shapeTolerance 和坐标同一个单位
+     */
+    public void setShapeTolerance(float shapeTolerance) {
+        this.shapeTolerance = shapeTolerance;
+    }
+
+    /**
+     * 是否在笔画的终点附近
+     */
+    public boolean isNearEnd(float x, float y){
+        int count = stroke.getPointCount();
+        if(count == 0){
+            return false;
+        }
+        float dx = x - stroke.getX(count - 1);
+        float dy = y - stroke.getY(count - 1);
+        return dx * dx + dy * dy <= radiusSquared;
+    }
+
+    /**
+     * 是否在笔画的起点附近  比较距离的平方，不用开方
+     */
+    public boolean isNearStart(float x, float y){
+        if(stroke.getPointCount() == 0){
+            return false;
+        }
+        float dx = x - stroke.getX(0);
+        float dy = y - stroke.getY(0);
+        return dx * dx + dy * dy <= radiusSquared;
+    }
+
+    /**
+     * 开始写这一笔
+     * 从终点附近开始的时候返回false，但还是会继续判断，写完可以知道是不是倒着写的，见 {@link #isOk()}
+     * @return 不在起点附近就返回false
+     */
+    public boolean begin(float x, float y){
+        maxPointIndex = 0;
+        fromStart = isNearStart(x, y);
+        ok = fromStart || isNearEnd(x, y);
+        forward.begin(x, y);
+        backward.begin(x, y);
+        return fromStart;
+    }
+
+    /**
+     * 加一个采样点
+     * @return 这个点是否在判定范围内
+     */
+    public boolean addPoint(float x, float y){
+        int pointIndex = hitTester.hitTest(x, y);
+        if(pointIndex < 0){
+            ok = false;
+            return false;
+        }
+        maxPointIndex = Math.max(maxPointIndex, pointIndex);
+        forward.addPoint(x, y);
+        backward.addPoint(x, y);
+        return true;
+    }
+
+    /**
+     * 写完了  把最后的采样点算进形状分数  可以重复调用
+     */
+    public void finish(){
+        forward.finish();
+        backward.finish();
+    }
+
+    /**
+     * 中间有没有写出判定范围  从起点或者终点附近开始写的才是true
+     */
+    public boolean isOk() {
+        return ok;
+    }
+
+    /**
+     * 写到了第几个点
+     */
+    public int getMaxPointIndex() {
+        return maxPointIndex;
+    }
+
+    /**
+     * 至少要写到第几个点
+     */
+    public int getRequiredPointIndex() {
+        return requiredPointIndex;
+    }
+
+    /**
+     * 形状的分数  平均距离，和坐标同一个单位，越小越好
+     * @return 没有写到足够的长度返回Float.POSITIVE_INFINITY
+     */
+    public float getShapeScore(){
+        return forward.getScore(acceptRatio);
+    }
+
+    /**
+     * 写得好不好  0到1，1是和中线完全重合
+     * @return
+     */
+    public float getQuality(){
+        if(!fromStart || !ok){
+            return 0;
+        }
+        return Math.max(0, Math.min(1, 1 - getShapeScore() / getRadius()));
+    }
+
+    /**
+     * 是不是倒着写的  倒过来比较的分数更好，而且在允许的范围内
+     */
+    public boolean isBackwards(){
+        float backwardScore = backward.getScore(acceptRatio);
+        return backwardScore <= shapeTolerance && backwardScore < getShapeScore();
+    }
+
+    /**
+     * 判定的结果  写完的时候调用
+     * @return RESULT_XXX
+     */
+    public int getResult(){
+        finish();
+        if(!ok){
+            return RESULT_OUT_OF_RANGE;
+        }
+        if(isBackwards()){
+            return RESULT_BACKWARDS;
+        }
+        if(!fromStart){
+            return RESULT_OUT_OF_RANGE;
+        }
+        if(maxPointIndex < requiredPointIndex){
+            return RESULT_INCOMPLETE;
+        }
+        if(getShapeScore() > shapeTolerance){
+            return RESULT_WRONG_SHAPE;
+        }
+        return RESULT_ACCEPTED;
+    }
+
+    /**
+     * 这一笔写对了没有  写完的时候调用
+     */
+    public boolean isAccepted(){
+        return getResult() == RESULT_ACCEPTED;
+    }
+
+    public MedianStroke getStroke() {
+        return stroke;
+    }
+
+    public float getRadius() {
+        return hitTester.getRadius();
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.hanzicore;
+
+/**
+ * 用户写的一笔和中线的形状相似度  带状的流式DTW
+ *
+ * 中线按固定间距重新采样，用户的采样点也按同样的间距在线重新采样，每产生一个点算DTW矩阵的一列
+ * 每列只算上一列最好位置前后band个格子，两列的数组轮流使用，每个采样点的计算量是O(band)，不分配内存
+ * 松开手指的时候最多再算一列，分数马上就有，不需要从头重新算
+ *
+ * 起点固定对齐，终点是开放的：可以只写到中线的一部分，完整程度由调用者另外判断
+ * 分数是对齐路径上平均每一步的距离，和坐标同一个单位
+ *
+ * 只在一个线程里使用
+ */
+public class StrokeShapeMatcher {
+    private static final int MAX_REFERENCE_POINTS = 128;
+    private static final int MIN_BAND = 3;
+
+    private final float[] reference;        //重新采样的中线 x,y交替
+    private final int referenceCount;
+    private final float spacing;
+    private final int band;
+
+    //DTW的上一列和当前列  累计距离和路径步数
+    private float[] previous;
+    private float[] current;
+    private int[] previousSteps;
+    private int[] currentSteps;
+    private int previousLo;
+    private int previousHi = -1;
+    private int best;                       //上一列平均距离最小的位置
+
+    private int columnCount;
+    private float lastX, lastY;             //最后一个重新采样的点
+    private float rawX, rawY;               //最后一个原始采样点
+    private boolean finished;
+
+    /**
+     * @param points 中线 x,y交替
+     * @param spacing 重新采样的间距  中线太长的时候会自动加大
+     * @param reversed 是否倒过来比较，用来发现倒着写的笔画
+     */
+    public StrokeShapeMatcher(float[] points, float spacing, boolean reversed) {
+        if(spacing <= 0){
+            throw new IllegalArgumentException("spacing must be positive: " + spacing);
+        }
+        float[] source = points;
+        if(reversed){
+            source = new float[points.length - points.length % 2];
+            for(int i = 0 ; i + 1 < source.length ; i += 2){
+                source[i] = points[source.length - 2 - i];
+                source[i + 1] = points[source.length - 1 - i];
+            }
+        }
+
+        float length = 0;
+        for(int i = 2 ; i + 1 < source.length ; i += 2){
+            float dx = source[i] - source[i - 2];
+            float dy = source[i + 1] - source[i - 1];
+            length += (float) Math.sqrt(dx * dx + dy * dy);
+        }
+        referenceCount = Math.max(2, Math.min(MAX_REFERENCE_POINTS, (int) Math.ceil(length / spacing) + 1));
+        this.spacing = Math.max(spacing, length / (referenceCount - 1));
+        reference = new float[referenceCount * 2];
+        StrokeFeatures.resample(source, referenceCount, reference, 0);
+
+        band = Math.max(MIN_BAND, referenceCount / 4);
+        previous = new float[referenceCount];
+        current = new float[referenceCount];
+        previousSteps = new int[referenceCount];
+        currentSteps = new int[referenceCount];
+    }
+
+    /**
+     * 中线重新采样之后有几个点
+     * @return
+     */
+    public int getReferenceCount() {
+        return referenceCount;
+    }
+
+    public int getBand() {
+        return band;
+    }
+
+    /**
+     * 开始新的一笔
+     */
+    public void begin(float x, float y){
+        columnCount = 0;
+        previousLo = 0;
+        previousHi = -1;
+        best = 0;
+        finished = false;
+        rawX = x;
+        rawY = y;
+        emit(x, y);
+    }
+
+    /**
+     * 加一个采样点  每走过一个间距算一列
+     */
+    public void addPoint(float x, float y){
+        if(columnCount == 0 || finished){
+            return;
+        }
+        rawX = x;
+        rawY = y;
+        float dx = x - lastX;
+        float dy = y - lastY;
+        float distance = (float) Math.sqrt(dx * dx + dy * dy);
+        while (distance >= spacing){
+            float t = spacing / distance;
+            emit(lastX + dx * t, lastY + dy * t);
+            dx = x - lastX;
+            dy = y - lastY;
+            distance -= spacing;
+        }
+    }
+
+    /**
+     * 写完了  把最后一个原始点也算进去  可以重复调用
+     */
+    public void finish(){
+        if(finished || columnCount == 0){
+            return;
+        }
+        if(rawX != lastX || rawY != lastY){
+            emit(rawX, rawY);
+        }
+        finished = true;
+    }
+
+    /**
+     * 形状的分数  会先finish
+     * @param endRatio 至少要对齐到中线的多少比例  0到1
+     * @return 平均每一步的距离，越小越像；还没有开始或者没有写到endRatio返回Float.POSITIVE_INFINITY
+     */
+    public float getScore(float endRatio){
+        finish();
+        int minEnd = (int) Math.ceil((referenceCount - 1) * Math.max(0, Math.min(1, endRatio)));
+        float score = Float.POSITIVE_INFINITY;
+        for(int j = Math.max(previousLo, minEnd) ; j <= previousHi ; j ++){
+            score = Math.min(score, previous[j] / previousSteps[j]);
+        }
+        return score;
+    }
+
+    /**
+     * 当前对齐到了中线的什么位置  0到1
+     * @return
+     */
+    public float getProgress(){
+        return columnCount == 0 ? 0 : (float) best / (referenceCount - 1);
+    }
+
+    /**
+     * 重新采样之后用户写了几个点
+     * @return
+     */
+    public int getSampleCount() {
+        return columnCount;
+    }
+
+    /**
+     * 算一列  只看上一列最好位置前后band个格子
+     */
+    private void emit(float x, float y){
+        int lo;
+        int hi;
+        if(columnCount == 0){
+            lo = 0;
+            hi = Math.min(referenceCount - 1, band);
+        }else{
+            lo = Math.max(previousLo, best - band);
+            hi = Math.min(referenceCount - 1, best + band);
+        }
+
+        float[] column = current;
+        int[] steps = currentSteps;
+        int newBest = lo;
+        float bestMean = Float.POSITIVE_INFINITY;
+        for(int j = lo ; j <= hi ; j ++){
+            float cost;
+            int step;
+            if(columnCount == 0){
+                //第一列  起点固定对齐，只能沿着中线往前
+                cost = j == lo ? 0 : column[j - 1];
+                step = j == lo ? 0 : steps[j - 1];
+            }else{
+                cost = Float.POSITIVE_INFINITY;
+                step = 0;
+                if(j >= previousLo && j <= previousHi && previous[j] < cost){
+                    cost = previous[j];
+                    step = previousSteps[j];
+                }
+                if(j - 1 >= previousLo && j - 1 <= previousHi && previous[j - 1] < cost){
+                    cost = previous[j - 1];
+                    step = previousSteps[j - 1];
+                }
+                if(j > lo && column[j - 1] < cost){
+                    cost = column[j - 1];
+                    step = steps[j - 1];
+                }
+            }
+
+            float dx = reference[j * 2] - x;
+            float dy = reference[j * 2 + 1] - y;
+            column[j] = cost + (float) Math.sqrt(dx * dx + dy * dy);
+            steps[j] = step + 1;
+
+            float mean = column[j] / steps[j];
+            if(mean < bestMean){
+                bestMean = mean;
+                newBest = j;
+            }
+        }
+
+        current = previous;
+        currentSteps = previousSteps;
+        previous = column;
+        previousSteps = steps;
+        previousLo = lo;
+        previousHi = hi;
+        best = newBest;
+        columnCount ++;
+        lastX = x;
+        lastY = y;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.hanzicore;
+
+import java.util.List;
+
+/**
+ * 整个汉字的笔画动画时间轴
+ *
+ * 笔画一笔接一笔地播放，第一笔之后每笔开始前停顿一下
+ * 每笔的时长按笔画长度换算，平均长度的笔画用基准时长，再限制在基准时长的0.5到2倍之间
+ *
+ * 只做时间到 (第几笔, 画了多长) 的换算，不依赖android，也不分配内存
+ */
+public class StrokeTimeline {
+    public static final long DEFAULT_STROKE_DURATION = 1000;
+    public static final long DEFAULT_STROKE_DELAY = 500;
+
+    private final float[] strokeLengths;
+    private final long[] strokeStarts;      //每笔开始的时间
+    private final long[] strokeDurations;   //每笔的时长
+    private final long totalDuration;
+
+    public StrokeTimeline(List<MedianStroke> strokes) {
+        this(strokes, DEFAULT_STROKE_DURATION, DEFAULT_STROKE_DELAY);
+    }
+
+    /**
+     * @param strokes 每个笔画的中线
+     * @param strokeDuration 平均长度的笔画的时长 毫秒
+     * @param strokeDelay 每笔开始前的停顿 毫秒  第一笔不停顿
+     */
+    public StrokeTimeline(List<MedianStroke> strokes, long strokeDuration, long strokeDelay) {
+        int count = strokes.size();
+        strokeLengths = new float[count];
+        strokeStarts = new long[count];
+        strokeDurations = new long[count];
+
+        float totalLength = 0;
+        for(int i = 0 ; i < count ; i ++){
+            strokeLengths[i] = strokes.get(i).getLength();
+            totalLength += strokeLengths[i];
+        }
+        float averageLength = count == 0 ? 0 : totalLength / count;
+
+        long time = 0;
+        for(int i = 0 ; i < count ; i ++){
+            if(i > 0){
+                time += strokeDelay;
+            }
+            float scale = averageLength > 0 ? strokeLengths[i] / averageLength : 1;
+            scale = Math.max(0.5f, Math.min(2f, scale));
+            strokeStarts[i] = time;
+            strokeDurations[i] = Math.max(1, (long) (strokeDuration * scale));
+            time += strokeDurations[i];
+        }
+        totalDuration = time;
+    }
+
+    public int getStrokeCount(){
+        return strokeStarts.length;
+    }
+
+    /**
+     * 总时长 毫秒
+     * @return
+     */
+    public long getTotalDuration() {
+        return totalDuration;
+    }
+
+    public long getStrokeStart(int index){
+        return strokeStarts[index];
+    }
+
+    public long getStrokeDuration(int index){
+        return strokeDurations[index];
+    }
+
+    /**
+     * 某个时间正在画（或者刚画完，正在停顿）的是第几笔
+     * @param time 毫秒
+     * @return 还没开始返回-1
+     */
+    public int getStrokeIndexAt(long time){
+        int low = 0;
+        int high = strokeStarts.length - 1;
+        int result = -1;
+        while (low <= high){
+            int mid = (low + high) >>> 1;
+            if(strokeStarts[mid] <= time){
+                result = mid;
+                low = mid + 1;
+            }else{
+                high = mid - 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 某个时间这一笔的进度
+     * @param index 第几笔
+     * @param time 毫秒
+     * @return 0到1
+     */
+    public float getStrokeProgressAt(int index, long time){
+        long elapsed = time - strokeStarts[index];
+        if(elapsed <= 0){
+            return 0;
+        }
+        if(elapsed >= strokeDurations[index]){
+            return 1;
+        }
+        return elapsed / (float) strokeDurations[index];
+    }
+}
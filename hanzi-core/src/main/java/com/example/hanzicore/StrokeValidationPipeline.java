@@ -0,0 +1,317 @@
+package com.example.hanzicore;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 在单独的线程里判定笔画  主线程只负责把采样点放进 {@link TouchSampleRing}
+ *
+ * 判定线程按顺序读出采样点，用 {@link StrokeJudge} 判定，每一笔和整个字写完的结果通过callbackExecutor
+ * （一般是主线程的Handler）按发生的顺序送回去。换了字之后，旧的字还没送到的结果会被丢掉
+ *
+ * 缓冲区快满的时候中间的点（KIND_MOVE）只保留最新的一个，有位置了再放进去，中间被覆盖的点丢掉；
+ * 开始、结束和换字的事件不会丢，放之前先把保留的点放进去，这一笔的最后一个点总是会被判定，缓冲区满了就等判定线程读走
+ * 记录丢掉的点数、采样点在缓冲区里等了多久、从松开手指到结果送回来用了多久
+ *
+ * onDown/onMove/onUp/setCharacter只能在同一个线程（主线程）调用
+ */
+public class StrokeValidationPipeline {
+    public static final int DEFAULT_CAPACITY = 1024;
+    private static final int RESERVED_SLOTS = 4;   //留给开始、结束、换字事件的位置
+    private static final int BATCH = 64;
+
+    private final TouchSampleRing ring;
+    private final Executor callbackExecutor;
+    private final Callback callback;
+    private final Thread thread;
+    private volatile boolean running;
+    private volatile boolean waiting;       //判定线程没事做，准备park
+
+    //换字  主线程写，判定线程读到KIND_RESET的时候取
+    private volatile Target pendingTarget;
+    private volatile int generation;        //主线程的当前代数  送回来的结果代数不一样就丢掉
+
+    //缓冲区快满的时候保留的最新的点  只在主线程使用
+    private boolean hasPendingMove;
+    private float pendingX, pendingY;
+    private long pendingTime;
+
+    private final AtomicLong droppedSamples = new AtomicLong();
+    private final AtomicLong blockedPublishes = new AtomicLong();
+    private final LatencyHistogram queueLatency = new LatencyHistogram(HanziMetrics.DEFAULT_RECENT_CAPACITY);
+    private final LatencyHistogram resultLatency = new LatencyHistogram(HanziMetrics.DEFAULT_RECENT_CAPACITY);
+
+    //以下只在判定线程使用
+    private Target target;
+    private int strokeIndex;
+    private StrokeJudge judge;
+    private boolean tracking;               //这一笔是不是从起点或者终点开始的
+
+    /**
+     * @param capacity 缓冲区的容量
+     * @param callbackExecutor 结果在这里回调
+     * @param callback
+     */
+    public StrokeValidationPipeline(int capacity, Executor callbackExecutor, Callback callback) {
+        this.ring = new TouchSampleRing(Math.max(capacity, RESERVED_SLOTS * 2));
+        this.callbackExecutor = callbackExecutor;
+        this.callback = callback;
+        this.thread = new Thread(worker, "hanzi-stroke-validation");
+        this.thread.setDaemon(true);
+    }
+
+    public void start(){
+        running = true;
+        thread.start();
+    }
+
+    /**
+     * 停止判定线程  没有处理的采样点和还没送回去的结果都丢掉
+     */
+    public void stop(){
+        running = false;
+        generation ++;
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * 开始判定一个字
+     * @param strokes 每一笔的中线
+     * @param radius 判定半径
+     * @param startIndex 从第几笔开始
+     */
+    public void setCharacter(List<MedianStroke> strokes, float radius, int startIndex){
+        generation ++;
+        pendingTarget = new Target(strokes, radius, startIndex, generation);
+        publishControl(TouchSampleRing.KIND_RESET, 0, 0);
+    }
+
+    /**
+     * 不再判定当前的字  之后的笔画都不判定，还没送回去的结果都丢掉
+     * 重新开始写或者换了模式的时候调用
+     */
+    public void clearCharacter(){
+        generation ++;
+        pendingTarget = null;
+        publishControl(TouchSampleRing.KIND_RESET, 0, 0);
+    }
+
+    public void onDown(float x, float y){
+        publishControl(TouchSampleRing.KIND_BEGIN, x, y);
+    }
+
+    /**
+     * 中间的点  缓冲区快满的时候先保留着，之后的点会覆盖它
+     * @return 有没有马上放进去
+     */
+    public boolean onMove(float x, float y){
+        long time = System.nanoTime();
+        if(hasPendingMove && !offerMove(pendingX, pendingY, pendingTime)){
+            //还是没有位置  用新的点覆盖保留的点
+            droppedSamples.incrementAndGet();
+            pendingX = x;
+            pendingY = y;
+            pendingTime = time;
+            wakeUp();
+            return false;
+        }
+        hasPendingMove = false;
+        if(!offerMove(x, y, time)){
+            hasPendingMove = true;
+            pendingX = x;
+            pendingY = y;
+            pendingTime = time;
+            wakeUp();
+            return false;
+        }
+        wakeUp();
+        return true;
+    }
+
+    public void onUp(float x, float y){
+        publishControl(TouchSampleRing.KIND_END, x, y);
+    }
+
+    /**
+     * 因为缓冲区满被丢掉的点
+     */
+    public long getDroppedSamples(){
+        return droppedSamples.get();
+    }
+
+    /**
+     * 缓冲区满了，主线程等判定线程的次数
+     */
+    public long getBlockedPublishes(){
+        return blockedPublishes.get();
+    }
+
+    /**
+     * 采样点从放进缓冲区到被判定线程读到的时间
+     */
+    public LatencyHistogram getQueueLatency() {
+        return queueLatency;
+    }
+
+    /**
+     * 从松开手指到结果送回callbackExecutor的时间
+     */
+    public LatencyHistogram getResultLatency() {
+        return resultLatency;
+    }
+
+    private boolean offerMove(float x, float y, long time){
+        return ring.remainingCapacity() > RESERVED_SLOTS && ring.offer(TouchSampleRing.KIND_MOVE, x, y, time);
+    }
+
+    /**
+     * 不能丢的事件  先放保留的点，缓冲区满了就让出CPU等判定线程读走
+     */
+    private void publishControl(byte kind, float x, float y){
+        if(hasPendingMove){
+            hasPendingMove = false;
+            offerBlocking(TouchSampleRing.KIND_MOVE, pendingX, pendingY, pendingTime);
+        }
+        offerBlocking(kind, x, y, System.nanoTime());
+        wakeUp();
+    }
+
+    private void offerBlocking(byte kind, float x, float y, long time){
+        if(ring.offer(kind, x, y, time)){
+            return;
+        }
+        blockedPublishes.incrementAndGet();
+        do {
+            LockSupport.unpark(thread);
+            Thread.yield();
+        }while (running && !ring.offer(kind, x, y, time));
+    }
+
+    private void wakeUp(){
+        if(waiting){
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private final Runnable worker = new Runnable() {
+        @Override
+        public void run() {
+            while (running){
+                if(ring.drain(consumer, BATCH) > 0){
+                    continue;
+                }
+                //先标记再检查一次  主线程写完之后看到标记就会unpark，不会漏掉
+                waiting = true;
+                if(ring.isEmpty() && running){
+                    LockSupport.park(this);
+                }
+                waiting = false;
+            }
+        }
+    };
+
+    private final TouchSampleRing.Consumer consumer = new TouchSampleRing.Consumer() {
+        @Override
+        public void onSample(byte kind, float x, float y, long time) {
+            queueLatency.record(System.nanoTime() - time);
+            switch (kind){
+                case TouchSampleRing.KIND_RESET:
+                    target = pendingTarget;
+                    strokeIndex = target == null ? 0 : target.startIndex;
+                    judge = null;
+                    tracking = false;
+                    break;
+                case TouchSampleRing.KIND_BEGIN:
+                    tracking = false;
+                    if(target != null && strokeIndex < target.strokes.size()){
+                        judge = target.judgeFor(strokeIndex, judge);
+                        tracking = judge.begin(x, y) || judge.isOk();
+                    }
+                    break;
+                case TouchSampleRing.KIND_MOVE:
+                    if(tracking){
+                        judge.addPoint(x, y);
+                    }
+                    break;
+                case TouchSampleRing.KIND_END:
+                    if(tracking){
+                        tracking = false;
+                        finishStroke(time);
+                    }
+                    break;
+            }
+        }
+    };
+
+    /**
+     * 一笔写完  把结果送回去，写对了就到下一笔
+     */
+    private void finishStroke(long upTime){
+        final int index = strokeIndex;
+        final int result = judge.getResult();
+        final float quality = judge.getQuality();
+        final boolean characterEnd = result == StrokeJudge.RESULT_ACCEPTED
+                && index + 1 >= target.strokes.size();
+        if(result == StrokeJudge.RESULT_ACCEPTED){
+            strokeIndex ++;
+        }
+
+        final int resultGeneration = target.generation;
+        final long start = upTime;
+        callbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if(resultGeneration != generation){
+                    return;
+                }
+                resultLatency.record(System.nanoTime() - start);
+                callback.onStrokeResult(index, result, quality);
+                if(characterEnd){
+                    callback.onCharacterEnd();
+                }
+            }
+        });
+    }
+
+    /**
+     * 一个字的判定数据  不可变
+     */
+    private static final class Target {
+        final List<MedianStroke> strokes;
+        final float radius;
+        final int startIndex;
+        final int generation;
+
+        Target(List<MedianStroke> strokes, float radius, int startIndex, int generation) {
+            this.strokes = strokes;
+            this.radius = radius;
+            this.startIndex = startIndex;
+            this.generation = generation;
+        }
+
+        StrokeJudge judgeFor(int index, StrokeJudge current){
+            MedianStroke median = strokes.get(index);
+            if(current != null && current.getStroke() == median && current.getRadius() == radius){
+                return current;
+            }
+            return new StrokeJudge(median, radius);
+        }
+    }
+
+    public interface Callback{
+        /**
+         * 一笔写完  在callbackExecutor里调用
+         * @param index 第几笔
+         * @param result StrokeJudge.RESULT_XXX
+         * @param quality 0到1
+         */
+        void onStrokeResult(int index, int result, float quality);
+
+        /**
+         * 整个字写完  紧跟在最后一笔的onStrokeResult之后
+         */
+        void onCharacterEnd();
+    }
+}
@@ -0,0 +1,401 @@
+package com.example.hanzicore;
+
+/**
+ * svg路径解析器
+ *
+ * 逐个字符扫描，一遍就把命令发给 {@link PathSink}
+ * 数字直接在原字符串上解析，不产生String，也不装箱
+ * 同一个对象可以反复使用，预热之后解析一个汉字不会产生任何垃圾
+ *
+ * 支持所有的svg路径命令 M L H V Q T C S A Z 以及它们的相对坐标形式
+ * 所有命令都转换成绝对坐标，H V 转换成lineTo，T S 转换成完整的控制点，A 转换成三次贝塞尔曲线
+ *
+ * 不是线程安全的，每个线程用自己的对象
+ */
+public class SvgPathParser {
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private CharSequence svg;
+    private int index;
+    private int length;
+
+    /**
+     * 解析svg路径
+     * @param svg
+     * @param sink 接收解析出来的命令
+     * @throws IllegalArgumentException svg格式不对
+     */
+    public void parse(CharSequence svg, PathSink sink){
+        this.svg = svg;
+        this.index = 0;
+        this.length = svg.length();
+
+        try{
+            parse(sink);
+        }finally {
+            this.svg = null;
+        }
+    }
+
+    private void parse(PathSink sink){
+        //当前点  当前子路径的起点  上一个控制点（用于T S的反射）
+        float x = 0, y = 0;
+        float startX = 0, startY = 0;
+        float controlX = 0, controlY = 0;
+        char command = 0;
+        char lastCommand = 0;
+
+        while (true){
+            skipSeparators();
+            if(index >= length){
+                break;
+            }
+
+            char c = svg.charAt(index);
+            if(isCommand(c)){
+                command = c;
+                index ++;
+            }else if(command == 0 || command == 'Z' || command == 'z' || !isNumberStart(c)){
+                throw error("unexpected '" + c + "'");
+            }
+
+            boolean relative = command >= 'a';
+            float baseX = relative ? x : 0;
+            float baseY = relative ? y : 0;
+            char upper = relative ? (char) (command - ('a' - 'A')) : command;
+
+            switch (upper){
+                case 'M':
+                    x = baseX + nextNumber();
+                    y = baseY + nextNumber();
+                    startX = x;
+                    startY = y;
+                    sink.moveTo(x, y);
+                    //M后面连续的坐标都当作L处理
+                    command = relative ? 'l' : 'L';
+                    break;
+                case 'L':
+                    x = baseX + nextNumber();
+                    y = baseY + nextNumber();
+                    sink.lineTo(x, y);
+                    break;
+                case 'H':
+                    x = baseX + nextNumber();
+                    sink.lineTo(x, y);
+                    break;
+                case 'V':
+                    y = baseY + nextNumber();
+                    sink.lineTo(x, y);
+                    break;
+                case 'Q':
+                    controlX = baseX + nextNumber();
+                    controlY = baseY + nextNumber();
+                    x = baseX + nextNumber();
+                    y = baseY + nextNumber();
+                    sink.quadTo(controlX, controlY, x, y);
+                    break;
+                case 'T':
+                    if(lastCommand == 'Q' || lastCommand == 'T'){
+                        controlX = 2 * x - controlX;
+                        controlY = 2 * y - controlY;
+                    }else{
+                        controlX = x;
+                        controlY = y;
+                    }
+                    x = baseX + nextNumber();
+                    y = baseY + nextNumber();
+                    sink.quadTo(controlX, controlY, x, y);
+                    break;
+                case 'C': {
+                    float x1 = baseX + nextNumber();
+                    float y1 = baseY + nextNumber();
+                    controlX = baseX + nextNumber();
+                    controlY = baseY + nextNumber();
+                    x = baseX + nextNumber();
+                    y = baseY + nextNumber();
+                    sink.cubicTo(x1, y1, controlX, controlY, x, y);
+                    break;
+                }
+                case 'S': {
+                    float x1, y1;
+                    if(lastCommand == 'C' || lastCommand == 'S'){
+                        x1 = 2 * x - controlX;
+                        y1 = 2 * y - controlY;
+                    }else{
+                        x1 = x;
+                        y1 = y;
+                    }
+                    controlX = baseX + nextNumber();
+                    controlY = baseY + nextNumber();
+                    x = baseX + nextNumber();
+                    y = baseY + nextNumber();
+                    sink.cubicTo(x1, y1, controlX, controlY, x, y);
+                    break;
+                }
+                case 'A': {
+                    float rx = nextNumber();
+                    float ry = nextNumber();
+                    float rotation = nextNumber();
+                    boolean largeArc = nextFlag();
+                    boolean sweep = nextFlag();
+                    float endX = baseX + nextNumber();
+                    float endY = baseY + nextNumber();
+                    arcTo(sink, x, y, rx, ry, rotation, largeArc, sweep, endX, endY);
+                    x = endX;
+                    y = endY;
+                    break;
+                }
+                case 'Z':
+                    sink.close();
+                    x = startX;
+                    y = startY;
+                    break;
+                default:
+                    throw error("unsupported command '" + command + "'");
+            }
+            lastCommand = upper;
+        }
+    }
+
+    private static boolean isCommand(char c){
+        switch (c){
+            case 'M': case 'm':
+            case 'L': case 'l':
+            case 'H': case 'h':
+            case 'V': case 'v':
+            case 'Q': case 'q':
+            case 'T': case 't':
+            case 'C': case 'c':
+            case 'S': case 's':
+            case 'A': case 'a':
+            case 'Z': case 'z':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isNumberStart(char c){
+        return c >= '0' && c <= '9' || c == '-' || c == '+' || c == '.';
+    }
+
+    private void skipSeparators(){
+        while (index < length){
+            char c = svg.charAt(index);
+            if(c == ' ' || c == ',' || c == '\t' || c == '\n' || c == '\r' || c == '\f'){
+                index ++;
+            }else{
+                break;
+            }
+        }
+    }
+
+    /**
+     * 弧线的两个标志位  可以不用分隔符连在一起写  比如 "a25 25 0 1050 0"
+     */
+    private boolean nextFlag(){
+        skipSeparators();
+        if(index < length){
+            char c = svg.charAt(index);
+            if(c == '0' || c == '1'){
+                index ++;
+                return c == '1';
+            }
+        }
+        throw error("arc flag expected");
+    }
+
+    /**
+     * 在原字符串上解析一个数字
+     * 支持符号、小数和指数，像 "1.5.5" "-1-2" 这样紧挨着的数字也能正确分开
+     */
+    private float nextNumber(){
+        skipSeparators();
+        int start = index;
+
+        boolean negative = false;
+        if(index < length){
+            char c = svg.charAt(index);
+            if(c == '-' || c == '+'){
+                negative = c == '-';
+                index ++;
+            }
+        }
+
+        long mantissa = 0;
+        int exponent = 0;
+        int digits = 0;
+        boolean dot = false;
+        while (index < length){
+            char c = svg.charAt(index);
+            if(c >= '0' && c <= '9'){
+                //超过long能精确表示的位数就只记录数量级
+                if(mantissa < 100000000000000000L){
+                    mantissa = mantissa * 10 + (c - '0');
+                    if(dot){
+                        exponent --;
+                    }
+                }else if(!dot){
+                    exponent ++;
+                }
+                digits ++;
+                index ++;
+            }else if(c == '.' && !dot){
+                dot = true;
+                index ++;
+            }else{
+                break;
+            }
+        }
+        if(digits == 0){
+            index = start;
+            throw error("number expected");
+        }
+
+        if(index < length && (svg.charAt(index) == 'e' || svg.charAt(index) == 'E')){
+            int mark = index;
+            index ++;
+            boolean negativeExponent = false;
+            if(index < length && (svg.charAt(index) == '-' || svg.charAt(index) == '+')){
+                negativeExponent = svg.charAt(index) == '-';
+                index ++;
+            }
+            int value = 0;
+            int exponentDigits = 0;
+            while (index < length && svg.charAt(index) >= '0' && svg.charAt(index) <= '9'){
+                if(value < 10000){
+                    value = value * 10 + (svg.charAt(index) - '0');
+                }
+                exponentDigits ++;
+                index ++;
+            }
+            if(exponentDigits == 0){
+                //不是指数，回退
+                index = mark;
+            }else{
+                exponent += negativeExponent ? -value : value;
+            }
+        }
+
+        double result = mantissa;
+        if(exponent < 0){
+            result = -exponent < POWERS_OF_TEN.length
+                    ? result / POWERS_OF_TEN[-exponent]
+                    : result / Math.pow(10, -exponent);
+        }else if(exponent > 0){
+            result = exponent < POWERS_OF_TEN.length
+                    ? result * POWERS_OF_TEN[exponent]
+                    : result * Math.pow(10, exponent);
+        }
+        return (float) (negative ? -result : result);
+    }
+
+    /**
+     * 把svg的椭圆弧转换成三次贝塞尔曲线
+     * 按照svg规范 F.6.5 转换成中心参数化，再每90度拆一段
+     */
+    private static void arcTo(PathSink sink, float x0, float y0, float rx, float ry, float rotation,
+                              boolean largeArc, boolean sweep, float x, float y){
+        if(x0 == x && y0 == y){
+            return;
+        }
+        if(rx == 0 || ry == 0){
+            sink.lineTo(x, y);
+            return;
+        }
+
+        double radiusX = Math.abs(rx);
+        double radiusY = Math.abs(ry);
+        double phi = Math.toRadians(rotation % 360);
+        double cos = Math.cos(phi);
+        double sin = Math.sin(phi);
+
+        double dx2 = (x0 - x) / 2.0;
+        double dy2 = (y0 - y) / 2.0;
+        double x1p = cos * dx2 + sin * dy2;
+        double y1p = -sin * dx2 + cos * dy2;
+
+        //半径不够大时按规范放大
+        double lambda = (x1p * x1p) / (radiusX * radiusX) + (y1p * y1p) / (radiusY * radiusY);
+        if(lambda > 1){
+            double scale = Math.sqrt(lambda);
+            radiusX *= scale;
+            radiusY *= scale;
+        }
+
+        double rx2 = radiusX * radiusX;
+        double ry2 = radiusY * radiusY;
+        double numerator = rx2 * ry2 - rx2 * y1p * y1p - ry2 * x1p * x1p;
+        double denominator = rx2 * y1p * y1p + ry2 * x1p * x1p;
+        double coefficient = Math.sqrt(Math.max(0, numerator / denominator));
+        if(largeArc == sweep){
+            coefficient = -coefficient;
+        }
+        double cxp = coefficient * radiusX * y1p / radiusY;
+        double cyp = -coefficient * radiusY * x1p / radiusX;
+        double cx = cos * cxp - sin * cyp + (x0 + x) / 2.0;
+        double cy = sin * cxp + cos * cyp + (y0 + y) / 2.0;
+
+        double ux = (x1p - cxp) / radiusX;
+        double uy = (y1p - cyp) / radiusY;
+        double vx = (-x1p - cxp) / radiusX;
+        double vy = (-y1p - cyp) / radiusY;
+        double theta = Math.atan2(uy, ux);
+        double delta = Math.atan2(ux * vy - uy * vx, ux * vx + uy * vy);
+        if(!sweep && delta > 0){
+            delta -= 2 * Math.PI;
+        }else if(sweep && delta < 0){
+            delta += 2 * Math.PI;
+        }
+
+        int segments = (int) Math.ceil(Math.abs(delta) / (Math.PI / 2) - 1e-7);
+        if(segments < 1){
+            segments = 1;
+        }
+        double step = delta / segments;
+        double t = 4.0 / 3.0 * Math.tan(step / 4);
+
+        double cos1 = Math.cos(theta);
+        double sin1 = Math.sin(theta);
+        for(int i = 0 ; i < segments ; i ++){
+            double theta2 = theta + step;
+            double cos2 = Math.cos(theta2);
+            double sin2 = Math.sin(theta2);
+
+            //单位圆上的控制点
+            double c1x = cos1 - t * sin1;
+            double c1y = sin1 + t * cos1;
+            double c2x = cos2 + t * sin2;
+            double c2y = sin2 - t * cos2;
+
+            float endX, endY;
+            if(i == segments - 1){
+                endX = x;
+                endY = y;
+            }else{
+                endX = (float) (cx + radiusX * cos2 * cos - radiusY * sin2 * sin);
+                endY = (float) (cy + radiusX * cos2 * sin + radiusY * sin2 * cos);
+            }
+            sink.cubicTo(
+                    (float) (cx + radiusX * c1x * cos - radiusY * c1y * sin),
+                    (float) (cy + radiusX * c1x * sin + radiusY * c1y * cos),
+                    (float) (cx + radiusX * c2x * cos - radiusY * c2y * sin),
+                    (float) (cy + radiusX * c2x * sin + radiusY * c2y * cos),
+                    endX, endY);
+
+            theta = theta2;
+            cos1 = cos2;
+            sin1 = sin2;
+        }
+    }
+
+    /**
+     * 出错的时候才拼接字符串
+     */
+    private IllegalArgumentException error(String message){
+        return new IllegalArgumentException(message + " at " + index + ": " + svg);
+    }
+}
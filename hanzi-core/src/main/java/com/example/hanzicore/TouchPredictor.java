@@ -0,0 +1,228 @@
+package com.example.hanzicore;
+
+/**
+ * 根据最近的采样点预测手指接下来的位置  用来把墨迹多画一小段，抵消从采样到显示的延迟
+ *
+ * TYPE_LINEAR：用最近几个点的平均速度往前推
+ * TYPE_KALMAN：x、y各用一个匀加速模型的卡尔曼滤波估计位置、速度和加速度，抖动小，拐弯的时候跟得更紧
+ *
+ * 预测的点只用来画，不参与判定；每来一个真的采样点就重新预测一次
+ * 记录和预测都不分配内存  只在一个线程里使用
+ */
+public class TouchPredictor {
+    public static final int TYPE_LINEAR = 0;
+    public static final int TYPE_KALMAN = 1;
+
+    public static final long DEFAULT_HORIZON = 16;      //默认往前预测一帧 毫秒
+    public static final long MAX_HORIZON = 50;          //再长就不准了
+
+    private static final int LINEAR_WINDOW = 4;         //线性预测用最近几个点
+    private static final long MAX_SAMPLE_GAP = 50;      //两个点隔得太久就当作停过，重新开始
+    private static final float MIN_SPEED = 0.05f;       //比这个慢就不预测 像素/毫秒
+    private static final float MAX_OVERSHOOT = 2;       //预测的距离最多是按当前速度走的几倍
+
+    //卡尔曼滤波的噪声  坐标是像素，时间是毫秒
+    private static final float MEASUREMENT_NOISE = 1f;      //采样点的误差 像素的平方
+    private static final float JERK_NOISE = 0.000005f;      //加速度变化的快慢  越大拐弯跟得越紧，抖动也越明显
+
+    private final int type;
+    private long horizon = DEFAULT_HORIZON;
+
+    private int sampleCount;        //这一笔有几个点
+    private long lastTime;
+    private float lastX, lastY;
+
+    //线性  最近的几个点 环形
+    private final float[] xs = new float[LINEAR_WINDOW];
+    private final float[] ys = new float[LINEAR_WINDOW];
+    private final long[] times = new long[LINEAR_WINDOW];
+
+    private final Axis axisX = new Axis();
+    private final Axis axisY = new Axis();
+
+    /**
+     * @param type TYPE_XXX
+     */
+    public TouchPredictor(int type) {
+        if(type != TYPE_LINEAR && type != TYPE_KALMAN){
+            throw new IllegalArgumentException("unknown type: " + type);
+        }
+        this.type = type;
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    /**
+     * 往前预测多久  一般是一帧到两帧
+     * @param horizon 毫秒  0表示不预测
+     */
+    public void setHorizon(long horizon) {
+        if(horizon < 0){
+            throw new IllegalArgumentException("horizon must not be negative: " + horizon);
+        }
+        this.horizon = Math.min(horizon, MAX_HORIZON);
+    }
+
+    public long getHorizon() {
+        return horizon;
+    }
+
+    /**
+     * 开始新的一笔
+     */
+    public void reset(){
+        sampleCount = 0;
+    }
+
+    /**
+     * 加一个真的采样点
+     * @param x
+     * @param y
+     * @param time 采样的时间 毫秒
+     */
+    public void addSample(float x, float y, long time){
+        if(sampleCount > 0 && (time < lastTime || time - lastTime > MAX_SAMPLE_GAP)){
+            //停了很久或者时间倒退  之前的速度没有意义了
+            sampleCount = 0;
+        }
+
+        if(type == TYPE_LINEAR){
+            int index = sampleCount % LINEAR_WINDOW;
+            xs[index] = x;
+            ys[index] = y;
+            times[index] = time;
+        }else if(sampleCount == 0){
+            axisX.reset(x);
+            axisY.reset(y);
+        }else{
+            float dt = time - lastTime;
+            axisX.update(x, dt);
+            axisY.update(y, dt);
+        }
+
+        sampleCount ++;
+        lastTime = time;
+        lastX = x;
+        lastY = y;
+    }
+
+    /**
+     * 预测horizon毫秒之后的位置
+     * @param out 长度至少为2  预测的x,y
+     * @return 点太少、太慢或者horizon为0的时候返回false，out不变
+     */
+    public boolean predict(float[] out){
+        if(horizon == 0 || sampleCount < 3){
+            return false;
+        }
+
+        float vx, vy;
+        float dx, dy;
+        if(type == TYPE_LINEAR){
+            int count = Math.min(sampleCount, LINEAR_WINDOW);
+            int first = (sampleCount - count) % LINEAR_WINDOW;
+            long dt = lastTime - times[first];
+            if(dt <= 0){
+                return false;
+            }
+            vx = (lastX - xs[first]) / dt;
+            vy = (lastY - ys[first]) / dt;
+            dx = vx * horizon;
+            dy = vy * horizon;
+        }else{
+            //从最后一个真的点往前推  滤波后的位置会稍微落后，接不上已经画出来的墨迹
+            vx = axisX.velocity;
+            vy = axisY.velocity;
+            dx = axisX.displacement(horizon);
+            dy = axisY.displacement(horizon);
+        }
+
+        float speed = (float) Math.sqrt(vx * vx + vy * vy);
+        if(speed < MIN_SPEED){
+            return false;
+        }
+        //加速度很大的时候不要冲得太远
+        float distance = (float) Math.sqrt(dx * dx + dy * dy);
+        float maxDistance = speed * horizon * MAX_OVERSHOOT;
+        if(distance > maxDistance){
+            dx *= maxDistance / distance;
+            dy *= maxDistance / distance;
+        }
+        out[0] = lastX + dx;
+        out[1] = lastY + dy;
+        return true;
+    }
+
+    /**
+     * 一个方向上的匀加速卡尔曼滤波  状态是位置、速度、加速度
+     */
+    private static final class Axis {
+        float position, velocity, acceleration;
+        //协方差矩阵  对称，只存上三角
+        float p00, p01, p02, p11, p12, p22;
+
+        void reset(float value){
+            position = value;
+            velocity = 0;
+            acceleration = 0;
+            p00 = MEASUREMENT_NOISE;
+            p01 = p02 = p12 = 0;
+            //一开始不知道速度和加速度
+            p11 = 10;
+            p22 = 0.01f;
+        }
+
+        void update(float measured, float dt){
+            //预测  x' = F x,  P' = F P F^T + Q
+            float dt2 = dt * dt;
+            float half = dt2 / 2;
+            position += velocity * dt + acceleration * half;
+            velocity += acceleration * dt;
+
+            float a00 = p00 + dt * p01 + half * p02;
+            float a01 = p01 + dt * p11 + half * p12;
+            float a02 = p02 + dt * p12 + half * p22;
+            float a11 = p11 + dt * p12;
+            float a12 = p12 + dt * p22;
+            float n00 = a00 + dt * a01 + half * a02;
+            float n01 = a01 + dt * a02;
+            float n02 = a02;
+            float n11 = a11 + dt * a12;
+            float n12 = a12;
+            float n22 = p22;
+
+            float dt3 = dt2 * dt;
+            float q = JERK_NOISE;
+            p00 = n00 + q * dt3 * dt2 / 20;
+            p01 = n01 + q * dt3 * dt / 8;
+            p02 = n02 + q * dt3 / 6;
+            p11 = n11 + q * dt3 / 3;
+            p12 = n12 + q * dt2 / 2;
+            p22 = n22 + q * dt;
+
+            //更新  只观测位置
+            float s = p00 + MEASUREMENT_NOISE;
+            float k0 = p00 / s;
+            float k1 = p01 / s;
+            float k2 = p02 / s;
+            float residual = measured - position;
+            position += k0 * residual;
+            velocity += k1 * residual;
+            acceleration += k2 * residual;
+
+            float q00 = p00, q01 = p01, q02 = p02;
+            p00 -= k0 * q00;
+            p01 -= k0 * q01;
+            p02 -= k0 * q02;
+            p11 -= k1 * q01;
+            p12 -= k1 * q02;
+            p22 -= k2 * q02;
+        }
+
+        float displacement(float dt){
+            return velocity * dt + acceleration * dt * dt / 2;
+        }
+    }
+}
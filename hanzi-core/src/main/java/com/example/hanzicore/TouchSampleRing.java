@@ -0,0 +1,135 @@
+package com.example.hanzicore;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 触摸采样点的环形缓冲区  一个线程写、一个线程读，不加锁
+ *
+ * 每个槽位的类型、坐标和时间分别放在预先分配好的基本类型数组里，写入和读取都不分配内存
+ * 写的一方先填好槽位再推进tail，读的一方读完槽位再推进head，两个位置都是volatile的，保证槽位的内容对另一方可见
+ */
+public final class TouchSampleRing {
+    /**
+     * 一笔开始
+     */
+    public static final byte KIND_BEGIN = 1;
+    /**
+     * 一笔中间的点
+     */
+    public static final byte KIND_MOVE = 2;
+    /**
+     * 一笔结束
+     */
+    public static final byte KIND_END = 3;
+    /**
+     * 换了一个字  坐标没有意义
+     */
+    public static final byte KIND_RESET = 4;
+
+    private final int mask;
+    private final byte[] kinds;
+    private final float[] xs;
+    private final float[] ys;
+    private final long[] times;
+
+    private final AtomicLong head = new AtomicLong();   //下一个要读的位置  只有读的一方写
+    private final AtomicLong tail = new AtomicLong();   //下一个要写的位置  只有写的一方写
+    private long cachedHead;                            //写的一方看到的head  减少读volatile
+
+    /**
+     * @param capacity 容量  向上取到2的幂
+     */
+    public TouchSampleRing(int capacity) {
+        if(capacity <= 0){
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if(size < capacity){
+            size <<= 1;
+        }
+        mask = size - 1;
+        kinds = new byte[size];
+        xs = new float[size];
+        ys = new float[size];
+        times = new long[size];
+    }
+
+    public int getCapacity(){
+        return mask + 1;
+    }
+
+    /**
+     * 还能写几个  只在写的线程调用
+     * @return
+     */
+    public int remainingCapacity(){
+        long position = tail.get();
+        if(position - cachedHead > mask){
+            cachedHead = head.get();
+        }
+        return (int) (mask + 1 - (position - cachedHead));
+    }
+
+    /**
+     * 写入一个采样点  只在写的线程调用
+     * @return 满了返回false
+     */
+    public boolean offer(byte kind, float x, float y, long time){
+        long position = tail.get();
+        if(position - cachedHead > mask){
+            cachedHead = head.get();
+            if(position - cachedHead > mask){
+                return false;
+            }
+        }
+        int index = (int) position & mask;
+        kinds[index] = kind;
+        xs[index] = x;
+        ys[index] = y;
+        times[index] = time;
+        tail.set(position + 1);
+        return true;
+    }
+
+    public boolean isEmpty(){
+        return head.get() == tail.get();
+    }
+
+    /**
+     * 当前有几个没读的  两个线程都可以调用，结果只是个大概
+     * @return
+     */
+    public int size(){
+        return (int) (tail.get() - head.get());
+    }
+
+    /**
+     * 读出所有没读的采样点  只在读的线程调用
+     * @param consumer
+     * @param max 最多读几个
+     * @return 读了几个
+     */
+    public int drain(Consumer consumer, int max){
+        long position = head.get();
+        long available = Math.min(tail.get() - position, max);
+        for(long i = 0 ; i < available ; i ++){
+            int index = (int) (position + i) & mask;
+            consumer.onSample(kinds[index], xs[index], ys[index], times[index]);
+        }
+        if(available > 0){
+            head.lazySet(position + available);
+        }
+        return (int) available;
+    }
+
+    public interface Consumer{
+        /**
+         * 读到一个采样点
+         * @param kind KIND_XXX
+         * @param x
+         * @param y
+         * @param time 写入时的时间 纳秒
+         */
+        void onSample(byte kind, float x, float y, long time);
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.hanzicore;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link AdaptiveQualityController} 的升降级
+ */
+public class AdaptiveQualityControllerTest {
+    private static final long BUDGET = 16000000;
+
+    private static void feed(AdaptiveQualityController controller, int frames, long nanos){
+        for(int i = 0 ; i < frames ; i ++){
+            controller.record(nanos);
+        }
+    }
+
+    @Test
+    public void stepsDownOneLevelPerWindow() {
+        AdaptiveQualityController controller = new AdaptiveQualityController(10);
+        controller.setFrameBudget(BUDGET);
+
+        feed(controller, 9, BUDGET * 2);
+        assertEquals(AdaptiveQualityController.LEVEL_FULL, controller.getLevel());
+        feed(controller, 1, BUDGET * 2);
+        assertEquals(AdaptiveQualityController.LEVEL_NO_AA_OUTLINES, controller.getLevel());
+
+        feed(controller, 100, BUDGET * 2);
+        assertEquals(AdaptiveQualityController.MAX_LEVEL, controller.getLevel());
+    }
+
+    @Test
+    public void occasionalSlowFrameDoesNotStepDown() {
+        AdaptiveQualityController controller = new AdaptiveQualityController(10);
+        controller.setFrameBudget(BUDGET);
+        for(int i = 0 ; i < 100 ; i ++){
+            controller.record(i % 10 == 0 ? BUDGET * 3 : BUDGET / 2);
+        }
+        assertEquals(AdaptiveQualityController.LEVEL_FULL, controller.getLevel());
+    }
+
+    @Test
+    public void stepsUpWithHeadroom() {
+        AdaptiveQualityController controller = new AdaptiveQualityController(10);
+        controller.setFrameBudget(BUDGET);
+        controller.setLevel(AdaptiveQualityController.LEVEL_RECT_CLIP);
+
+        //在预算之内但是没有余量  保持不变
+        feed(controller, 50, BUDGET * 3 / 4);
+        assertEquals(AdaptiveQualityController.LEVEL_RECT_CLIP, controller.getLevel());
+
+        feed(controller, 10, BUDGET / 4);
+        assertEquals(AdaptiveQualityController.LEVEL_SIMPLIFIED_OUTLINES, controller.getLevel());
+        feed(controller, 20, BUDGET / 4);
+        assertEquals(AdaptiveQualityController.LEVEL_FULL, controller.getLevel());
+    }
+
+    @Test
+    public void intervalsCountDroppedFrames() {
+        AdaptiveQualityController controller = new AdaptiveQualityController(10);
+        controller.setFrameBudget(BUDGET);
+
+        //按时出的帧  间隔有一点抖动也不算掉帧
+        for(int i = 0 ; i < 50 ; i ++){
+            controller.recordInterval(i % 2 == 0 ? BUDGET * 11 / 10 : BUDGET * 9 / 10);
+        }
+        assertEquals(AdaptiveQualityController.LEVEL_FULL, controller.getLevel());
+
+        //一半的帧隔了两个vsync
+        for(int i = 0 ; i < 10 ; i ++){
+            controller.recordInterval(i % 2 == 0 ? BUDGET * 2 : BUDGET);
+        }
+        assertEquals(AdaptiveQualityController.LEVEL_NO_AA_OUTLINES, controller.getLevel());
+
+        //一个窗口都没掉帧  升回来
+        for(int i = 0 ; i < 10 ; i ++){
+            controller.recordInterval(BUDGET);
+        }
+        assertEquals(AdaptiveQualityController.LEVEL_FULL, controller.getLevel());
+    }
+
+    @Test
+    public void levelThatKeepsFailingIsRetriedLessOften() {
+        AdaptiveQualityController controller = new AdaptiveQualityController(10);
+        controller.setFrameBudget(BUDGET);
+        final int[] changes = new int[1];
+        controller.setListener(new AdaptiveQualityController.Listener() {
+            @Override
+            public void onLevelChanged(int oldLevel, int newLevel) {
+                changes[0] ++;
+            }
+        });
+
+        //完整质量每帧都掉  降一级就不掉了
+        int lastChange = 0;
+        int lastGap = 0;
+        for(int i = 0 ; i < 600 ; i ++){
+            boolean full = controller.getLevel() == AdaptiveQualityController.LEVEL_FULL;
+            if(controller.recordInterval(full ? BUDGET * 2 : BUDGET)
+                    && controller.getLevel() == AdaptiveQualityController.LEVEL_FULL){
+                //每次重新试完整质量的间隔越来越长
+                assertTrue(i - lastChange > lastGap);
+                lastGap = i - lastChange;
+                lastChange = i;
+            }
+        }
+        //不退避的话每20帧跳一次
+        assertTrue(String.valueOf(changes[0]), changes[0] <= 12);
+        assertEquals(AdaptiveQualityController.LEVEL_NO_AA_OUTLINES, controller.getLevel());
+
+        //直接设置等级之后  升级又只要一个窗口
+        controller.setLevel(AdaptiveQualityController.LEVEL_NO_AA_OUTLINES);
+        feed(controller, 10, BUDGET / 4);
+        assertEquals(AdaptiveQualityController.LEVEL_FULL, controller.getLevel());
+    }
+}
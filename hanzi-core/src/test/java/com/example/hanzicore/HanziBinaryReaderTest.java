@@ -0,0 +1,272 @@
+package com.example.hanzicore;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * graphics.txt用 {@link HanziBinaryCompiler} 编译之后，{@link HanziBinaryReader} 读出来的字形
+ * 和 {@link HanziDataLoader} 直接读json解析出来的一样；损坏的文件打开时就报IOException
+ */
+public class HanziBinaryReaderTest {
+    //makemeahanzi的“一”
+    private static final String YI = "M 518 382 Q 572 385 623 389 Q 758 399 900 383 Q 928 379 935 390 "
+            + "Q 944 405 930 419 Q 896 452 845 475 Q 829 482 798 473 Q 723 460 480 434 Q 180 409 137 408 "
+            + "Q 130 408 124 399 Q 119 388 137 372 Q 170 348 237 360 Q 243 363 410 376 L 518 382 Z";
+
+    private static final String[] LINES = {
+            "{\"character\": \"一\", \"strokes\": [\"" + YI + "\"], \"medians\": [[[121, 393], [210, 375], "
+                    + "[512, 407], [765, 426], [916, 401]]]}",
+            //相对坐标、三次曲线和弧线  编译之后都是绝对坐标的三次曲线
+            "{\"character\": \"二\", \"strokes\": [\"m 100 300 h 800 c 10 10 10 40 0 50 H 100 Z\", "
+                    + "\"M 50 700 L 950 700 A 25 25 0 0 1 950 750 L 50 750 Z\"], "
+                    + "\"medians\": [[[120, 320], [880, 320]], [[70, 725], [930, 725]]]}",
+            //扩展区的字  码点超过0xFFFF
+            "{\"character\": \"𠀀\", \"strokes\": [\"M 0 0 L 10 0 L 10 10 Z\"], "
+                    + "\"medians\": [[[1, 1], [9, 9]]]}",
+    };
+
+    private File graphicsFile;
+    private File binaryFile;    //最近一次编译的输出
+    private final List<File> binaryFiles = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        graphicsFile = File.createTempFile("graphics", ".txt");
+        Writer writer = new OutputStreamWriter(new FileOutputStream(graphicsFile), Charset.forName("UTF-8"));
+        try{
+            //故意打乱顺序  索引要按码点排序
+            writer.write(LINES[1] + "\n\n" + LINES[2] + "\n" + LINES[0] + "\n");
+        }finally {
+            writer.close();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        graphicsFile.delete();
+        new File(graphicsFile.getPath() + ".idx").delete();
+        for(File file : binaryFiles){
+            file.delete();
+        }
+    }
+
+    /**
+     * 每次编译到新的文件  有的系统上映射过的文件不能再写
+     */
+    private HanziBinaryReader compile() throws IOException {
+        return compile(3);
+    }
+
+    private HanziBinaryReader compile(int expectedCount) throws IOException {
+        compileFile(expectedCount);
+        return new HanziBinaryReader(binaryFile);
+    }
+
+    private void compileFile(int expectedCount) throws IOException {
+        binaryFile = File.createTempFile("hanzi", ".bin");
+        binaryFiles.add(binaryFile);
+        assertEquals(expectedCount, HanziBinaryCompiler.compile(graphicsFile.getPath(), binaryFile.getPath()));
+    }
+
+    private static void assertSameGlyph(HanziGlyph expected, HanziGlyph actual){
+        assertEquals(expected.getWord(), actual.getWord());
+        assertEquals(expected.getOutlineCount(), actual.getOutlineCount());
+        for(int i = 0 ; i < expected.getOutlineCount() ; i ++){
+            assertArrayEquals(expected.getStrokeCommands(i), actual.getStrokeCommands(i));
+            assertArrayEquals(expected.getStrokeCoordinates(i), actual.getStrokeCoordinates(i), 0);
+        }
+        assertEquals(expected.getMedianCount(), actual.getMedianCount());
+        for(int i = 0 ; i < expected.getMedianCount() ; i ++){
+            assertArrayEquals(expected.getMedian(i), actual.getMedian(i), 0);
+        }
+    }
+
+    @Test
+    public void compiledFileReadsBack() throws IOException {
+        HanziBinaryReader reader = compile();
+        try{
+            assertEquals(3, reader.getGlyphCount());
+            assertEquals('一', reader.getCodePoint(0));
+            assertEquals('二', reader.getCodePoint(1));
+            assertEquals(0x20000, reader.getCodePoint(2));
+
+            assertTrue(reader.contains('一'));
+            assertFalse(reader.contains('三'));
+            assertNull(reader.loadGlyph('三'));
+
+            HanziGlyph expected = HanziGlyph.fromSvg("二",
+                    Arrays.asList("M 100 300 L 900 300 C 910 310 910 340 900 350 L 100 350 Z",
+                            "M 50 700 L 950 700 A 25 25 0 0 1 950 750 L 50 750 Z"),
+                    new float[][]{{120, 320, 880, 320}, {70, 725, 930, 725}}, new SvgPathParser());
+            assertSameGlyph(expected, reader.loadGlyph('二'));
+
+            HanziGlyph extension = reader.loadGlyph(0x20000);
+            assertEquals(0x20000, extension.getCodePoint());
+            assertEquals(1, extension.getStrokeCount());
+            assertArrayEquals(new float[]{1, 1, 9, 9}, extension.getMedian(0), 0);
+        }finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void binaryMatchesJsonLoader() throws IOException {
+        HanziBinaryReader reader = compile();
+        HanziDataLoader loader = new HanziDataLoader(graphicsFile);
+        try{
+            assertEquals(3, loader.getCount());
+            for(char word : new char[]{'一', '二'}){
+                assertTrue(loader.contains(word));
+                assertSameGlyph(loader.loadGlyph(word), reader.loadGlyph(word));
+                //按内容比较  重新读出来的新对象和原来的相等，可以共用缓存
+                assertEquals(loader.loadGlyph(word), reader.loadGlyph(word));
+                assertEquals(loader.loadGlyph(word).hashCode(), reader.loadGlyph(word).hashCode());
+            }
+            assertFalse(reader.loadGlyph('一').equals(reader.loadGlyph('二')));
+            assertNull(loader.loadGlyph('三'));
+        }finally {
+            loader.close();
+            reader.close();
+        }
+    }
+
+    @Test
+    public void emptyFileHasNoGlyphs() throws IOException {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(graphicsFile), Charset.forName("UTF-8"));
+        writer.close();
+        HanziBinaryReader reader = compile(0);
+        try{
+            assertEquals(0, reader.getGlyphCount());
+            assertNull(reader.loadGlyph('一'));
+        }finally {
+            reader.close();
+        }
+    }
+
+    private void assertRejected(String reason){
+        try{
+            new HanziBinaryReader(binaryFile).close();
+            fail(reason);
+        }catch (IOException e){
+            //预期之中
+        }
+    }
+
+    private void corrupt(long position, int value) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(binaryFile, "rw");
+        try{
+            file.seek(position);
+            file.writeInt(value);
+        }finally {
+            file.close();
+        }
+    }
+
+    private void truncate(long length) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(binaryFile, "rw");
+        try{
+            file.setLength(length);
+        }finally {
+            file.close();
+        }
+    }
+
+    @Test
+    public void corruptedFilesAreRejected() throws IOException {
+        compileFile(3);
+        long length = binaryFile.length();
+        int indexEnd = HanziBinaryFormat.HEADER_SIZE + 3 * HanziBinaryFormat.INDEX_ENTRY_SIZE;
+
+        corrupt(0, 0x12345678);
+        assertRejected("magic");
+
+        compileFile(3);
+        corrupt(8, 100000);
+        assertRejected("glyph count larger than the file");
+
+        compileFile(3);
+        corrupt(8, -1);
+        assertRejected("negative glyph count");
+
+        compileFile(3);
+        corrupt(HanziBinaryFormat.HEADER_SIZE + HanziBinaryFormat.INDEX_ENTRY_SIZE + 4, (int) length);
+        assertRejected("offset past the end");
+
+        compileFile(3);
+        corrupt(HanziBinaryFormat.HEADER_SIZE + 4, 4);
+        assertRejected("offset inside the index");
+
+        //记录被截掉
+        compileFile(3);
+        truncate(indexEnd + 1);
+        assertRejected("truncated records");
+
+        compileFile(3);
+        truncate(HanziBinaryFormat.HEADER_SIZE + 4);
+        assertRejected("truncated index");
+
+        truncate(2);
+        assertRejected("truncated header");
+    }
+
+    @Test
+    public void truncatedLastRecordFailsToLoad() throws IOException {
+        compileFile(3);
+        long length = binaryFile.length();
+        //最后一条记录是𠀀  截在中线、坐标、命令和笔画数中间
+        for(int cut : new int[]{1, 14, 27, 40}){
+            compileFile(3);
+            truncate(length - cut);
+            HanziBinaryReader reader = new HanziBinaryReader(binaryFile);
+            try{
+                //前面的记录不受影响
+                assertNotNull(reader.loadGlyph('一'));
+                assertNotNull(reader.loadGlyph('二'));
+                try{
+                    reader.loadGlyph(0x20000);
+                    fail("cut " + cut);
+                }catch (IOException e){
+                    //预期之中
+                }
+                //损坏的记录跳过，其他字照样建索引
+                assertEquals(2, HanziRecognizer.build(reader).getGlyphCount());
+            }finally {
+                reader.close();
+            }
+        }
+    }
+
+    @Test
+    public void unsortedInputStillSearchable() throws IOException {
+        HanziBinaryReader reader = compile();
+        try{
+            int[] codePoints = new int[reader.getGlyphCount()];
+            for(int i = 0 ; i < codePoints.length ; i ++){
+                codePoints[i] = reader.getCodePoint(i);
+            }
+            int[] sorted = codePoints.clone();
+            Arrays.sort(sorted);
+            assertArrayEquals(sorted, codePoints);
+            for(int codePoint : codePoints){
+                assertNotNull(reader.loadGlyph(codePoint));
+            }
+            assertEquals("一", reader.loadGlyph('一').getWord());
+        }finally {
+            reader.close();
+        }
+    }
+}
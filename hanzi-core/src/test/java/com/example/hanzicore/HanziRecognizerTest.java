@@ -0,0 +1,116 @@
+package com.example.hanzicore;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link HanziRecognizer} 的过滤和排序
+ */
+public class HanziRecognizerTest {
+    //原始坐标  y轴向上
+    private static final float[] TOP_HORIZONTAL = {200, 600, 800, 600};
+    private static final float[] MIDDLE_HORIZONTAL = {150, 380, 870, 380};
+    private static final float[] BOTTOM_HORIZONTAL = {120, 100, 900, 100};
+    private static final float[] VERTICAL = {512, 800, 512, -50};
+
+    private static HanziGlyph glyph(String word, float[]... medians){
+        byte[][] commands = new byte[medians.length][0];
+        float[][] coordinates = new float[medians.length][0];
+        return new HanziGlyph(word, commands, coordinates, medians);
+    }
+
+    private static HanziRecognizer recognizer(){
+        return new HanziRecognizer.Builder()
+                .add(glyph("一", MIDDLE_HORIZONTAL))
+                .add(glyph("丨", VERTICAL))
+                .add(glyph("十", MIDDLE_HORIZONTAL, VERTICAL))
+                .add(glyph("二", TOP_HORIZONTAL, BOTTOM_HORIZONTAL))
+                .add(glyph("三", TOP_HORIZONTAL, MIDDLE_HORIZONTAL, BOTTOM_HORIZONTAL))
+                .build();
+    }
+
+    /**
+     * 用户写的笔画  点比中线密，还带一点抖动
+     */
+    private static float[] written(float[] median, float offsetY){
+        int steps = 20;
+        float[] points = new float[(steps + 1) * 2];
+        for(int i = 0 ; i <= steps ; i ++){
+            float t = (float) i / steps;
+            points[i * 2] = median[0] + (median[2] - median[0]) * t + (i % 2 == 0 ? 6 : -6);
+            points[i * 2 + 1] = median[1] + (median[3] - median[1]) * t + offsetY;
+        }
+        return points;
+    }
+
+    private static String words(List<HanziRecognizer.Candidate> candidates){
+        StringBuilder builder = new StringBuilder();
+        for(HanziRecognizer.Candidate candidate : candidates){
+            builder.append(candidate.getWord());
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void firstStrokePrunesByDirection() {
+        HanziRecognizer.Session session = recognizer().newSession();
+        session.addStroke(written(MIDDLE_HORIZONTAL, 20));
+
+        List<HanziRecognizer.Candidate> candidates = session.getCandidates(10);
+        assertFalse(words(candidates).contains("丨"));
+        assertEquals("一", candidates.get(0).getWord());
+        assertTrue(words(candidates).contains("十"));
+    }
+
+    @Test
+    public void candidatesUpdateAfterEachStroke() {
+        HanziRecognizer.Session session = recognizer().newSession();
+        session.addStroke(written(TOP_HORIZONTAL, -10));
+        session.addStroke(written(BOTTOM_HORIZONTAL, 10));
+        assertEquals("二", session.getCandidates(1).get(0).getWord());
+
+        session.addStroke(written(BOTTOM_HORIZONTAL, 0));
+        //第三笔写在底部  三的第三笔对不上，但还在允许的范围内
+        assertEquals(3, session.getStrokeCount());
+        assertEquals("三", session.getCandidates(1).get(0).getWord());
+
+        session.removeLastStroke();
+        assertEquals("二", session.getCandidates(1).get(0).getWord());
+
+        session.reset();
+        assertEquals(0, session.getStrokeCount());
+        assertTrue(session.getCandidates(5).isEmpty());
+    }
+
+    @Test
+    public void tooManyStrokesRemovesEverything() {
+        HanziRecognizer.Session session = recognizer().newSession();
+        session.addStroke(written(VERTICAL, 0));
+        assertEquals("丨", session.getCandidates(1).get(0).getWord());
+
+        session.addStroke(written(VERTICAL, 0));
+        assertEquals(0, session.getCandidateCount());
+    }
+
+    @Test
+    public void resampleKeepsEndpoints() {
+        float[] out = new float[HanziRecognizer.SHAPE_POINTS * 2];
+        StrokeFeatures.resample(new float[]{0, 0, 10, 0, 10, 60}, HanziRecognizer.SHAPE_POINTS, out, 0);
+        assertEquals(0, out[0], 0.001f);
+        assertEquals(10, out[out.length - 2], 0.001f);
+        assertEquals(60, out[out.length - 1], 0.001f);
+        //总长80，每段10
+        assertEquals(10, out[2], 0.001f);
+        assertEquals(0, out[3], 0.001f);
+        assertEquals(10, out[5], 0.001f);
+
+        //复用的缓冲区比折线长  后面剩下的旧数据不影响结果
+        float[] reused = new float[HanziRecognizer.SHAPE_POINTS * 2];
+        StrokeFeatures.resample(new float[]{0, 0, 10, 0, 10, 60, 500, 500}, 6,
+                HanziRecognizer.SHAPE_POINTS, reused, 0);
+        assertArrayEquals(out, reused, 0);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.hanzicore;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link LatencyHistogram} 的分桶、百分位数和最近的值
+ */
+public class LatencyHistogramTest {
+    @Test
+    public void buckets_containTheirBounds() {
+        for(int bucket = 0 ; bucket < LatencyHistogram.BUCKET_COUNT - 1 ; bucket ++){
+            long lower = LatencyHistogram.bucketLowerBound(bucket);
+            long upper = LatencyHistogram.bucketUpperBound(bucket);
+            assertTrue(lower < upper);
+            assertEquals(bucket, LatencyHistogram.bucketOf(lower));
+            assertEquals(bucket, LatencyHistogram.bucketOf(upper - 1));
+        }
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void percentiles_withinBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram(8);
+        //1到1000微秒各一次
+        for(int i = 1 ; i <= 1000 ; i ++){
+            histogram.record(i * 1000L);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(1000, snapshot.getMin());
+        assertEquals(1000000, snapshot.getMax());
+        assertEquals(500500, snapshot.getMean());
+
+        long p50 = snapshot.getPercentile(50);
+        assertTrue(p50 >= 500000 && p50 <= 500000 * 1.25);
+        long p99 = snapshot.getPercentile(99);
+        assertTrue(p99 >= 990000 && p99 <= 1000000);
+        assertEquals(1000000, snapshot.getPercentile(100));
+    }
+
+    @Test
+    public void recent_keepsLatestInOrder() {
+        LatencyHistogram histogram = new LatencyHistogram(3);
+        histogram.record(1);
+        histogram.record(2);
+        assertArrayEquals(new long[]{1, 2}, histogram.snapshot().getRecent());
+
+        histogram.record(3);
+        histogram.record(4);
+        histogram.record(5);
+        assertArrayEquals(new long[]{3, 4, 5}, histogram.snapshot().getRecent());
+
+        histogram.reset();
+        assertEquals(0, histogram.snapshot().getCount());
+        assertEquals(0, histogram.snapshot().getRecent().length);
+    }
+}
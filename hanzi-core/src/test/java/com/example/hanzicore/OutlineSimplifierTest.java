@@ -0,0 +1,104 @@
+package com.example.hanzicore;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link OutlineSimplifier} 的误差和点数
+ */
+public class OutlineSimplifierTest {
+    //makemeahanzi的“一”
+    private static final String YI = "M 518 382 Q 572 385 623 389 Q 758 399 900 383 Q 928 379 935 390 "
+            + "Q 944 405 930 419 Q 896 452 845 475 Q 829 482 798 473 Q 723 460 480 434 Q 180 409 137 408 "
+            + "Q 130 408 124 399 Q 119 388 137 372 Q 170 348 237 360 Q 243 363 410 376 L 518 382 Z";
+
+    @Test
+    public void collinearPoints_removed() {
+        PathRecorder recorder = new PathRecorder();
+        OutlineSimplifier simplifier = new OutlineSimplifier(recorder, 0.5f);
+        simplifier.moveTo(0, 0);
+        simplifier.lineTo(5, 0.1f);
+        simplifier.lineTo(10, 0);
+        simplifier.lineTo(10, 10);
+        simplifier.close();
+
+        assertArrayEquals(new byte[]{HanziBinaryFormat.CMD_MOVE_TO, HanziBinaryFormat.CMD_LINE_TO,
+                HanziBinaryFormat.CMD_LINE_TO, HanziBinaryFormat.CMD_CLOSE}, recorder.getCommands());
+        assertArrayEquals(new float[]{0, 0, 10, 0, 10, 10}, recorder.getCoordinates(), 0);
+    }
+
+    @Test
+    public void flattenedCurve_withinTolerance() {
+        float tolerance = 0.5f;
+        PathRecorder recorder = new PathRecorder();
+        OutlineSimplifier simplifier = new OutlineSimplifier(recorder, tolerance);
+        simplifier.moveTo(0, 0);
+        simplifier.quadTo(50, 100, 100, 0);
+        simplifier.finish();
+
+        float[] points = recorder.getCoordinates();
+        assertTrue(points.length / 2 > 2);
+        assertTrue(points.length / 2 < 64);
+        for(int i = 0 ; i <= 1000 ; i ++){
+            float t = i / 1000f;
+            float x = 2 * (1 - t) * t * 50 + t * t * 100;
+            float y = 2 * (1 - t) * t * 100;
+            assertTrue("t=" + t, distanceToPolyline(points, x, y) <= tolerance * 1.001f);
+        }
+    }
+
+    @Test
+    public void flattenAndRdpErrors_doNotStack() {
+        //很平的弧  最高点比tolerance高一点，拍平后离最高点最近的点比tolerance低一点
+        //去点的时候如果也用整个tolerance，这些点都会被去掉，只剩一条弦，误差超过tolerance
+        float tolerance = 1;
+        float peak = 1.1f;
+        PathRecorder recorder = new PathRecorder();
+        OutlineSimplifier simplifier = new OutlineSimplifier(recorder, tolerance);
+        simplifier.moveTo(0, 0);
+        simplifier.quadTo(50, peak * 2, 100, 0);
+        simplifier.finish();
+
+        float[] points = recorder.getCoordinates();
+        for(int i = 0 ; i <= 1000 ; i ++){
+            float t = i / 1000f;
+            float x = 2 * (1 - t) * t * 50 + t * t * 100;
+            float y = 2 * (1 - t) * t * peak * 2;
+            assertTrue("t=" + t, distanceToPolyline(points, x, y) <= tolerance * 1.001f);
+        }
+    }
+
+    @Test
+    public void smallSize_fewerVertices() {
+        HanziGlyph glyph = HanziGlyph.fromSvg("一", Collections.singletonList(YI),
+                new float[][]{{121, 393, 919, 402}}, new SvgPathParser());
+        //48像素的时候半个像素相当于原始坐标的 0.5 * 1024 / 48
+        HanziGlyph small = OutlineSimplifier.simplify(glyph, 0.5f * 1024 / 48);
+        HanziGlyph large = OutlineSimplifier.simplify(glyph, 0.5f * 1024 / 1024);
+
+        int smallPoints = small.getStrokeCoordinates(0).length / 2;
+        int largePoints = large.getStrokeCoordinates(0).length / 2;
+        assertTrue(smallPoints + " " + largePoints, smallPoints * 2 < largePoints);
+        assertTrue(smallPoints < glyph.getStrokeCommands(0).length);
+        for(byte command : small.getStrokeCommands(0)){
+            assertTrue(command == HanziBinaryFormat.CMD_MOVE_TO || command == HanziBinaryFormat.CMD_LINE_TO
+                    || command == HanziBinaryFormat.CMD_CLOSE);
+        }
+        assertArrayEquals(glyph.getMedian(0), small.getMedian(0), 0);
+    }
+
+    private static float distanceToPolyline(float[] points, float x, float y){
+        float best = Float.MAX_VALUE;
+        for(int i = 0 ; i + 3 < points.length ; i += 2){
+            float ax = points[i], ay = points[i + 1];
+            float dx = points[i + 2] - ax, dy = points[i + 3] - ay;
+            float t = Math.max(0, Math.min(1, ((x - ax) * dx + (y - ay) * dy) / (dx * dx + dy * dy)));
+            float ex = ax + dx * t - x, ey = ay + dy * t - y;
+            best = Math.min(best, (float) Math.sqrt(ex * ex + ey * ey));
+        }
+        return best;
+    }
+}
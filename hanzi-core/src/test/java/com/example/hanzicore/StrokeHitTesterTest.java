@@ -0,0 +1,153 @@
+package com.example.hanzicore;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 用原来的解方程算法校验 {@link StrokeHitTester}
+ */
+public class StrokeHitTesterTest {
+    //"我"的中线  1024x1024原始坐标
+    private static final int[][][] MEDIANS = {
+            {{458,627},{392,631},{336,588},{274,552},{258,550},{253,542},{220,530},{212,532},{203,522}},
+            {{174,404},{215,398},{241,402},{672,514},{742,512}},
+            {{323,556},{351,542},{365,522},{361,116},{340,67},{246,113}},
+            {{100,206},{124,195},{163,189},{492,334}},
+            {{492,807},{537,760},{538,627},{569,435},{612,299},{676,170},{717,112},{779,48},{817,22},{859,12},{880,78},{891,140},{886,147},{894,173}},
+            {{723,412},{737,365},{664,259},{594,198},{489,142},{454,132}},
+            {{657,710},{750,668},{781,634}}
+    };
+
+    private static final int SIZE = 1080;
+    private static final float RADIUS = 60;
+
+    private static MedianStroke createStroke(int[][] median){
+        float scale = SIZE / 1024f;
+        float[] points = new float[median.length * 2];
+        for(int i = 0 ; i < median.length ; i ++){
+            points[i * 2] = median[i][0] * scale;
+            points[i * 2 + 1] = (900 - median[i][1]) * scale;
+        }
+        return new MedianStroke(points);
+    }
+
+    /**
+     * 原来HanziWriterView.checkDrawPointInHanziStroke的算法
+     * @return 命中时的点序号，没命中返回-1
+     */
+    private static int legacyHitTest(MedianStroke median, float x0, float y0, double r){
+        for(int i = median.getSegmentCount() - 1 ; i >= 0 ; i --){
+            double x1 = median.getX(i + 1);
+            double y1 = median.getY(i + 1);
+            double x2 = median.getX(i);
+            double y2 = median.getY(i);
+
+            if(x1 == x2){
+                x2 ++;
+            }
+            if(y1 == y2){
+                y2 ++;
+            }
+
+            double A = y2 - y1;
+            double B = x1 - x2;
+            double C = y1 * (x2 - x1) - x1 * (y2 - y1);
+            double d = Math.abs((A * x0 + B * y0 + C) / Math.sqrt(A * A + B * B));
+            if(d <= r){
+                double A1 = (B * B) / (A * A) + 1;
+                double B1 = (2 * B * C) / (A * A) + (2 * x0 * B) / A - 2 * y0;
+                double C1 = (C * C) / (A * A) + (2 * x0 * C) / A + x0 * x0 + y0 * y0 - r * r;
+                double dt = B1 * B1 - 4 * A1 * C1;
+                double Y1 = (-B1 + Math.sqrt(dt)) / (2 * A1);
+                double Y2 = (-B1 - Math.sqrt(dt)) / (2 * A1);
+                double X1 = (-B * Y1 - C) / A;
+                double X2 = (-B * Y2 - C) / A;
+                if(Math.max(Math.min(x1, x2), Math.min(X1, X2)) <= Math.min(Math.max(x1, x2), Math.max(X1, X2))){
+                    return i + 1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 点到每条线段的最小距离和判定半径差多少
+     * 原来的算法会把线段挪动1像素，边界附近的点两种算法结果可能不同
+     */
+    private static boolean nearBoundary(MedianStroke median, float x, float y){
+        for(int i = 0 ; i < median.getSegmentCount() ; i ++){
+            double x1 = median.getX(i), y1 = median.getY(i);
+            double dx = median.getSegmentDx(i), dy = median.getSegmentDy(i);
+            double t = ((x - x1) * dx + (y - y1) * dy) / (dx * dx + dy * dy);
+            t = Math.max(0, Math.min(1, t));
+            double d = Math.hypot(x - x1 - t * dx, y - y1 - t * dy);
+            if(Math.abs(d - RADIUS) < 2){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void randomPoints_matchLegacyAlgorithm() {
+        Random random = new Random(20201124);
+        int compared = 0;
+        for(int[][] median : MEDIANS){
+            MedianStroke stroke = createStroke(median);
+            StrokeHitTester tester = new StrokeHitTester(stroke, RADIUS);
+            for(int i = 0 ; i < 5000 ; i ++){
+                float x = random.nextFloat() * SIZE;
+                float y = random.nextFloat() * SIZE;
+                if(nearBoundary(stroke, x, y)){
+                    continue;
+                }
+                assertEquals("(" + x + "," + y + ")",
+                        legacyHitTest(stroke, x, y, RADIUS), tester.hitTest(x, y));
+                compared ++;
+            }
+        }
+        assertTrue(compared > 30000);
+    }
+
+    @Test
+    public void pointsOnMedian_reachLastPoint() {
+        for(int[][] median : MEDIANS){
+            MedianStroke stroke = createStroke(median);
+            StrokeHitTester tester = new StrokeHitTester(stroke, RADIUS);
+
+            //沿着中线从头写到尾，和原来一样要能经过80%的点
+            int legacyMax = 0;
+            int max = 0;
+            for(int i = 0 ; i < stroke.getSegmentCount() ; i ++){
+                for(int step = 0 ; step <= 10 ; step ++){
+                    float x = stroke.getX(i) + stroke.getSegmentDx(i) * step / 10f;
+                    float y = stroke.getY(i) + stroke.getSegmentDy(i) * step / 10f;
+                    int hit = tester.hitTest(x, y);
+                    assertTrue(hit > 0);
+                    max = Math.max(max, hit);
+                    legacyMax = Math.max(legacyMax, legacyHitTest(stroke, x, y, RADIUS));
+                }
+            }
+            assertEquals(legacyMax, max);
+            assertTrue(max >= (int) (stroke.getPointCount() * 0.8));
+        }
+    }
+
+    @Test
+    public void farAwayPoint_misses() {
+        MedianStroke stroke = createStroke(MEDIANS[6]);
+        StrokeHitTester tester = new StrokeHitTester(stroke, RADIUS);
+        assertEquals(-1, tester.hitTest(0, 0));
+        assertEquals(-1, tester.hitTest(-1000, 5000));
+    }
+
+    @Test
+    public void singlePointStroke_neverHits() {
+        MedianStroke stroke = new MedianStroke(new float[]{100, 100});
+        StrokeHitTester tester = new StrokeHitTester(stroke, RADIUS);
+        assertEquals(-1, tester.hitTest(100, 100));
+    }
+}
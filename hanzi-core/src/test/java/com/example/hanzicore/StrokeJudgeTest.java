@@ -0,0 +1,101 @@
+package com.example.hanzicore;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link StrokeJudge} 的判定规则
+ */
+public class StrokeJudgeTest {
+    //一条从(100,100)到(500,100)的横  5个点
+    private static MedianStroke horizontal(){
+        return new MedianStroke(new float[]{100, 100, 200, 100, 300, 100, 400, 100, 500, 100});
+    }
+
+    @Test
+    public void mustStartNearFirstPoint() {
+        StrokeJudge judge = new StrokeJudge(horizontal(), 30);
+        assertTrue(judge.begin(110, 110));
+        assertFalse(judge.begin(500, 100));
+        assertFalse(judge.isAccepted());
+    }
+
+    @Test
+    public void acceptsAfterEightyPercent() {
+        StrokeJudge judge = new StrokeJudge(horizontal(), 30);
+        assertEquals(4, judge.getRequiredPointIndex());
+
+        assertTrue(judge.begin(100, 100));
+        for(int x = 100 ; x <= 350 ; x += 10){
+            assertTrue(judge.addPoint(x, 105));
+        }
+        assertFalse(judge.isAccepted());
+
+        judge.addPoint(400, 95);
+        assertTrue(judge.isAccepted());
+    }
+
+    @Test
+    public void leavingTheStrokeRejects() {
+        StrokeJudge judge = new StrokeJudge(horizontal(), 30);
+        assertTrue(judge.begin(100, 100));
+        judge.addPoint(200, 100);
+        assertFalse(judge.addPoint(300, 200));
+        judge.addPoint(500, 100);
+        assertEquals(4, judge.getMaxPointIndex());
+        assertFalse(judge.isOk());
+        assertFalse(judge.isAccepted());
+
+        //重新开始这一笔
+        assertTrue(judge.begin(100, 100));
+        judge.addPoint(500, 100);
+        assertTrue(judge.isAccepted());
+    }
+
+    @Test
+    public void backwardsStrokeIsDetected() {
+        StrokeJudge judge = new StrokeJudge(horizontal(), 30);
+        assertFalse(judge.begin(500, 100));
+        assertTrue(judge.isOk());
+        for(int x = 490 ; x >= 100 ; x -= 10){
+            judge.addPoint(x, 100);
+        }
+        assertEquals(StrokeJudge.RESULT_BACKWARDS, judge.getResult());
+        assertFalse(judge.isAccepted());
+    }
+
+    @Test
+    public void retracingInsideTheRangeIsWrongShape() {
+        //一直在判定范围内，但是写到头又退回去再写一遍
+        StrokeJudge judge = new StrokeJudge(horizontal(), 30);
+        assertTrue(judge.begin(100, 100));
+        for(int x = 110 ; x <= 500 ; x += 10){
+            assertTrue(judge.addPoint(x, 100));
+        }
+        for(int x = 490 ; x >= 200 ; x -= 10){
+            assertTrue(judge.addPoint(x, 100));
+        }
+        for(int x = 210 ; x <= 500 ; x += 10){
+            assertTrue(judge.addPoint(x, 100));
+        }
+        assertTrue(judge.isOk());
+        assertEquals(StrokeJudge.RESULT_WRONG_SHAPE, judge.getResult());
+    }
+
+    @Test
+    public void qualityGradesTheShape() {
+        StrokeJudge good = new StrokeJudge(horizontal(), 30);
+        good.begin(100, 100);
+        StrokeJudge shaky = new StrokeJudge(horizontal(), 30);
+        shaky.begin(100, 100);
+        for(int x = 110 ; x <= 500 ; x += 10){
+            good.addPoint(x, 102);
+            shaky.addPoint(x, (x / 10) % 2 == 0 ? 90 : 110);
+        }
+        assertEquals(StrokeJudge.RESULT_ACCEPTED, good.getResult());
+        assertEquals(StrokeJudge.RESULT_ACCEPTED, shaky.getResult());
+        assertTrue(good.getQuality() > shaky.getQuality());
+        assertTrue(good.getQuality() > 0.8f);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.hanzicore;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link StrokeShapeMatcher} 的分数
+ */
+public class StrokeShapeMatcherTest {
+    //从(100,100)到(500,100)再到(500,300)的横折
+    private static final float[] TURN = {100, 100, 300, 100, 500, 100, 500, 300};
+
+    private static void write(StrokeShapeMatcher matcher, float[] points, float offsetY){
+        matcher.begin(points[0], points[1] + offsetY);
+        for(int i = 2 ; i + 1 < points.length ; i += 2){
+            //每段拆成很多个采样点
+            for(int step = 1 ; step <= 10 ; step ++){
+                float t = step / 10f;
+                matcher.addPoint(points[i - 2] + (points[i] - points[i - 2]) * t,
+                        points[i - 1] + (points[i + 1] - points[i - 1]) * t + offsetY);
+            }
+        }
+    }
+
+    @Test
+    public void sameShapeScoresNearZero() {
+        StrokeShapeMatcher matcher = new StrokeShapeMatcher(TURN, 20, false);
+        write(matcher, TURN, 0);
+        assertEquals(0, matcher.getScore(1), 1f);
+        assertEquals(1, matcher.getProgress(), 0.001f);
+    }
+
+    @Test
+    public void offsetIsTheMeanDistance() {
+        StrokeShapeMatcher matcher = new StrokeShapeMatcher(TURN, 20, false);
+        write(matcher, TURN, 15);
+        float score = matcher.getScore(1);
+        assertTrue("score " + score, score > 8 && score < 16);
+    }
+
+    @Test
+    public void reversedMatcherPrefersBackwardStrokes() {
+        float[] backwards = {500, 300, 500, 100, 300, 100, 100, 100};
+        StrokeShapeMatcher forward = new StrokeShapeMatcher(TURN, 20, false);
+        StrokeShapeMatcher reversed = new StrokeShapeMatcher(TURN, 20, true);
+        write(forward, backwards, 0);
+        write(reversed, backwards, 0);
+        assertEquals(0, reversed.getScore(1), 1f);
+        assertTrue(forward.getScore(0.8f) > 100);
+    }
+
+    @Test
+    public void openEndAllowsPartialStrokes() {
+        StrokeShapeMatcher matcher = new StrokeShapeMatcher(TURN, 20, false);
+        write(matcher, new float[]{100, 100, 300, 100, 500, 100, 500, 200}, 0);
+        assertEquals(0, matcher.getScore(0.75f), 1f);
+        //要求对齐到终点  没写的部分都对到最后一个点上
+        assertTrue(matcher.getScore(1) > 5);
+        assertEquals(Float.POSITIVE_INFINITY, new StrokeShapeMatcher(TURN, 20, false).getScore(0), 0);
+    }
+
+    @Test
+    public void longStrokesAreCapped() {
+        StrokeShapeMatcher matcher = new StrokeShapeMatcher(new float[]{0, 0, 100000, 0}, 1, false);
+        assertTrue(matcher.getReferenceCount() <= 128);
+        assertTrue(matcher.getBand() < matcher.getReferenceCount());
+    }
+}
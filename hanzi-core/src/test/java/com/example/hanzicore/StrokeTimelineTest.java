@@ -0,0 +1,99 @@
+package com.example.hanzicore;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link StrokeTimeline} 和 {@link MedianStroke#extract} 的换算
+ */
+public class StrokeTimelineTest {
+
+    private static List<MedianStroke> strokes(float... lengths){
+        List<MedianStroke> list = new ArrayList<>();
+        for(float length : lengths){
+            list.add(new MedianStroke(new float[]{0, 0, length, 0}));
+        }
+        return list;
+    }
+
+    @Test
+    public void durations_scaleWithLength() {
+        StrokeTimeline timeline = new StrokeTimeline(strokes(100, 100, 400, 10), 1000, 500);
+        //平均长度152.5
+        assertEquals(655, timeline.getStrokeDuration(0));
+        assertEquals(2000, timeline.getStrokeDuration(2));//最多2倍
+        assertEquals(500, timeline.getStrokeDuration(3));//最少0.5倍
+        assertEquals(0, timeline.getStrokeStart(0));
+        assertEquals(655 + 500, timeline.getStrokeStart(1));
+        assertEquals(655 * 2 + 2000 + 500 + 500 * 3, timeline.getTotalDuration());
+    }
+
+    @Test
+    public void strokeIndex_includesDelayAfterStroke() {
+        StrokeTimeline timeline = new StrokeTimeline(strokes(100, 100), 1000, 500);
+        assertEquals(-1, timeline.getStrokeIndexAt(-1));
+        assertEquals(0, timeline.getStrokeIndexAt(0));
+        assertEquals(0, timeline.getStrokeIndexAt(1400));
+        assertEquals(1f, timeline.getStrokeProgressAt(0, 1400), 0);
+        assertEquals(1, timeline.getStrokeIndexAt(1500));
+        assertEquals(0.5f, timeline.getStrokeProgressAt(1, 2000), 1e-6);
+        assertEquals(1, timeline.getStrokeIndexAt(5000));
+    }
+
+    @Test
+    public void extract_interpolatesLastPoint() {
+        MedianStroke stroke = new MedianStroke(new float[]{0, 0, 30, 40, 30, 140});
+        assertEquals(150, stroke.getLength(), 1e-4);
+        assertEquals(50, stroke.getLengthAt(1), 1e-4);
+
+        final List<Float> points = new ArrayList<>();
+        PathSink sink = new PathSink() {
+            @Override
+            public void moveTo(float x, float y) {
+                points.add(x);
+                points.add(y);
+            }
+
+            @Override
+            public void lineTo(float x, float y) {
+                points.add(x);
+                points.add(y);
+            }
+
+            @Override
+            public void quadTo(float x1, float y1, float x2, float y2) {
+                fail();
+            }
+
+            @Override
+            public void cubicTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+                fail();
+            }
+
+            @Override
+            public void close() {
+                fail();
+            }
+        };
+
+        stroke.extract(25, sink);
+        assertEquals(4, points.size());
+        assertEquals(15, points.get(2), 1e-4);
+        assertEquals(20, points.get(3), 1e-4);
+
+        points.clear();
+        stroke.extract(100, sink);
+        assertEquals(6, points.size());
+        assertEquals(30, points.get(4), 1e-4);
+        assertEquals(90, points.get(5), 1e-4);
+
+        points.clear();
+        stroke.extract(1000, sink);
+        assertEquals(6, points.size());
+        assertEquals(140, points.get(5), 1e-4);
+    }
+}
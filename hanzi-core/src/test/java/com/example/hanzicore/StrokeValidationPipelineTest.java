@@ -0,0 +1,154 @@
+package com.example.hanzicore;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link StrokeValidationPipeline} 在另一个线程判定，结果按顺序送回来
+ */
+public class StrokeValidationPipelineTest {
+    //两笔横
+    private static final List<MedianStroke> STROKES = Arrays.asList(
+            new MedianStroke(new float[]{100, 100, 300, 100, 500, 100}),
+            new MedianStroke(new float[]{100, 300, 300, 300, 500, 300}));
+
+    private static void write(StrokeValidationPipeline pipeline, float fromX, float toX, float y){
+        pipeline.onDown(fromX, y);
+        float step = fromX < toX ? 10 : -10;
+        for(float x = fromX + step ; fromX < toX ? x <= toX : x >= toX ; x += step){
+            pipeline.onMove(x, y);
+        }
+        pipeline.onUp(toX, y);
+    }
+
+    @Test
+    public void resultsArriveInOrder() throws InterruptedException {
+        final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch done = new CountDownLatch(1);
+        StrokeValidationPipeline pipeline = new StrokeValidationPipeline(64, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        }, new StrokeValidationPipeline.Callback() {
+            @Override
+            public void onStrokeResult(int index, int result, float quality) {
+                events.add(index + ":" + result);
+            }
+
+            @Override
+            public void onCharacterEnd() {
+                events.add("end");
+                done.countDown();
+            }
+        });
+        pipeline.start();
+        pipeline.setCharacter(STROKES, 30, 0);
+
+        write(pipeline, 100, 500, 100);     //第一笔
+        write(pipeline, 500, 100, 300);     //第二笔倒着写
+        write(pipeline, 100, 500, 300);     //第二笔
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        pipeline.stop();
+        assertEquals(Arrays.asList(
+                "0:" + StrokeJudge.RESULT_ACCEPTED,
+                "1:" + StrokeJudge.RESULT_BACKWARDS,
+                "1:" + StrokeJudge.RESULT_ACCEPTED,
+                "end"), events);
+        assertEquals(3, pipeline.getResultLatency().getCount());
+        assertTrue(pipeline.getQueueLatency().getCount() > 0);
+    }
+
+    @Test
+    public void resultsOfTheOldCharacterAreDropped() throws InterruptedException {
+        final List<Runnable> posted = new ArrayList<>();
+        final CountDownLatch first = new CountDownLatch(1);
+        final List<Integer> results = new ArrayList<>();
+        StrokeValidationPipeline pipeline = new StrokeValidationPipeline(64, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                //像主线程的Handler一样  先排队，之后再执行
+                synchronized (posted){
+                    posted.add(command);
+                }
+                first.countDown();
+            }
+        }, new StrokeValidationPipeline.Callback() {
+            @Override
+            public void onStrokeResult(int index, int result, float quality) {
+                results.add(index);
+            }
+
+            @Override
+            public void onCharacterEnd() {
+            }
+        });
+        pipeline.start();
+        pipeline.setCharacter(STROKES, 30, 0);
+        write(pipeline, 100, 500, 100);
+        assertTrue(first.await(5, TimeUnit.SECONDS));
+
+        //结果还没执行就换了字
+        pipeline.setCharacter(STROKES, 30, 0);
+        synchronized (posted){
+            for(Runnable runnable : posted){
+                runnable.run();
+            }
+        }
+        pipeline.stop();
+        assertTrue(results.isEmpty());
+    }
+
+    @Test
+    public void clearCharacterDropsPendingResultsAndStopsJudging() throws InterruptedException {
+        final List<Runnable> posted = new ArrayList<>();
+        final CountDownLatch first = new CountDownLatch(1);
+        final List<Integer> results = new ArrayList<>();
+        StrokeValidationPipeline pipeline = new StrokeValidationPipeline(64, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                synchronized (posted){
+                    posted.add(command);
+                }
+                first.countDown();
+            }
+        }, new StrokeValidationPipeline.Callback() {
+            @Override
+            public void onStrokeResult(int index, int result, float quality) {
+                results.add(index);
+            }
+
+            @Override
+            public void onCharacterEnd() {
+            }
+        });
+        pipeline.start();
+        pipeline.setCharacter(STROKES, 30, 0);
+        write(pipeline, 100, 500, 100);
+        assertTrue(first.await(5, TimeUnit.SECONDS));
+
+        //重新开始写  上一次的结果还在排队
+        pipeline.clearCharacter();
+        write(pipeline, 100, 500, 300);
+        //等判定线程处理完清空之后的点
+        Thread.sleep(100);
+        synchronized (posted){
+            for(Runnable runnable : posted){
+                runnable.run();
+            }
+            assertEquals(1, posted.size());
+        }
+        pipeline.stop();
+        assertTrue(results.isEmpty());
+    }
+}
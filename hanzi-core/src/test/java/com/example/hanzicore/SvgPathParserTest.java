@@ -0,0 +1,205 @@
+package com.example.hanzicore;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link SvgPathParser} 的命令和数字格式
+ */
+public class SvgPathParserTest {
+    private static final byte M = HanziBinaryFormat.CMD_MOVE_TO;
+    private static final byte L = HanziBinaryFormat.CMD_LINE_TO;
+    private static final byte Q = HanziBinaryFormat.CMD_QUAD_TO;
+    private static final byte C = HanziBinaryFormat.CMD_CUBIC_TO;
+    private static final byte Z = HanziBinaryFormat.CMD_CLOSE;
+
+    private final SvgPathParser parser = new SvgPathParser();
+
+    private PathRecorder parse(String svg){
+        PathRecorder recorder = new PathRecorder();
+        parser.parse(svg, recorder);
+        return recorder;
+    }
+
+    private void assertPath(String svg, byte[] commands, float[] coordinates){
+        PathRecorder recorder = parse(svg);
+        assertArrayEquals(svg, commands, recorder.getCommands());
+        assertArrayEquals(svg, coordinates, recorder.getCoordinates(), 1e-4f);
+    }
+
+    private void assertSamePath(String expected, String actual){
+        PathRecorder a = parse(expected);
+        PathRecorder b = parse(actual);
+        assertArrayEquals(actual, a.getCommands(), b.getCommands());
+        assertArrayEquals(actual, a.getCoordinates(), b.getCoordinates(), 1e-4f);
+    }
+
+    @Test
+    public void absoluteCommands() {
+        assertPath("M 10 20 L 30 40 H 50 V 60 Q 70 80 90 100 C 1 2 3 4 5 6 Z",
+                new byte[]{M, L, L, L, Q, C, Z},
+                new float[]{10, 20, 30, 40, 50, 40, 50, 60, 70, 80, 90, 100, 1, 2, 3, 4, 5, 6});
+    }
+
+    @Test
+    public void relativeCommandsMatchAbsolute() {
+        assertSamePath("M 10 20 L 30 40 H 50 V 60 Q 70 80 90 100 C 100 110 120 130 140 150 Z L 20 30",
+                "m10 20 l20 20 h20 v20 q20 20 40 40 c10 10 30 30 50 50 z l10 10");
+        //相对命令相对的是上一条命令的终点
+        assertSamePath("M 5 5 L 15 5 L 15 15 L 5 15",
+                "m5 5 h10 v10 h-10");
+    }
+
+    @Test
+    public void closeReturnsToSubpathStart() {
+        //z之后的相对坐标从子路径的起点算
+        assertPath("m 10 10 l 5 0 z m 1 1 l 1 0",
+                new byte[]{M, L, Z, M, L},
+                new float[]{10, 10, 15, 10, 11, 11, 12, 11});
+    }
+
+    @Test
+    public void implicitRepeatedCommands() {
+        //M后面多出来的坐标是L
+        assertPath("M 0 0 10 0 10 10",
+                new byte[]{M, L, L},
+                new float[]{0, 0, 10, 0, 10, 10});
+        //m后面多出来的是l
+        assertPath("m 1 1 2 2 3 3",
+                new byte[]{M, L, L},
+                new float[]{1, 1, 3, 3, 6, 6});
+        assertSamePath("M 0 0 L 1 1 L 2 2 Q 3 3 4 4 Q 5 5 6 6 C 1 1 2 2 3 3 C 4 4 5 5 6 6",
+                "M 0 0 L 1 1 2 2 Q 3 3 4 4 5 5 6 6 C 1 1 2 2 3 3 4 4 5 5 6 6");
+        assertSamePath("M 0 0 H 1 H 5 V 2 V 7",
+                "M 0 0 H 1 5 V 2 7");
+        assertSamePath("M 0 0 L 1 0 L 3 0 L 3 1 L 3 4",
+                "M 0 0 h 1 2 v 1 3");
+    }
+
+    @Test
+    public void smoothCubicReflectsControlPoint() {
+        //第一个控制点是上一段第二个控制点关于当前点的对称点
+        assertPath("M 0 0 C 10 0 20 10 30 10 S 50 20 60 10",
+                new byte[]{M, C, C},
+                new float[]{0, 0, 10, 0, 20, 10, 30, 10, 40, 10, 50, 20, 60, 10});
+        //连续的S接着反射
+        assertSamePath("M 0 0 C 10 0 20 10 30 10 C 40 10 50 20 60 10 C 70 0 80 0 90 10",
+                "M 0 0 C 10 0 20 10 30 10 S 50 20 60 10 S 80 0 90 10");
+        //前面不是C或S  第一个控制点就是当前点
+        assertPath("M 0 0 L 10 0 S 20 10 30 0",
+                new byte[]{M, L, C},
+                new float[]{0, 0, 10, 0, 10, 0, 20, 10, 30, 0});
+        assertSamePath("M 0 0 C 10 0 20 10 30 10 S 50 20 60 10",
+                "m 0 0 c 10 0 20 10 30 10 s 20 10 30 0");
+    }
+
+    @Test
+    public void smoothQuadReflectsControlPoint() {
+        assertPath("M 0 0 Q 10 10 20 0 T 40 0 T 60 0",
+                new byte[]{M, Q, Q, Q},
+                new float[]{0, 0, 10, 10, 20, 0, 30, -10, 40, 0, 50, 10, 60, 0});
+        //前面不是Q或T  控制点就是当前点，相当于直线
+        assertPath("M 0 0 L 10 0 T 20 0",
+                new byte[]{M, L, Q},
+                new float[]{0, 0, 10, 0, 10, 0, 20, 0});
+        //S不会反射Q的控制点
+        assertPath("M 0 0 Q 10 10 20 0 S 30 10 40 0",
+                new byte[]{M, Q, C},
+                new float[]{0, 0, 10, 10, 20, 0, 20, 0, 30, 10, 40, 0});
+        assertSamePath("M 0 0 Q 10 10 20 0 T 40 0",
+                "m 0 0 q 10 10 20 0 t 20 0");
+    }
+
+    @Test
+    public void arcBecomesCubicsOnTheEllipse() {
+        //半圆  圆心(10, 0) 半径10
+        PathRecorder recorder = parse("M 0 0 A 10 10 0 0 1 20 0");
+        byte[] commands = recorder.getCommands();
+        float[] coordinates = recorder.getCoordinates();
+        assertEquals(M, commands[0]);
+        assertEquals(3, commands.length);   //每90度一段
+        int offset = 2;
+        float middleY = 0;
+        for(int i = 1 ; i < commands.length ; i ++){
+            assertEquals(C, commands[i]);
+            float x = coordinates[offset + 4];
+            float y = coordinates[offset + 5];
+            assertEquals(10, Math.hypot(x - 10, y), 1e-3);
+            if(i == 1){
+                middleY = y;
+            }
+            offset += 6;
+        }
+        assertEquals(20, coordinates[coordinates.length - 2], 0);
+        assertEquals(0, coordinates[coordinates.length - 1], 0);
+        assertEquals(10, Math.abs(middleY), 1e-3);
+
+        //sweep反过来  走另一边
+        float[] other = parse("M 0 0 A 10 10 0 0 0 20 0").getCoordinates();
+        assertEquals(-middleY, other[7], 1e-3);
+    }
+
+    @Test
+    public void arcForms() {
+        //相对坐标  标志位可以不加分隔符
+        assertSamePath("M 0 0 A 10 10 0 1 0 20 0", "m 0 0 a10 10 0 1020 0");
+        assertSamePath("M 5 5 A 10 10 0 0 1 25 5", "M5,5a10,10,0,0,1,20,0");
+        //半径不够  放大到正好是半圆
+        assertSamePath("M 0 0 A 10 10 0 0 1 20 0", "M 0 0 A 1 1 0 0 1 20 0");
+        //半径是0就是直线  终点和起点一样就什么都不画
+        assertPath("M 0 0 A 0 10 0 0 1 20 0 A 5 5 0 0 1 20 0",
+                new byte[]{M, L},
+                new float[]{0, 0, 20, 0});
+        //旋转的椭圆  端点在旋转后的椭圆上
+        PathRecorder recorder = parse("M 0 0 A 20 10 90 0 1 0 40");
+        float[] coordinates = recorder.getCoordinates();
+        assertEquals(0, coordinates[coordinates.length - 2], 1e-4f);
+        assertEquals(40, coordinates[coordinates.length - 1], 1e-4f);
+        float x = coordinates[6];
+        float y = coordinates[7];
+        //长轴竖着  圆心(0, 20)
+        assertEquals(1, x * x / 100 + (y - 20) * (y - 20) / 400, 1e-3);
+    }
+
+    @Test
+    public void numberForms() {
+        assertPath("M.5.5L-1-2",
+                new byte[]{M, L},
+                new float[]{0.5f, 0.5f, -1, -2});
+        assertPath("M1e-3 1E2L+3,2.5e+1",
+                new byte[]{M, L},
+                new float[]{0.001f, 100, 3, 25});
+        assertPath("M 1.5e2.5 -.25-0.75",
+                new byte[]{M, L},
+                new float[]{150, 0.5f, -0.25f, -0.75f});
+        assertPath("M\t10\n20\r\n,30 , 40",
+                new byte[]{M, L},
+                new float[]{10, 20, 30, 40});
+        assertPath("M 0.1 123456.789",
+                new byte[]{M},
+                new float[]{0.1f, 123456.789f});
+    }
+
+    @Test
+    public void malformedPathThrows() {
+        String[] bad = {"M 10", "10 20", "M 0 0 Z 5", "M 0 0 X 1 1", "M 0 0 L 1 -", "M 0 0 A 1 1 0 2 0 5 5"};
+        for(String svg : bad){
+            try{
+                parse(svg);
+                fail(svg);
+            }catch (IllegalArgumentException e){
+                //预期之中
+            }
+        }
+    }
+
+    @Test
+    public void parserIsReusable() {
+        String svg = "M 0 0 Q 10 10 20 0 T 40 0";
+        PathRecorder first = parse(svg);
+        parse("M 1 1 C 2 2 3 3 4 4 S 5 5 6 6");
+        PathRecorder again = parse(svg);
+        assertArrayEquals(first.getCoordinates(), again.getCoordinates(), 0);
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.hanzicore;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link TouchPredictor} 的线性和卡尔曼预测
+ */
+public class TouchPredictorTest {
+    private static final long INTERVAL = 8;     //120Hz的触摸屏
+
+    @Test
+    public void linearExtrapolatesConstantVelocity() {
+        TouchPredictor predictor = new TouchPredictor(TouchPredictor.TYPE_LINEAR);
+        predictor.setHorizon(16);
+        for(int i = 0 ; i < 6 ; i ++){
+            predictor.addSample(100 + i * INTERVAL * 2, 50 + i * INTERVAL, i * INTERVAL);
+        }
+        float[] out = new float[2];
+        assertTrue(predictor.predict(out));
+        //最后一个点是(180, 90)，速度(2, 1)像素/毫秒
+        assertEquals(212, out[0], 0.01f);
+        assertEquals(106, out[1], 0.01f);
+    }
+
+    @Test
+    public void kalmanSmoothsJitter() {
+        TouchPredictor predictor = new TouchPredictor(TouchPredictor.TYPE_KALMAN);
+        predictor.setHorizon(16);
+        Random random = new Random(1);
+        float[] out = new float[2];
+        float error = 0;
+        int predictions = 0;
+        for(int i = 0 ; i < 60 ; i ++){
+            predictor.addSample(i * INTERVAL * 1.5f + (float) random.nextGaussian() * 0.5f,
+                    200 + (float) random.nextGaussian() * 0.5f, i * INTERVAL);
+            if(i >= 10){
+                assertTrue(predictor.predict(out));
+                float expected = (i * INTERVAL + 16) * 1.5f;
+                error += Math.abs(out[0] - expected) + Math.abs(out[1] - 200);
+                predictions ++;
+            }
+        }
+        //采样点的误差是0.5像素左右  预测的误差不会被放大很多
+        assertTrue(String.valueOf(error / predictions), error / predictions < 3);
+    }
+
+    @Test
+    public void kalmanFollowsAccelerationBetterThanLinear() {
+        TouchPredictor linear = new TouchPredictor(TouchPredictor.TYPE_LINEAR);
+        TouchPredictor kalman = new TouchPredictor(TouchPredictor.TYPE_KALMAN);
+        int count = 20;
+        for(int i = 0 ; i < count ; i ++){
+            long t = i * INTERVAL;
+            float x = 0.2f * t + 0.004f * t * t;
+            linear.addSample(x, 0, t);
+            kalman.addSample(x, 0, t);
+        }
+        long target = (count - 1) * INTERVAL + TouchPredictor.DEFAULT_HORIZON;
+        float expected = 0.2f * target + 0.004f * target * target;
+
+        float[] out = new float[2];
+        assertTrue(linear.predict(out));
+        float linearError = Math.abs(out[0] - expected);
+        assertTrue(kalman.predict(out));
+        float kalmanError = Math.abs(out[0] - expected);
+        assertTrue(linearError + " " + kalmanError, kalmanError < linearError);
+    }
+
+    @Test
+    public void noPredictionWhenStillOrTooFewSamples() {
+        TouchPredictor predictor = new TouchPredictor(TouchPredictor.TYPE_KALMAN);
+        float[] out = {-1, -1};
+        predictor.addSample(10, 10, 0);
+        predictor.addSample(20, 10, 8);
+        assertFalse(predictor.predict(out));
+
+        //停了很久  重新开始
+        predictor.addSample(30, 10, 16);
+        predictor.addSample(40, 10, 200);
+        assertFalse(predictor.predict(out));
+
+        //手指没动
+        predictor.reset();
+        for(int i = 0 ; i < 10 ; i ++){
+            predictor.addSample(50, 50, i * INTERVAL);
+        }
+        assertFalse(predictor.predict(out));
+        assertEquals(-1, out[0], 0);
+
+        //horizon是0
+        predictor.reset();
+        predictor.setHorizon(0);
+        for(int i = 0 ; i < 10 ; i ++){
+            predictor.addSample(i * 20, 0, i * INTERVAL);
+        }
+        assertFalse(predictor.predict(out));
+    }
+
+    @Test
+    public void overshootIsCapped() {
+        TouchPredictor predictor = new TouchPredictor(TouchPredictor.TYPE_KALMAN);
+        predictor.setHorizon(TouchPredictor.MAX_HORIZON);
+        //停了一会之后突然很快地动  加速度很大，预测的距离不超过按当前速度走的两倍左右
+        for(int i = 0 ; i < 10 ; i ++){
+            float x = i < 8 ? 0 : (i - 7) * 30;
+            predictor.addSample(x, 0, i * INTERVAL);
+        }
+        float[] out = new float[2];
+        assertTrue(predictor.predict(out));
+        float distance = out[0] - 60;
+        assertTrue(distance > 0);
+        assertTrue(String.valueOf(distance), distance < 30f / INTERVAL * TouchPredictor.MAX_HORIZON * 2 * 1.1f);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.hanzicore;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link TouchSampleRing} 的顺序和容量
+ */
+public class TouchSampleRingTest {
+
+    @Test
+    public void capacityRoundsUpAndFills() {
+        TouchSampleRing ring = new TouchSampleRing(5);
+        assertEquals(8, ring.getCapacity());
+        for(int i = 0 ; i < 8 ; i ++){
+            assertTrue(ring.offer(TouchSampleRing.KIND_MOVE, i, i, i));
+        }
+        assertFalse(ring.offer(TouchSampleRing.KIND_MOVE, 8, 8, 8));
+        assertEquals(0, ring.remainingCapacity());
+
+        final float[] sum = new float[1];
+        assertEquals(3, ring.drain(new TouchSampleRing.Consumer() {
+            @Override
+            public void onSample(byte kind, float x, float y, long time) {
+                sum[0] += x;
+            }
+        }, 3));
+        assertEquals(0 + 1 + 2, sum[0], 0);
+        assertEquals(3, ring.remainingCapacity());
+        assertEquals(5, ring.size());
+    }
+
+    @Test
+    public void anotherThreadReadsEverythingInOrder() throws InterruptedException {
+        final int total = 200000;
+        final TouchSampleRing ring = new TouchSampleRing(64);
+        final long[] result = new long[2];  //读到的个数  顺序错了的个数
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                TouchSampleRing.Consumer consumer = new TouchSampleRing.Consumer() {
+                    @Override
+                    public void onSample(byte kind, float x, float y, long time) {
+                        if(time != result[0] || x != (float) (time % 1000)){
+                            result[1] ++;
+                        }
+                        result[0] ++;
+                    }
+                };
+                while (result[0] < total){
+                    if(ring.drain(consumer, 16) == 0){
+                        Thread.yield();
+                    }
+                }
+            }
+        });
+        reader.start();
+
+        for(long i = 0 ; i < total ; i ++){
+            while (!ring.offer(TouchSampleRing.KIND_MOVE, i % 1000, 0, i)){
+                Thread.yield();
+            }
+        }
+        reader.join(10000);
+        assertEquals(total, result[0]);
+        assertEquals(0, result[1]);
+        assertTrue(ring.isEmpty());
+    }
+}
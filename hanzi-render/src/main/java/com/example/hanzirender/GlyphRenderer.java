@@ -0,0 +1,136 @@
+package com.example.hanzirender;
+
+import com.example.hanzicore.GlyphTransform;
+import com.example.hanzicore.HanziGlyph;
+import com.example.hanzicore.MedianStroke;
+import com.example.hanzicore.OutlineSimplifier;
+import com.example.hanzicore.StrokeTimeline;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+/**
+ * 把一个字画成笔顺图和动画帧  每个线程一个，图片重复使用
+ *
+ * 坐标换算、外框和中线和app里HanziBean准备的一样，颜色和HanziWriterView的写字模式、动画模式一样
+ */
+final class GlyphRenderer {
+    private static final float ANIM_STROKE_WIDTH = 120;     //view里动画笔的宽度
+    private static final float REFERENCE_SIZE = 1024;       //按这么大的view换算动画笔的宽度
+
+    private final RenderOptions options;
+    private final BufferedImage image;
+    private final Path2D.Float animPath = new Path2D.Float();
+    private final Java2DPathSink animSink = new Java2DPathSink(animPath);
+    private final BasicStroke animStroke;
+
+    GlyphRenderer(RenderOptions options) {
+        this.options = options;
+        this.image = new BufferedImage(options.size, options.size, BufferedImage.TYPE_INT_ARGB);
+        this.animStroke = new BasicStroke(ANIM_STROKE_WIDTH * options.size / REFERENCE_SIZE,
+                BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+    }
+
+    /**
+     * 画一个字  每张图画好就写文件
+     * @param glyph
+     * @param directory 这个字的输出目录
+     * @return 写了几张图
+     */
+    int render(HanziGlyph glyph, File directory) throws IOException {
+        int size = options.size;
+        //小尺寸的时候和HanziBean.getLodGlyph用同样的档位简化外框，画出来和app里一样
+        glyph = OutlineSimplifier.simplifyForSize(glyph, size);
+        GlyphTransform transform = new GlyphTransform(size, size);
+        int strokeCount = glyph.getStrokeCount();
+        List<Path2D.Float> outlines = new ArrayList<>(strokeCount);
+        List<MedianStroke> medians = new ArrayList<>(strokeCount);
+        for(int i = 0 ; i < strokeCount ; i ++){
+            Path2D.Float outline = new Path2D.Float();
+            glyph.replayStroke(i, transform.wrap(new Java2DPathSink(outline)));
+            outlines.add(outline);
+            medians.add(new MedianStroke(transform.mapPoints(glyph.getMedian(i))));
+        }
+
+        if(!directory.isDirectory() && !directory.mkdirs()){
+            throw new IOException("can not create " + directory);
+        }
+
+        int written = 0;
+        if(options.steps){
+            //第k张图  前k笔用写过的颜色
+            for(int k = 1 ; k <= strokeCount ; k ++){
+                Graphics2D graphics = begin();
+                drawOutlines(graphics, outlines, k, options.writerColor);
+                graphics.dispose();
+                write(new File(directory, String.format("step-%02d.png", k)));
+                written ++;
+            }
+        }
+
+        if(options.frames && strokeCount > 0){
+            StrokeTimeline timeline = new StrokeTimeline(medians);
+            long total = timeline.getTotalDuration();
+            int frameCount = (int) (total * options.fps / 1000) + 1;
+            for(int frame = 0 ; frame < frameCount ; frame ++){
+                long time = Math.min(total, frame * 1000L / options.fps);
+                int index = timeline.getStrokeIndexAt(time);
+
+                Graphics2D graphics = begin();
+                drawOutlines(graphics, outlines, index, options.animColor);
+                if(index >= 0){
+                    //正在画的这一笔  截取中线，裁剪在笔画的外框里面
+                    MedianStroke median = medians.get(index);
+                    animPath.reset();
+                    median.extract(median.getLength() * timeline.getStrokeProgressAt(index, time), animSink);
+                    graphics.clip(outlines.get(index));
+                    graphics.setColor(options.animColor);
+                    graphics.setStroke(animStroke);
+                    graphics.draw(animPath);
+                }
+                graphics.dispose();
+                write(new File(directory, String.format("frame-%04d.png", frame)));
+                written ++;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * 清空图片  白色背景，打印出来和纸一样
+     */
+    private Graphics2D begin(){
+        Graphics2D graphics = image.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        graphics.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+        return graphics;
+    }
+
+    /**
+     * 画所有笔画的外框  前done笔用highlight的颜色，其他的用背景色
+     */
+    private void drawOutlines(Graphics2D graphics, List<Path2D.Float> outlines, int done, Color highlight){
+        for(int i = 0 ; i < outlines.size() ; i ++){
+            graphics.setColor(i < done ? highlight : options.backgroundColor);
+            graphics.fill(outlines.get(i));
+        }
+    }
+
+    private void write(File file) throws IOException {
+        if(!ImageIO.write(image, "png", file)){
+            throw new IOException("no png writer");
+        }
+    }
+}
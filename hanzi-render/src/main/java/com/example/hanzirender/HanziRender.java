@@ -0,0 +1,223 @@
+package com.example.hanzirender;
+
+import com.example.hanzicore.GraphicsRecord;
+import com.example.hanzicore.HanziBinaryReader;
+import com.example.hanzicore.HanziGlyph;
+import com.example.hanzicore.SvgPathParser;
+import com.google.gson.Gson;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 批量导出笔顺图和动画帧  不需要Android，在JVM上运行
+ *
+ * 输入是makemeahanzi的graphics.txt或者HanziBinaryCompiler生成的二进制文件，每个字输出一个目录：
+ * output/u6211/step-01.png ...  第1到n笔依次用写字模式的颜色高亮
+ * output/u6211/frame-0000.png ...  按固定帧率截取的动画帧
+ *
+ * 主线程按顺序读输入，每BATCH_SIZE个字交给fork/join线程池，解析、画图、写文件都在工作线程里；
+ * 同时在处理的批数有上限，读得比画得快的时候主线程等着，整个文件不会都读进内存
+ */
+public final class HanziRender {
+    private static final int BATCH_SIZE = 64;
+    private static final int BATCHES_PER_THREAD = 2;    //每个线程最多积压几批
+
+    private final RenderOptions options;
+    private final Semaphore inFlight;
+    private final ThreadLocal<GlyphRenderer> renderers;
+    private final AtomicInteger glyphCount = new AtomicInteger();
+    private final AtomicLong imageCount = new AtomicLong();
+    private final AtomicInteger errorCount = new AtomicInteger();
+
+    public static void main(String[] args) throws Exception {
+        RenderOptions options = RenderOptions.parse(args);
+        if(options == null){
+            System.err.println(RenderOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+        HanziRender render = new HanziRender(options);
+        long start = System.nanoTime();
+        render.run();
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        System.out.println(String.format("%d glyphs, %d images, %d errors in %d ms (%d threads)",
+                render.glyphCount.get(), render.imageCount.get(), render.errorCount.get(), millis, options.threads));
+        if(render.errorCount.get() > 0){
+            System.exit(1);
+        }
+    }
+
+    HanziRender(final RenderOptions options) {
+        this.options = options;
+        this.inFlight = new Semaphore(options.threads * BATCHES_PER_THREAD);
+        this.renderers = new ThreadLocal<GlyphRenderer>(){
+            @Override
+            protected GlyphRenderer initialValue() {
+                return new GlyphRenderer(options);
+            }
+        };
+    }
+
+    void run() throws IOException, InterruptedException {
+        if(!options.output.isDirectory() && !options.output.mkdirs()){
+            throw new IOException("can not create " + options.output);
+        }
+        ForkJoinPool pool = new ForkJoinPool(options.threads);
+        try{
+            if(options.input.getName().endsWith(".txt")){
+                renderText(pool);
+            }else{
+                renderBinary(pool);
+            }
+            //所有的批都做完了才能拿回全部的许可
+            inFlight.acquire(options.threads * BATCHES_PER_THREAD);
+        }finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * graphics.txt  一行一个字，json在工作线程里解析
+     */
+    private void renderText(ForkJoinPool pool) throws IOException, InterruptedException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(options.input), Charset.forName("UTF-8")));
+        try{
+            List<String> batch = new ArrayList<>(BATCH_SIZE);
+            String line;
+            while ((line = reader.readLine()) != null){
+                if(line.isEmpty()){
+                    continue;
+                }
+                batch.add(line);
+                if(batch.size() == BATCH_SIZE){
+                    submit(pool, new TextLoader(batch), batch.size());
+                    batch = new ArrayList<>(BATCH_SIZE);
+                }
+            }
+            if(!batch.isEmpty()){
+                submit(pool, new TextLoader(batch), batch.size());
+            }
+        }finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * 二进制文件  按索引的顺序，字形在工作线程里解码
+     */
+    private void renderBinary(ForkJoinPool pool) throws IOException, InterruptedException {
+        HanziBinaryReader reader = new HanziBinaryReader(options.input);
+        try{
+            int total = reader.getGlyphCount();
+            for(int from = 0 ; from < total ; from += BATCH_SIZE){
+                submit(pool, new BinaryLoader(reader, from), Math.min(BATCH_SIZE, total - from));
+            }
+            //文件映射在关闭之后就不能读了  等这个文件的所有批做完
+            inFlight.acquire(options.threads * BATCHES_PER_THREAD);
+            inFlight.release(options.threads * BATCHES_PER_THREAD);
+        }finally {
+            reader.close();
+        }
+    }
+
+    private void submit(ForkJoinPool pool, RenderChunk.Loader loader, int count) throws InterruptedException {
+        inFlight.acquire();
+        pool.execute(new RenderChunk(this, loader, count));
+    }
+
+    /**
+     * 画一个字  在工作线程里调用
+     */
+    void renderGlyph(HanziGlyph glyph) throws IOException {
+        File directory = new File(options.output, String.format("u%04x", glyph.getCodePoint()));
+        int images = renderers.get().render(glyph, directory);
+        imageCount.addAndGet(images);
+        int count = glyphCount.incrementAndGet();
+        if(count % 1000 == 0){
+            System.out.println(count + " glyphs");
+        }
+    }
+
+    void onError(String name, Exception e){
+        errorCount.incrementAndGet();
+        System.err.println("failed to render " + name + ": " + e);
+    }
+
+    void onBatchDone(){
+        inFlight.release();
+    }
+
+    private boolean wanted(int codePoint){
+        return options.characters == null || options.characters.contains(codePoint);
+    }
+
+    /**
+     * graphics.txt的一批行
+     */
+    private final class TextLoader implements RenderChunk.Loader {
+        private final List<String> lines;
+        private final Gson gson = new Gson();
+
+        TextLoader(List<String> lines) {
+            this.lines = lines;
+        }
+
+        @Override
+        public HanziGlyph load(int index) throws IOException {
+            GraphicsRecord record = gson.fromJson(lines.get(index), GraphicsRecord.class);
+            if(record == null || !record.hasCharacter()){
+                throw new IOException("no character");
+            }
+            if(!wanted(record.getCharacter().codePointAt(0))){
+                return null;
+            }
+            if(!record.isComplete()){
+                throw new IOException("incomplete record for " + record.getCharacter());
+            }
+            return record.toGlyph(new SvgPathParser());
+        }
+
+        @Override
+        public String getName(int index) {
+            String line = lines.get(index);
+            return line.length() > 40 ? line.substring(0, 40) + "..." : line;
+        }
+    }
+
+    /**
+     * 二进制文件索引里连续的一段
+     */
+    private final class BinaryLoader implements RenderChunk.Loader {
+        private final HanziBinaryReader reader;
+        private final int from;
+
+        BinaryLoader(HanziBinaryReader reader, int from) {
+            this.reader = reader;
+            this.from = from;
+        }
+
+        @Override
+        public HanziGlyph load(int index) throws IOException {
+            int codePoint = reader.getCodePoint(from + index);
+            return wanted(codePoint) ? reader.loadGlyph(codePoint) : null;
+        }
+
+        @Override
+        public String getName(int index) {
+            return new String(Character.toChars(reader.getCodePoint(from + index)));
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.hanzirender;
+
+import com.example.hanzicore.PathSink;
+
+import java.awt.geom.Path2D;
+
+/**
+ * 把路径命令写进java2d的Path2D  对应app里的AndroidPathSink
+ */
+final class Java2DPathSink implements PathSink {
+    private final Path2D.Float path;
+
+    Java2DPathSink(Path2D.Float path) {
+        this.path = path;
+    }
+
+    @Override
+    public void moveTo(float x, float y) {
+        path.moveTo(x, y);
+    }
+
+    @Override
+    public void lineTo(float x, float y) {
+        path.lineTo(x, y);
+    }
+
+    @Override
+    public void quadTo(float x1, float y1, float x, float y) {
+        path.quadTo(x1, y1, x, y);
+    }
+
+    @Override
+    public void cubicTo(float x1, float y1, float x2, float y2, float x, float y) {
+        path.curveTo(x1, y1, x2, y2, x, y);
+    }
+
+    @Override
+    public void close() {
+        path.closePath();
+    }
+}
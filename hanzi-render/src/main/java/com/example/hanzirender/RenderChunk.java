@@ -0,0 +1,76 @@
+package com.example.hanzirender;
+
+import com.example.hanzicore.HanziGlyph;
+
+import java.io.IOException;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 一批字  太多就分成两半，交给fork/join的其他线程偷走
+ */
+final class RenderChunk extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private static final int THRESHOLD = 4;     //不超过这么多个字就在当前线程画
+
+    private final HanziRender render;
+    private final Loader loader;
+    private final int from;
+    private final int to;
+    private final boolean root;
+
+    RenderChunk(HanziRender render, Loader loader, int count) {
+        this(render, loader, 0, count, true);
+    }
+
+    private RenderChunk(HanziRender render, Loader loader, int from, int to, boolean root) {
+        this.render = render;
+        this.loader = loader;
+        this.from = from;
+        this.to = to;
+        this.root = root;
+    }
+
+    @Override
+    protected void compute() {
+        try{
+            if(to - from > THRESHOLD){
+                int middle = (from + to) >>> 1;
+                invokeAll(new RenderChunk(render, loader, from, middle, false),
+                        new RenderChunk(render, loader, middle, to, false));
+                return;
+            }
+            for(int i = from ; i < to ; i ++){
+                String name = loader.getName(i);
+                try{
+                    HanziGlyph glyph = loader.load(i);
+                    if(glyph != null){
+                        render.renderGlyph(glyph);
+                    }
+                }catch (IOException | RuntimeException e){
+                    //一个字出错不影响其他的字
+                    render.onError(name, e);
+                }
+            }
+        }finally {
+            if(root){
+                render.onBatchDone();
+            }
+        }
+    }
+
+    /**
+     * 按序号加载一批里的字  在工作线程里调用，要线程安全
+     */
+    interface Loader{
+        /**
+         * @param index
+         * @return 不需要画的字返回null
+         */
+        HanziGlyph load(int index) throws IOException;
+
+        /**
+         * 出错的时候显示的名字
+         */
+        String getName(int index);
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.hanzirender;
+
+import java.awt.Color;
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 命令行参数
+ */
+final class RenderOptions {
+    static final String USAGE = "usage: hanzi-render --input <graphics.txt|hanzi.bin> --output <dir> [options]\n"
+            + "  --size <px>            图片的宽高，默认512\n"
+            + "  --steps                画笔顺图：第1到n笔依次高亮，每笔一张\n"
+            + "  --frames               画动画帧，按fps每帧一张\n"
+            + "  --fps <n>              动画的帧率，默认30\n"
+            + "  --characters <字>      只画这些字，默认全部\n"
+            + "  --threads <n>          线程数，默认CPU核数\n"
+            + "  --writer-color <rgb>   笔顺图写过的笔画，默认0000FF\n"
+            + "  --anim-color <rgb>     动画画过的笔画，默认00FF00\n"
+            + "  --background-color <rgb> 没写的笔画，默认000000\n"
+            + "  不指定--steps和--frames时两种都画";
+
+    File input;
+    File output;
+    int size = 512;
+    boolean steps;
+    boolean frames;
+    int fps = 30;
+    Set<Integer> characters;    //null表示全部
+    int threads = Runtime.getRuntime().availableProcessors();
+    //和HanziWriterView的默认颜色一样
+    Color writerColor = Color.BLUE;
+    Color animColor = Color.GREEN;
+    Color backgroundColor = Color.BLACK;
+
+    /**
+     * @param args
+     * @return 参数不对返回null
+     */
+    static RenderOptions parse(String[] args){
+        RenderOptions options = new RenderOptions();
+        try{
+            for(int i = 0 ; i < args.length ; i ++){
+                String arg = args[i];
+                switch (arg){
+                    case "--input":
+                        options.input = new File(args[++ i]);
+                        break;
+                    case "--output":
+                        options.output = new File(args[++ i]);
+                        break;
+                    case "--size":
+                        options.size = Integer.parseInt(args[++ i]);
+                        break;
+                    case "--steps":
+                        options.steps = true;
+                        break;
+                    case "--frames":
+                        options.frames = true;
+                        break;
+                    case "--fps":
+                        options.fps = Integer.parseInt(args[++ i]);
+                        break;
+                    case "--characters":
+                        String characters = args[++ i];
+                        options.characters = new HashSet<>();
+                        for(int j = 0 ; j < characters.length() ; j = characters.offsetByCodePoints(j, 1)){
+                            options.characters.add(characters.codePointAt(j));
+                        }
+                        break;
+                    case "--threads":
+                        options.threads = Integer.parseInt(args[++ i]);
+                        break;
+                    case "--writer-color":
+                        options.writerColor = new Color(Integer.parseInt(args[++ i], 16));
+                        break;
+                    case "--anim-color":
+                        options.animColor = new Color(Integer.parseInt(args[++ i], 16));
+                        break;
+                    case "--background-color":
+                        options.backgroundColor = new Color(Integer.parseInt(args[++ i], 16));
+                        break;
+                    default:
+                        System.err.println("unknown option: " + arg);
+                        return null;
+                }
+            }
+        }catch (ArrayIndexOutOfBoundsException | NumberFormatException e){
+            System.err.println("bad option: " + e.getMessage());
+            return null;
+        }
+
+        if(options.input == null || options.output == null
+                || options.size <= 0 || options.fps <= 0 || options.threads <= 0){
+            return null;
+        }
+        if(!options.steps && !options.frames){
+            options.steps = true;
+            options.frames = true;
+        }
+        return options;
+    }
+}